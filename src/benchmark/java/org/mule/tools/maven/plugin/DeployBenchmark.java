@@ -0,0 +1,245 @@
+package org.mule.tools.maven.plugin;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.mule.tools.mmc.simulator.Latency;
+import org.mule.tools.mmc.simulator.MmcSimulator;
+import org.mule.tools.mmc.simulator.RouteStatistics;
+
+/**
+ * End-to-end benchmark of the deploy goal: runs {@link Deploy#execute()}
+ * repeatedly against a {@link MmcSimulator} holding a large inventory and
+ * answering with a realistic latency. Each run uploads a new version of the
+ * application and updates its deployment on a server group.
+ *
+ * The 50th, 95th and 99th percentiles of the duration of a run are reported
+ * with, for each phase, the mean number of requests per run and the mean time
+ * spent by the MMC serving them. When a baseline report is given, the build
+ * fails if a percentile or a request count exceeds its baseline by more than
+ * the allowed regression.
+ *
+ * Arguments: report file, then optionally the baseline report and the allowed
+ * regression (0.25 for 25%).
+ */
+public class DeployBenchmark {
+
+	static final int WARMUP_RUNS = 3;
+	static final int MEASURED_RUNS = 30;
+	static final long SEED = 20140512;
+	static final double DEFAULT_MAX_REGRESSION = 0.25;
+
+	static final String LOOKUPS = "lookups";
+	static final String UPLOAD = "upload";
+	static final String CREATION = "creation";
+	static final String UPDATE = "update";
+	static final String DEPLOY = "deploy";
+	static final String POLLING = "polling";
+	static final String OTHER = "other";
+	static final List<String> PHASES = Arrays.asList(LOOKUPS, UPLOAD, CREATION, UPDATE, DEPLOY, POLLING, OTHER);
+
+	/**
+	 * Shows only the warnings and errors of the runs
+	 */
+	private static final Log QUIET_LOG = new SystemStreamLog() {
+		@Override
+		public boolean isInfoEnabled() {
+			return false;
+		}
+	};
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 1) {
+			System.err.println("Usage: DeployBenchmark <report file> [<baseline file> [<max regression>]]");
+			System.exit(2);
+		}
+		Properties report = run();
+		File reportFile = new File(args[0]);
+		reportFile.getParentFile().mkdirs();
+		OutputStream outputStream = new FileOutputStream(reportFile);
+		try {
+			report.store(outputStream, "Deploy benchmark, " + MEASURED_RUNS + " runs");
+		} finally {
+			outputStream.close();
+		}
+		System.out.println("Deploy benchmark report written to " + reportFile);
+
+		if (args.length > 1) {
+			Properties baseline = new Properties();
+			InputStream inputStream = new FileInputStream(args[1]);
+			try {
+				baseline.load(inputStream);
+			} finally {
+				inputStream.close();
+			}
+			double maxRegression = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_MAX_REGRESSION;
+			List<String> regressions = compare(report, baseline, maxRegression);
+			if (!regressions.isEmpty()) {
+				System.err.println("Deploy benchmark regressed past " + Math.round(maxRegression * 100) + "% of " + args[1] + ":");
+				for (String regression : regressions) {
+					System.err.println("> " + regression);
+				}
+				System.exit(1);
+			}
+			System.out.println("No regression past " + Math.round(maxRegression * 100) + "% of " + args[1]);
+		}
+	}
+
+	/**
+	 * Runs the benchmark and returns its report
+	 */
+	static Properties run() throws Exception {
+		MmcSimulator simulator = new MmcSimulator(SEED);
+		File directory = File.createTempFile("deploy-benchmark", "");
+		directory.delete();
+		directory.mkdir();
+		File muleAppFile = new File(directory, "benchmark-app.zip");
+		try {
+			simulator.populate(200, 3, 10, 5, 2, 500);
+			for (String endpoint : Arrays.asList(MmcSimulator.DEPLOYMENTS, MmcSimulator.SERVERS, MmcSimulator.SERVER_GROUPS, MmcSimulator.CLUSTERS)) {
+				simulator.endpoint(endpoint).latency = Latency.logNormal(20, 0.5);
+			}
+			simulator.endpoint(MmcSimulator.REPOSITORY).latency = Latency.logNormal(50, 0.5);
+			simulator.deploymentDuration = Latency.uniform(300, 700);
+			simulator.start();
+
+			RandomAccessFile archive = new RandomAccessFile(muleAppFile, "rw");
+			try {
+				archive.setLength(1024 * 1024);
+			} finally {
+				archive.close();
+			}
+
+			List<Long> durations = new ArrayList<Long>();
+			Map<String, long[]> phaseTotals = new LinkedHashMap<String, long[]>();
+			for (String phase : PHASES) {
+				phaseTotals.put(phase, new long[2]);
+			}
+			for (int run = 0; run < WARMUP_RUNS + MEASURED_RUNS; run++) {
+				Deploy deploy = _createDeploy(simulator, muleAppFile, "1.0." + run);
+				simulator.resetRouteStatistics();
+				long startTime = System.nanoTime();
+				deploy.execute();
+				long durationMs = (System.nanoTime() - startTime) / 1000000;
+				if (run < WARMUP_RUNS) {
+					continue;
+				}
+				durations.add(durationMs);
+				for (Map.Entry<String, RouteStatistics> route : simulator.getRouteStatistics().entrySet()) {
+					long[] totals = phaseTotals.get(phase(route.getKey()));
+					totals[0] += route.getValue().getRequests();
+					totals[1] += route.getValue().getTotalTimeMs();
+				}
+			}
+
+			Collections.sort(durations);
+			Properties report = new Properties();
+			report.setProperty("duration.p50Ms", String.valueOf(percentile(durations, 50)));
+			report.setProperty("duration.p95Ms", String.valueOf(percentile(durations, 95)));
+			report.setProperty("duration.p99Ms", String.valueOf(percentile(durations, 99)));
+			System.out.println("Deploy duration: p50 " + percentile(durations, 50) + "ms, p95 " + percentile(durations, 95) + "ms, p99 " + percentile(durations, 99) + "ms");
+			for (Map.Entry<String, long[]> phase : phaseTotals.entrySet()) {
+				double requests = (double) phase.getValue()[0] / MEASURED_RUNS;
+				double timeMs = (double) phase.getValue()[1] / MEASURED_RUNS;
+				report.setProperty(phase.getKey() + ".requests", String.format("%.1f", requests));
+				report.setProperty(phase.getKey() + ".timeMs", String.format("%.1f", timeMs));
+				System.out.println(String.format("> %-9s : %6.1f requests, %8.1fms per run", phase.getKey(), requests, timeMs));
+			}
+			return report;
+		} finally {
+			simulator.close();
+			muleAppFile.delete();
+			directory.delete();
+		}
+	}
+
+	/**
+	 * Returns the phase of the deployment a route of the MMC is used in
+	 */
+	static String phase(String route) {
+		if (route.equals("POST /repository")) {
+			return UPLOAD;
+		} else if (route.equals("POST /deployments")) {
+			return CREATION;
+		} else if (route.startsWith("PUT /deployments/{id}/")) {
+			return UPDATE;
+		} else if (route.equals("POST /deployments/{id}/deploy")) {
+			return DEPLOY;
+		} else if (route.equals("GET /deployments/{id}")) {
+			return POLLING;
+		} else if (route.startsWith("GET ")) {
+			return LOOKUPS;
+		}
+		return OTHER;
+	}
+
+	/**
+	 * Returns the nearest-rank percentile of sorted values
+	 */
+	static long percentile(List<Long> sortedValues, int percentile) {
+		int rank = (int) Math.ceil(percentile / 100.0 * sortedValues.size());
+		return sortedValues.get(Math.max(0, rank - 1));
+	}
+
+	/**
+	 * Returns the figures of the report exceeding their baseline by more than
+	 * the allowed regression. The durations and request counts are checked,
+	 * the times per phase are informative only. A request count may exceed
+	 * its baseline by one request, as the number of polls depends on timing.
+	 */
+	static List<String> compare(Properties report, Properties baseline, double maxRegression) {
+		List<String> regressions = new ArrayList<String>();
+		for (String key : baseline.stringPropertyNames()) {
+			if (!key.startsWith("duration.") && !key.endsWith(".requests")) {
+				continue;
+			}
+			double expected = Double.parseDouble(baseline.getProperty(key));
+			String value = report.getProperty(key);
+			if (value == null) {
+				regressions.add(key + " is missing from the report");
+				continue;
+			}
+			double limit = expected * (1 + maxRegression) + (key.endsWith(".requests") ? 1 : 0);
+			if (Double.parseDouble(value) > limit) {
+				regressions.add(key + " : " + value + " against " + baseline.getProperty(key) + " in the baseline");
+			}
+		}
+		Collections.sort(regressions);
+		return regressions;
+	}
+
+	private static Deploy _createDeploy(MmcSimulator simulator, File muleAppFile, String version) throws IOException {
+		// The logger of the plugin is bound to the Log given by the mojo when
+		// it is built
+		Deploy deploy = new Deploy() {
+			@Override
+			public Log getLog() {
+				return QUIET_LOG;
+			}
+		};
+		deploy.noPomMode = true;
+		deploy.customMuleAppFilePath = muleAppFile.getAbsolutePath();
+		deploy.customRepositoryAppVersion = version;
+		deploy.mmcApiUrl = simulator.getUrl().toString();
+		deploy.mmcUsername = "admin";
+		deploy.mmcPassword = "admin";
+		deploy.targetDeploymentServer = "group-0";
+		deploy.skipIdenticalUpload = false;
+		deploy.throwIfDeployFails = true;
+		return deploy;
+	}
+}
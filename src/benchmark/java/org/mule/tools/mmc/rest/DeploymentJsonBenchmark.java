@@ -0,0 +1,42 @@
+package org.mule.tools.mmc.rest;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Building of the bodies sent to create and update a deployment
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeploymentJsonBenchmark {
+
+	private final String versionId = "local$0e8f4d4b-8a1e-4f5c-9b1d-1c2f3a4b5c6d";
+	private final List<String> serverIds = Collections.singletonList("local$5b0c6a8e-3d2f-4e1a-8c7b-9a0b1c2d3e4f");
+	private final String lastModified = "2014-05-12T10:15:30.000Z";
+
+	@Benchmark
+	public String createDeployment() throws IOException {
+		return MuleRest.createDeploymentJSON("my-application", null, versionId, serverIds, null);
+	}
+
+	@Benchmark
+	public String updateDeployment() throws IOException {
+		return MuleRest.createDeploymentJSON("my-application", lastModified, versionId, null, null);
+	}
+}
@@ -0,0 +1,124 @@
+package org.mule.tools.mmc.rest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.cxf.helpers.IOUtils;
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Lookup of a deployment by name in a /deployments listing, the element
+ * looked up being the last one of the list:
+ * <ul>
+ * <li>by reading the whole response as text then as a tree, as done for single
+ * resources</li>
+ * <li>with the streaming {@link JsonListReader} of the lookups</li>
+ * <li>with the streaming parser of Jackson 2, also on the classpath</li>
+ * </ul>
+ * Run with the gc profiler, see the benchmarks profile of the pom, to get the
+ * allocation rate of each.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeploymentListBenchmark {
+	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+	private static final JsonFactory JACKSON2_FACTORY = new JsonFactory();
+
+	@Param({ "10", "100", "1000", "10000", "50000" })
+	public int deploymentCount;
+
+	private byte[] payload;
+	private String lookedUpName;
+
+	@Setup
+	public void setup() throws IOException {
+		payload = Payloads.deployments(deploymentCount);
+		lookedUpName = "deployment-" + (deploymentCount - 1);
+	}
+
+	@Benchmark
+	public String treeLookup() throws IOException {
+		String responseText = IOUtils.toString(new ByteArrayInputStream(payload));
+		for (JsonNode deployment : OBJECT_MAPPER.readTree(responseText).path("data")) {
+			if (lookedUpName.equals(deployment.path("name").getTextValue())) {
+				return deployment.path("id").getTextValue();
+			}
+		}
+		return null;
+	}
+
+	@Benchmark
+	public String streamingLookup() throws IOException {
+		final String[] deploymentId = new String[1];
+		JsonListReader.read(new ByteArrayInputStream(payload), new JsonListReader.ElementHandler() {
+			@Override
+			public boolean handle(JsonParser parser) throws IOException {
+				JsonNode deployment = parser.readValueAsTree();
+				if (lookedUpName.equals(deployment.path("name").getTextValue())) {
+					deploymentId[0] = deployment.path("id").getTextValue();
+					return false;
+				}
+				return true;
+			}
+		});
+		return deploymentId[0];
+	}
+
+	@Benchmark
+	public String jackson2StreamingLookup() throws IOException {
+		com.fasterxml.jackson.core.JsonParser parser = JACKSON2_FACTORY.createParser(payload);
+		try {
+			// The elements of the data array are the objects at depth 3
+			int depth = 0;
+			String name = null;
+			String id = null;
+			JsonToken token;
+			while ((token = parser.nextToken()) != null) {
+				if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+					depth++;
+					name = null;
+					id = null;
+				} else if (token == JsonToken.END_OBJECT || token == JsonToken.END_ARRAY) {
+					if (depth == 3 && lookedUpName.equals(name)) {
+						return id;
+					}
+					depth--;
+				} else if (token == JsonToken.FIELD_NAME && depth == 3) {
+					String field = parser.getCurrentName();
+					parser.nextToken();
+					if ("name".equals(field)) {
+						name = parser.getText();
+					} else if ("id".equals(field)) {
+						id = parser.getText();
+					} else {
+						parser.skipChildren();
+					}
+				}
+			}
+			return null;
+		} finally {
+			parser.close();
+		}
+	}
+}
@@ -0,0 +1,110 @@
+package org.mule.tools.mmc.rest;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+
+/**
+ * Compares a JMH result file, as written by the benchmarks profile, against
+ * a baseline result file. A benchmark regressed when its score or its
+ * allocation per operation (gc.alloc.rate.norm) is worse than its baseline by
+ * more than the allowed regression, a better score being a higher one in
+ * throughput mode and a lower one in the other modes. Benchmarks missing from
+ * the result, as when a subset is run with -Djmh.include, are not checked.
+ *
+ * Arguments: result file, baseline file, then optionally the allowed
+ * regression (0.25 for 25%).
+ */
+public class JmhBaselineCheck {
+
+	static final double DEFAULT_MAX_REGRESSION = 0.25;
+
+	private static final String THROUGHPUT = "thrpt";
+	private static final String ALLOCATION = "\u00b7gc.alloc.rate.norm";
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 2) {
+			System.err.println("Usage: JmhBaselineCheck <result file> <baseline file> [<max regression>]");
+			System.exit(2);
+		}
+		Map<String, JsonNode> result = read(new File(args[0]));
+		Map<String, JsonNode> baseline = read(new File(args[1]));
+		double maxRegression = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_MAX_REGRESSION;
+		List<String> regressions = compare(result, baseline, maxRegression);
+		if (!regressions.isEmpty()) {
+			System.err.println("JMH benchmarks regressed past " + Math.round(maxRegression * 100) + "% of " + args[1] + ":");
+			for (String regression : regressions) {
+				System.err.println("  " + regression);
+			}
+			System.exit(1);
+		}
+		System.out.println("No JMH regression past " + Math.round(maxRegression * 100) + "% of " + args[1]);
+	}
+
+	/**
+	 * Reads a JMH result file, indexing its benchmarks by name and parameters
+	 */
+	static Map<String, JsonNode> read(File file) throws IOException {
+		Map<String, JsonNode> benchmarks = new LinkedHashMap<String, JsonNode>();
+		for (JsonNode benchmark : new ObjectMapper().readTree(file)) {
+			benchmarks.put(key(benchmark), benchmark);
+		}
+		return benchmarks;
+	}
+
+	static String key(JsonNode benchmark) {
+		StringBuilder key = new StringBuilder(benchmark.path("benchmark").getTextValue());
+		JsonNode params = benchmark.path("params");
+		String separator = "(";
+		for (Iterator<String> names = params.getFieldNames(); names.hasNext(); separator = ", ") {
+			String name = names.next();
+			key.append(separator).append(name).append('=').append(params.path(name).asText());
+		}
+		return params.size() == 0 ? key.toString() : key.append(')').toString();
+	}
+
+	/**
+	 * Returns the benchmarks of the result worse than their baseline by more
+	 * than the allowed regression
+	 */
+	static List<String> compare(Map<String, JsonNode> result, Map<String, JsonNode> baseline, double maxRegression) {
+		List<String> regressions = new ArrayList<String>();
+		for (Map.Entry<String, JsonNode> entry : baseline.entrySet()) {
+			JsonNode benchmark = result.get(entry.getKey());
+			if (benchmark == null) {
+				continue;
+			}
+			JsonNode expected = entry.getValue();
+			double score = benchmark.path("primaryMetric").path("score").asDouble();
+			double expectedScore = expected.path("primaryMetric").path("score").asDouble();
+			String unit = expected.path("primaryMetric").path("scoreUnit").asText();
+			boolean regressed = THROUGHPUT.equals(expected.path("mode").asText())
+					? score < expectedScore * (1 - maxRegression)
+					: score > expectedScore * (1 + maxRegression);
+			if (regressed) {
+				regressions.add(entry.getKey() + " : " + format(score) + " " + unit + " against " + format(expectedScore) + " in the baseline");
+			}
+			JsonNode allocation = benchmark.path("secondaryMetrics").path(ALLOCATION);
+			JsonNode expectedAllocation = expected.path("secondaryMetrics").path(ALLOCATION);
+			if (!allocation.isMissingNode() && !expectedAllocation.isMissingNode()
+					&& allocation.path("score").asDouble() > expectedAllocation.path("score").asDouble() * (1 + maxRegression)) {
+				regressions.add(entry.getKey() + " : " + format(allocation.path("score").asDouble()) + " B/op allocated against "
+						+ format(expectedAllocation.path("score").asDouble()) + " in the baseline");
+			}
+		}
+		Collections.sort(regressions);
+		return regressions;
+	}
+
+	private static String format(double value) {
+		return String.format("%.3f", value);
+	}
+}
@@ -0,0 +1,52 @@
+package org.mule.tools.mmc.rest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.codehaus.jackson.JsonEncoding;
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonGenerator;
+
+/**
+ * Builds listings shaped like those of the MMC, for the benchmarks
+ */
+class Payloads {
+
+	private Payloads() {
+	}
+
+	/**
+	 * Returns a /deployments listing of the given number of deployments,
+	 * named deployment-0 to deployment-(count - 1)
+	 */
+	static byte[] deployments(int count) throws IOException {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		JsonGenerator generator = new JsonFactory().createJsonGenerator(outputStream, JsonEncoding.UTF8);
+		generator.writeStartObject();
+		generator.writeNumberField("total", count);
+		generator.writeArrayFieldStart("data");
+		for (int i = 0; i < count; i++) {
+			String id = "local$" + String.format("%08x-0000-4000-8000-%012x", i, i);
+			generator.writeStartObject();
+			generator.writeStringField("name", "deployment-" + i);
+			generator.writeStringField("id", id);
+			generator.writeStringField("href", "http://mmc:8080/mmc/api/deployments/" + id);
+			generator.writeStringField("status", "DEPLOYED");
+			generator.writeBooleanField("reconciled", true);
+			generator.writeStringField("lastModified", "2014-05-12T10:15:30.000Z");
+			generator.writeArrayFieldStart("applications");
+			generator.writeString("local$" + String.format("%08x-0000-4000-9000-%012x", i, i));
+			generator.writeEndArray();
+			generator.writeArrayFieldStart("servers");
+			generator.writeString("local$" + String.format("%08x-0000-4000-a000-%012x", i % 20, i % 20));
+			generator.writeEndArray();
+			generator.writeArrayFieldStart("clusters");
+			generator.writeEndArray();
+			generator.writeEndObject();
+		}
+		generator.writeEndArray();
+		generator.writeEndObject();
+		generator.close();
+		return outputStream.toByteArray();
+	}
+}
@@ -0,0 +1,143 @@
+package org.mule.tools.maven.plugin;
+
+import java.io.File;
+import java.net.URL;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.mule.tools.mmc.rest.DeploymentWatcher;
+import org.mule.tools.mmc.rest.MuleRest;
+
+/**
+ * Uploads and deploys all the Mule applications found in a directory or
+ * matching a file pattern, through a single MMC session. The name and the
+ * version of each application are taken from its file name, the application is
+ * deployed under its name.
+ *
+ * @aggregator
+ * @goal batch-deploy
+ * @phase deploy
+ * @requiresDirectInvocation true
+ * @requiresDependencyResolution runtime
+ * @requiresProject false
+ */
+public class BatchDeploy extends Deploy {
+
+	/**
+	 * Directory containing the Mule applications (.zip files) to deploy, or
+	 * pattern of their paths where "*" matches any part of a file name
+	 *
+	 * @parameter property="muleAppFiles" default-value="${muleAppFiles}"
+	 * @required
+	 */
+	protected String muleAppFiles;
+
+	/**
+	 * Maximum number of deployment steps (lookups, uploads, deployments) run
+	 * at the same time over all the applications, and so of applications
+	 * uploaded at the same time
+	 *
+	 * @parameter property="batchConcurrency" default-value="4"
+	 */
+	protected int batchConcurrency = 4;
+
+	@Override
+	public void execute() throws MojoExecutionException, MojoFailureException {
+		if (skip) {
+			getLog().info("Skipping execution.");
+			return;
+		}
+		_startDeadline();
+
+		List<File> files;
+		try {
+			files = FileFinder.findAll(this.muleAppFiles, ".zip");
+		} catch (Exception e) {
+			throw new MojoFailureException(e.getMessage());
+		}
+
+		if (this.mmcUsername == null || this.mmcPassword == null) {
+			throw new MojoFailureException("mmcUsername and/or mmcPassword not set.");
+		}
+		URL mmcApiUrl = getMmcApiUrl();
+		List<String> targetDeploymentServers = _getTargetDeploymentServers();
+		String timestampVersion = this.useTimestampVersion ? new SimpleDateFormat(timestampPattern).format(Calendar.getInstance().getTime()) : null;
+
+		_logger.info("___MULE APPLICATIONS BATCH DEPLOYMENT SUMMARY___");
+		for (File file : files) {
+			_logger.info("> Artifact to be deployed : \"" + file.getAbsolutePath() + "\"");
+		}
+		for (String targetDeploymentServer : targetDeploymentServers) {
+			_logger.info("> Target group,server or cluster : \"" + targetDeploymentServer + "\"");
+		}
+
+		MuleRest muleRest = null;
+		DeploymentWatcher deploymentWatcher = null;
+		ExecutorService executorService = null;
+		try {
+			List<MuleFileInfo> muleFileInfos = new ArrayList<MuleFileInfo>();
+			for (File file : files) {
+				MuleFileInfo muleFileInfo = MuleFileInfo.parseFromFile(file.getName());
+				if (timestampVersion != null) {
+					muleFileInfo.appVersion = timestampVersion;
+				}
+				if (StringUtils.isEmpty(muleFileInfo.appVersion)) {
+					throw new IllegalArgumentException("Unable to find the version of the Mule application in file name \"" + file.getName() + "\"");
+				}
+				muleFileInfos.add(muleFileInfo);
+			}
+
+			muleRest = _createMuleRest(this.mmcUsername, this.mmcPassword, mmcApiUrl);
+			deploymentWatcher = _createDeploymentWatcher(muleRest, files.size() * _getDeploymentTargets("", targetDeploymentServers).size());
+			// The steps of all the applications share the threads
+			executorService = _createExecutorService(Math.max(1, this.batchConcurrency));
+			List<DeploymentSteps> deploymentSteps = new ArrayList<DeploymentSteps>();
+			for (int i = 0; i < files.size(); i++) {
+				MuleFileInfo muleFileInfo = muleFileInfos.get(i);
+				deploymentSteps.add(_scheduleUploadAndDeploy(executorService, muleRest, files.get(i), muleFileInfo.appName, muleFileInfo.appVersion, muleFileInfo.appName, targetDeploymentServers, deploymentWatcher));
+			}
+
+			List<String> failures = new ArrayList<String>();
+			for (DeploymentSteps steps : deploymentSteps) {
+				String fileName = steps.muleAppFile.getName();
+				try {
+					_awaitUploadAndDeploy(steps);
+					_logger.info("> \"" + fileName + "\" : done");
+				} catch (InterruptedException e) {
+					throw e;
+				} catch (Exception e) {
+					_logger.error("> \"" + fileName + "\" : " + e);
+					failures.add("\"" + fileName + "\" (" + e + ")");
+				}
+			}
+			if (!failures.isEmpty()) {
+				throw new MojoFailureException("Error in attempting to deploy " + failures.size() + " of " + files.size() + " archives: " + StringUtils.join(failures, ", "));
+			}
+		} catch (MojoFailureException e) {
+			throw e;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MojoFailureException("Interrupted while deploying archives", e);
+		} catch (Exception e) {
+			throw new MojoFailureException("Error in attempting to deploy archives: " + e.toString(), e);
+		} finally {
+			if (executorService != null) {
+				executorService.shutdownNow();
+			}
+			if (deploymentWatcher != null) {
+				deploymentWatcher.close();
+			}
+			if (muleRest != null) {
+				_logSessionMetrics(muleRest);
+				muleRest.close();
+			}
+		}
+	}
+
+}
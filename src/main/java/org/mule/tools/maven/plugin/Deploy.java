@@ -1,18 +1,46 @@
 package org.mule.tools.maven.plugin;
 
 import java.io.File;
+import java.io.IOException;
 import java.net.URL;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
+import org.mule.tools.mmc.rest.ArchiveFingerprints;
+import org.mule.tools.mmc.rest.CircuitBreaker;
+import org.mule.tools.mmc.rest.ConnectionSettings;
+import org.mule.tools.mmc.rest.CxfTransport;
+import org.mule.tools.mmc.rest.Deadline;
+import org.mule.tools.mmc.rest.DeploymentPlan;
 import org.mule.tools.mmc.rest.DeploymentState;
 import org.mule.tools.mmc.rest.DeploymentStatus;
+import org.mule.tools.mmc.rest.DeploymentWatcher;
+import org.mule.tools.mmc.rest.JdkHttpTransport;
 import org.mule.tools.mmc.rest.MuleRest;
+import org.mule.tools.mmc.rest.PollingStrategy;
+import org.mule.tools.mmc.rest.RequestMetrics;
+import org.mule.tools.mmc.rest.RetryMetrics;
+import org.mule.tools.mmc.rest.RetryPolicy;
+import org.mule.tools.mmc.rest.TopologyCache;
+import org.mule.tools.mmc.rest.Transport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.impl.StaticLoggerBinder;
@@ -34,7 +62,12 @@ public class Deploy extends AbstractMojo {
 	public int DEPLOYMENT_TIMEOUT_MS = 30000;
 	public int DEPLOYMENT_WAIT_SLEEP_MS = 500;
 
-	private Logger _logger;
+	protected Logger _logger;
+
+	/**
+	 * Deadline of the execution, see executionTimeoutMs
+	 */
+	private volatile Deadline deadline = Deadline.NONE;
 
 	/**
 	 * The output directory coming from the pom.xml of the Mule app. This
@@ -160,6 +193,47 @@ public class Deploy extends AbstractMojo {
 	 */
 	protected String targetDeploymentServer;
 
+	/**
+	 * Comma separated names of servers, server groups or clusters where to
+	 * deploy the Mule application, in addition to targetDeploymentServer. The
+	 * application is uploaded once and then deployed to all the targets, in a
+	 * single deployment holding them all unless deploymentPerTarget is set.
+	 * 
+	 * @parameter property="targetDeploymentServers"
+	 *            default-value="${targetDeploymentServers}"
+	 */
+	protected String targetDeploymentServers;
+
+	/**
+	 * If true and there are several targets, the application is deployed to
+	 * each target in parallel in a deployment of its own, named after the
+	 * deployment name followed by "-" and the target name. An existing
+	 * deployment bearing the deployment name is then left as it is.
+	 * 
+	 * @parameter property="deploymentPerTarget" default-value="false"
+	 */
+	protected boolean deploymentPerTarget = false;
+
+	/**
+	 * Maximum number of targets deployed to at the same time, when each has a
+	 * deployment of its own
+	 * 
+	 * @parameter property="maxParallelDeployments" default-value="4"
+	 */
+	protected int maxParallelDeployments = 4;
+
+	/**
+	 * If true, each target (and each application of batch-deploy) is deployed
+	 * on its own virtual thread instead of a bounded pool of platform threads,
+	 * so maxParallelDeployments and batchConcurrency don't apply. The MMC
+	 * still receives at most maxConcurrentRequests requests at the same time.
+	 * Requires Maven to run on Java 21 or later, platform threads are used
+	 * otherwise.
+	 * 
+	 * @parameter property="virtualThreads" default-value="false"
+	 */
+	protected boolean virtualThreads = false;
+
 	/**
 	 * Time to wait for application to be deployed before throwing exception
 	 * 
@@ -168,6 +242,207 @@ public class Deploy extends AbstractMojo {
 	 */
 	protected int deploymentTimeoutMs = DEPLOYMENT_TIMEOUT_MS;
 
+	/**
+	 * Maximum duration of the whole execution: lookups, upload, deployment
+	 * requests, retries and wait for the deployment, 0 for no limit. The
+	 * timeouts of the MMC requests are shortened to the time left, and an
+	 * archive still being uploaded is aborted.
+	 * 
+	 * @parameter property="executionTimeoutMs" default-value="0"
+	 */
+	protected long executionTimeoutMs = 0;
+
+	/**
+	 * How the state of a deployment in progress is polled: "backoff" probes
+	 * quickly first then less and less often, and stops once the MMC reports
+	 * the deployment as reconciled, "fixed" probes every 500ms until the
+	 * deployment is over
+	 * 
+	 * @parameter property="deploymentPolling" default-value="backoff"
+	 */
+	protected String deploymentPolling = "backoff";
+
+	/**
+	 * Delay before the second probe of the deployment state with the backoff
+	 * polling
+	 * 
+	 * @parameter property="deploymentPollInitialDelayMs" default-value="200"
+	 */
+	protected long deploymentPollInitialDelayMs = PollingStrategy.DEFAULT_INITIAL_DELAY_MS;
+
+	/**
+	 * Maximum delay between two probes of the deployment state with the
+	 * backoff polling
+	 * 
+	 * @parameter property="deploymentPollMaxDelayMs" default-value="5000"
+	 */
+	protected long deploymentPollMaxDelayMs = PollingStrategy.DEFAULT_MAX_DELAY_MS;
+
+	/**
+	 * Factor applied to the delay after each probe of the deployment state
+	 * with the backoff polling
+	 * 
+	 * @parameter property="deploymentPollMultiplier" default-value="2"
+	 */
+	protected double deploymentPollMultiplier = PollingStrategy.DEFAULT_MULTIPLIER;
+
+	/**
+	 * Part of each delay, between 0 and 1, which is randomly cut off with the
+	 * backoff polling
+	 * 
+	 * @parameter property="deploymentPollJitter" default-value="0.2"
+	 */
+	protected double deploymentPollJitter = PollingStrategy.DEFAULT_JITTER;
+
+	/**
+	 * If true and several deployments are in progress at the same time, their
+	 * states are all polled with a single request listing the deployments
+	 * 
+	 * @parameter property="watchDeployments" default-value="true"
+	 */
+	protected boolean watchDeployments = true;
+
+	/**
+	 * Maximum number of requests sent at the same time to the MMC, each on a
+	 * connection of its own. Idle connections are kept alive by the JDK, at
+	 * most 5 of them unless Maven is run with a higher -Dhttp.maxConnections
+	 * (in MAVEN_OPTS).
+	 * 
+	 * @parameter property="maxConcurrentRequests" default-value="5"
+	 */
+	protected int maxConcurrentRequests = ConnectionSettings.DEFAULT_MAX_CONCURRENT_REQUESTS;
+
+	/**
+	 * Time after which an unused MMC client object is discarded. The
+	 * connection it used is closed by the keep-alive cache of the JDK
+	 * 
+	 * @parameter property="idleClientTimeoutMs" default-value="30000"
+	 */
+	protected long idleClientTimeoutMs = ConnectionSettings.DEFAULT_IDLE_CLIENT_TIMEOUT_MS;
+
+	/**
+	 * Time to wait for a connection to the MMC to be established
+	 * 
+	 * @parameter property="connectTimeoutMs" default-value="30000"
+	 */
+	protected long connectTimeoutMs = ConnectionSettings.DEFAULT_CONNECT_TIMEOUT_MS;
+
+	/**
+	 * Time to wait for the MMC to answer a request
+	 * 
+	 * @parameter property="receiveTimeoutMs" default-value="1000000"
+	 */
+	protected long receiveTimeoutMs = ConnectionSettings.DEFAULT_RECEIVE_TIMEOUT_MS;
+
+	/**
+	 * HTTP client talking to the MMC: "cxf" uses the CXF web client, "jdk"
+	 * the lighter HTTP client of the JDK
+	 * 
+	 * @parameter property="httpClient" default-value="cxf"
+	 */
+	protected String httpClient = "cxf";
+
+	/**
+	 * Maximum number of attempts of a MMC request failing with a transient
+	 * error (5xx response, timeout, refused or reset connection), the first
+	 * one included
+	 * 
+	 * @parameter property="maxRequestAttempts" default-value="3"
+	 */
+	protected int maxRequestAttempts = RetryPolicy.DEFAULT_MAX_ATTEMPTS;
+
+	/**
+	 * Delay before the first retry of a MMC request, doubled at each retry
+	 * 
+	 * @parameter property="retryInitialBackoffMs" default-value="250"
+	 */
+	protected long retryInitialBackoffMs = RetryPolicy.DEFAULT_INITIAL_BACKOFF_MS;
+
+	/**
+	 * Maximum delay between two attempts of a MMC request
+	 * 
+	 * @parameter property="retryMaxBackoffMs" default-value="4000"
+	 */
+	protected long retryMaxBackoffMs = RetryPolicy.DEFAULT_MAX_BACKOFF_MS;
+
+	/**
+	 * Time after the first attempt of a MMC request past which it is not
+	 * retried any more
+	 * 
+	 * @parameter property="retryBudgetMs" default-value="15000"
+	 */
+	protected long retryBudgetMs = RetryPolicy.DEFAULT_RETRY_BUDGET_MS;
+
+	/**
+	 * Number of consecutive failed or slow MMC requests after which the MMC is
+	 * considered unavailable and further requests fail at once, 0 to disable
+	 * 
+	 * @parameter property="circuitBreakerFailureThreshold" default-value="5"
+	 */
+	protected int circuitBreakerFailureThreshold = CircuitBreaker.DEFAULT_FAILURE_THRESHOLD;
+
+	/**
+	 * Duration past which a MMC request counts as a failure for the circuit
+	 * breaker, 0 to ignore durations. Archive uploads are not timed.
+	 * 
+	 * @parameter property="circuitBreakerSlowCallMs" default-value="60000"
+	 */
+	protected long circuitBreakerSlowCallMs = CircuitBreaker.DEFAULT_SLOW_CALL_THRESHOLD_MS;
+
+	/**
+	 * Time during which MMC requests fail at once once the MMC is considered
+	 * unavailable, before a single request probes it again
+	 * 
+	 * @parameter property="circuitBreakerOpenMs" default-value="30000"
+	 */
+	protected long circuitBreakerOpenMs = CircuitBreaker.DEFAULT_OPEN_DURATION_MS;
+
+	/**
+	 * Time during which the server group, server and cluster names fetched
+	 * from the MMC are reused before being fetched again
+	 * 
+	 * @parameter property="topologyCacheTtlMs" default-value="60000"
+	 */
+	protected long topologyCacheTtlMs = TopologyCache.DEFAULT_TTL_MS;
+
+	/**
+	 * If true, the repository, server group, server, cluster and deployment
+	 * listings are requested all at once when the MMC session opens, instead
+	 * of one after the other when first needed
+	 * 
+	 * @parameter property="prefetchInventory" default-value="false"
+	 */
+	protected boolean prefetchInventory = false;
+
+	/**
+	 * If true, an archive identical to one already uploaded to the repository
+	 * (and still there) is not uploaded again, the version already uploaded is
+	 * deployed instead. Each archive is then hashed with SHA-256 and its
+	 * fingerprint recorded in {@link #archiveFingerprintsFile}.
+	 * 
+	 * @parameter property="skipIdenticalUpload" default-value="false"
+	 */
+	protected boolean skipIdenticalUpload = false;
+
+	/**
+	 * File where the fingerprints of the uploaded archives are recorded
+	 * 
+	 * @parameter property="archiveFingerprintsFile"
+	 *            default-value="${user.home}/.m2/mule-mmc-rest-plugin/archive-fingerprints.properties"
+	 */
+	protected File archiveFingerprintsFile;
+
+	/**
+	 * File where the figures of the requests sent to the MMC are written as
+	 * JSON at the end of the execution: by endpoint, the number of requests,
+	 * their statuses, retries, bytes sent and received and a histogram of
+	 * their latencies
+	 * 
+	 * @parameter property="requestMetricsFile"
+	 *            default-value="${project.build.directory}/mmc-request-metrics.json"
+	 */
+	protected File requestMetricsFile;
+
 	/**
 	 * If true an exception fail be thrown if the deployment fails  
 	 * 
@@ -201,6 +476,8 @@ public class Deploy extends AbstractMojo {
 	public void execute() throws MojoExecutionException, MojoFailureException {
 
 		if (!skip) {			
+			_startDeadline();
+
 			// Mule zip file to use
 			File muleAppFile = this.getMuleAppFile();
 	
@@ -229,73 +506,334 @@ public class Deploy extends AbstractMojo {
 			// URL of the MMC
 			URL mmcApiUrl = getMmcApiUrl();
 	
-			// Target deployment server
-			String targetDeploymentServer = this.targetDeploymentServer;
+			// Target deployment servers
+			List<String> targetDeploymentServers = _getTargetDeploymentServers();
 	
 			// Deployment timeout
 			int deploymentTimeoutMs = this.deploymentTimeoutMs;
 	
-			_logDeploymentSummary(muleAppFile.getAbsolutePath(), mmcApiUrl.getPath(), mmcUsername, mmcPassword, repositoryAppName, repositoryAppVersion, deploymentName, targetDeploymentServer, deploymentTimeoutMs);
+			_logDeploymentSummary(muleAppFile.getAbsolutePath(), mmcApiUrl.getPath(), mmcUsername, mmcPassword, repositoryAppName, repositoryAppVersion, deploymentName, targetDeploymentServers, deploymentTimeoutMs);
 	
+			MuleRest muleRest = null;
+			DeploymentWatcher deploymentWatcher = null;
 			try {
-				MuleRest muleRest = _createMuleRest(mmcUsername, mmcPassword, mmcApiUrl);
+				muleRest = _createMuleRest(mmcUsername, mmcPassword, mmcApiUrl);
+				deploymentWatcher = _createDeploymentWatcher(muleRest, _getDeploymentTargets(deploymentName, targetDeploymentServers).size());
 	
-				String versionId = muleRest.restfullyGetApplicationId(repositoryAppName, repositoryAppVersion);
-				
-				if (versionId == null) {
-					versionId = muleRest.restfullyUploadRepository(repositoryAppName, repositoryAppVersion, muleAppFile);
-				}
-				if (targetDeploymentServer != null) {
-					String deploymentId = muleRest.restfullyCreateDeployment(targetDeploymentServer, deploymentName, versionId);
-					if (deploymentId != null) {
-						muleRest.restfullyDeployDeploymentById(deploymentId);
-			
-						DeploymentState deploymentState = null;
-			
-						long startTime = System.currentTimeMillis();
-			
-						// Wait for application to be deployed
-						while (true) {
-							deploymentState = muleRest.restfullyGetDeploymentState(deploymentId);
-							if (deploymentState.status == DeploymentStatus.IN_PROGRESS) {
-								long elaspedTime = System.currentTimeMillis() - startTime;
-			
-								if (elaspedTime > this.deploymentTimeoutMs) {
-									throw new TimeoutException("Timeout of \"" + deploymentTimeoutMs + "ms\" occurred while waiting for Mule application \"" + versionId + "\" to be deployed");
-								}
-			
-								Thread.sleep(DEPLOYMENT_WAIT_SLEEP_MS);
-								continue;
-							} else if (deploymentState.status == DeploymentStatus.DEPLOYED) {
-								_logger.info("Application \"" + muleAppFile.getAbsolutePath() + "\" successfully deployed in deployment \"" + deploymentName + "\".");
-								break;
-							} else {
-								String msg = "Failed to deploy application with deployment id \"" + deploymentId + "\", unexpected deployment state \"" + deploymentState.status + "\"";
-								if (throwIfDeployFails) {
-									throw new Exception(msg);							
-								}
-								_logger.warn(msg);
-								break;
-							}
-						}
-					}
-					else {
-						_logger.info("Application \"" + muleAppFile.getAbsolutePath() + "\" already deployed in deployment \"" + deploymentName + "\".");						
-					}
-				}
+				_uploadAndDeploy(muleRest, muleAppFile, repositoryAppName, repositoryAppVersion, deploymentName, targetDeploymentServers, deploymentWatcher);
+			} catch (MojoFailureException e) {
+				throw e;
 			} catch (Exception e) {
 				throw new MojoFailureException("Error in attempting to deploy archive: " + e.toString(), e);
+			} finally {
+				if (deploymentWatcher != null) {
+					deploymentWatcher.close();
+				}
+				if (muleRest != null) {
+					_logSessionMetrics(muleRest);
+					muleRest.close();
+				}
 			}
 		} else {
 			getLog().info("Skipping execution.");
 		}
 	}
 
+	/**
+	 * Uploads a Mule application to the repository, unless this version is
+	 * already there, then deploys it to the targets, see
+	 * {@link #_scheduleUploadAndDeploy}. With a deployment per target, the
+	 * targets are deployed to in parallel, up to maxParallelDeployments at a
+	 * time.
+	 * 
+	 * @param deploymentWatcher
+	 *            Watcher tracking the deployments, or null to poll each one
+	 *            on its own
+	 */
+	protected void _uploadAndDeploy(MuleRest muleRest, File muleAppFile, String repositoryAppName, String repositoryAppVersion, String deploymentName, List<String> targets, DeploymentWatcher deploymentWatcher) throws Exception {
+		int deploymentCount = _getDeploymentTargets(deploymentName, targets).size();
+		// One more thread for the upload, running along the deployments
+		ExecutorService executorService = _createExecutorService(Math.min(Math.max(1, this.maxParallelDeployments), Math.max(1, deploymentCount)) + 1);
+		try {
+			_awaitUploadAndDeploy(_scheduleUploadAndDeploy(executorService, muleRest, muleAppFile, repositoryAppName, repositoryAppVersion, deploymentName, targets, deploymentWatcher));
+		} finally {
+			executorService.shutdownNow();
+		}
+	}
+
+	/**
+	 * Steps of the upload and the deployments of an application
+	 */
+	protected static class DeploymentSteps {
+		final File muleAppFile;
+		final StepScheduler stepScheduler;
+		final StepScheduler.Step<String> upload;
+		final Map<String, StepScheduler.Step<DeploymentStatus>> deployments;
+
+		DeploymentSteps(File muleAppFile, StepScheduler stepScheduler, StepScheduler.Step<String> upload, Map<String, StepScheduler.Step<DeploymentStatus>> deployments) {
+			this.muleAppFile = muleAppFile;
+			this.stepScheduler = stepScheduler;
+			this.upload = upload;
+			this.deployments = deployments;
+		}
+	}
+
+	/**
+	 * Starts uploading a Mule application and deploying it to the targets.
+	 * 
+	 * The steps are run as a dependency graph by the given executor: the
+	 * targets are resolved and their deployments looked up while the
+	 * application is uploaded. All the deployments are attempted even if some
+	 * fail, the failures being reported together by
+	 * {@link #_awaitUploadAndDeploy}.
+	 */
+	protected DeploymentSteps _scheduleUploadAndDeploy(Executor executor, final MuleRest muleRest, final File muleAppFile, final String repositoryAppName, final String repositoryAppVersion, String deploymentName, List<String> targets, final DeploymentWatcher deploymentWatcher) {
+		Map<String, List<String>> deploymentTargets = _getDeploymentTargets(deploymentName, targets);
+		StepScheduler stepScheduler = new StepScheduler(executor);
+		final StepScheduler.Step<String> versionLookup = stepScheduler.add("lookup of " + repositoryAppName + " " + repositoryAppVersion, new StepScheduler.Task<String>() {
+			@Override
+			public String run() throws Exception {
+				return muleRest.restfullyGetApplicationId(repositoryAppName, repositoryAppVersion);
+			}
+		});
+		final StepScheduler.Step<String> upload = stepScheduler.add("upload of " + muleAppFile.getName(), new StepScheduler.Task<String>() {
+			@Override
+			public String run() throws Exception {
+				String versionId = versionLookup.get();
+				return versionId != null ? versionId : muleRest.restfullyUploadRepository(repositoryAppName, repositoryAppVersion, muleAppFile);
+			}
+		}, versionLookup);
+		Map<String, StepScheduler.Step<DeploymentStatus>> deployments = new LinkedHashMap<String, StepScheduler.Step<DeploymentStatus>>();
+		for (Map.Entry<String, List<String>> deploymentTarget : deploymentTargets.entrySet()) {
+			final String targetDeploymentName = deploymentTarget.getKey();
+			final List<String> targetNames = deploymentTarget.getValue();
+			final String target = StringUtils.join(targetNames, ", ");
+			final StepScheduler.Step<DeploymentPlan> preparation = stepScheduler.add("preparation of " + target, new StepScheduler.Task<DeploymentPlan>() {
+				@Override
+				public DeploymentPlan run() throws Exception {
+					return muleRest.restfullyPrepareDeployment(targetNames, targetDeploymentName);
+				}
+			});
+			final StepScheduler.Step<String> creation = stepScheduler.add("creation on " + target, new StepScheduler.Task<String>() {
+				@Override
+				public String run() throws Exception {
+					return _createDeployment(muleRest, preparation.get(), upload.get(), muleAppFile);
+				}
+			}, preparation, upload);
+			deployments.put(target, stepScheduler.add("deployment on " + target, new StepScheduler.Task<DeploymentStatus>() {
+				@Override
+				public DeploymentStatus run() throws Exception {
+					String deploymentId = creation.get();
+					return deploymentId == null ? null : _awaitDeployment(muleRest, deploymentId, targetDeploymentName, upload.get(), muleAppFile, deploymentWatcher);
+				}
+			}, creation));
+		}
+		return new DeploymentSteps(muleAppFile, stepScheduler, upload, deployments);
+	}
+
+	/**
+	 * Waits for the steps of an application to be over, logs the duration of
+	 * each step and reports the failures
+	 */
+	protected void _awaitUploadAndDeploy(DeploymentSteps deploymentSteps) throws Exception {
+		try {
+			deploymentSteps.stepScheduler.awaitAll();
+		} finally {
+			_logger.info("___DEPLOYMENT STEPS OF " + deploymentSteps.muleAppFile.getName() + "___");
+			for (String timing : deploymentSteps.stepScheduler.getTimings()) {
+				_logger.info(timing);
+			}
+		}
+
+		// Without the application, no target could be deployed to
+		if (deploymentSteps.upload.getFailure() != null) {
+			_rethrow(deploymentSteps.upload.getFailure());
+		}
+		Map<String, StepScheduler.Step<DeploymentStatus>> deployments = deploymentSteps.deployments;
+		if (deployments.size() == 1) {
+			Throwable failure = deployments.values().iterator().next().getFailure();
+			if (failure != null) {
+				_rethrow(failure);
+			}
+			return;
+		}
+		List<String> failures = new ArrayList<String>();
+		for (Map.Entry<String, StepScheduler.Step<DeploymentStatus>> deployment : deployments.entrySet()) {
+			String target = deployment.getKey();
+			Throwable failure = deployment.getValue().getFailure();
+			if (failure == null) {
+				DeploymentStatus status = deployment.getValue().get();
+				_logger.info("> " + _getStrRepr(target) + " : " + (status == null ? "already deployed" : status));
+			} else {
+				_logger.error("> " + _getStrRepr(target) + " : " + failure);
+				failures.add(_getStrRepr(target) + " (" + failure + ")");
+			}
+		}
+		if (!failures.isEmpty()) {
+			throw new MojoFailureException("Error in attempting to deploy archive on " + failures.size() + " of " + deployments.size() + " targets: " + StringUtils.join(failures, ", "));
+		}
+	}
+
+	private static void _rethrow(Throwable failure) throws Exception {
+		if (failure instanceof Error) {
+			throw (Error) failure;
+		}
+		throw (Exception) failure;
+	}
+
+	/**
+	 * Returns the targets given by targetDeploymentServer and
+	 * targetDeploymentServers, without duplicates
+	 */
+	protected List<String> _getTargetDeploymentServers() {
+		Set<String> targets = new LinkedHashSet<String>();
+		if (!StringUtils.isEmpty(this.targetDeploymentServer)) {
+			targets.add(this.targetDeploymentServer);
+		}
+		if (!StringUtils.isEmpty(this.targetDeploymentServers)) {
+			for (String target : StringUtils.split(this.targetDeploymentServers, ',')) {
+				if (!StringUtils.isBlank(target)) {
+					targets.add(target.trim());
+				}
+			}
+		}
+		return new ArrayList<String>(targets);
+	}
+
+	/**
+	 * Returns the targets of each deployment by deployment name: a single
+	 * deployment holding all the targets, or with deploymentPerTarget and
+	 * several targets, a deployment per target named after it
+	 */
+	protected Map<String, List<String>> _getDeploymentTargets(String deploymentName, List<String> targets) {
+		Map<String, List<String>> deploymentTargets = new LinkedHashMap<String, List<String>>();
+		if (this.deploymentPerTarget && targets.size() > 1) {
+			for (String target : targets) {
+				deploymentTargets.put(deploymentName + "-" + target, Collections.singletonList(target));
+			}
+		} else if (!targets.isEmpty()) {
+			deploymentTargets.put(deploymentName, targets);
+		}
+		return deploymentTargets;
+	}
+
+	/**
+	 * Creates the executor running the steps of a deployment
+	 * 
+	 * @param threadCount
+	 *            Number of platform threads, ignored with virtual threads
+	 */
+	protected ExecutorService _createExecutorService(int threadCount) {
+		if (this.virtualThreads) {
+			if (VirtualThreads.isSupported()) {
+				return VirtualThreads.newVirtualThreadPerTaskExecutor();
+			}
+			_logger.warn("Virtual threads require Java 21 or later, running " + System.getProperty("java.version") + ": using " + threadCount + " platform thread(s)");
+		}
+		return Executors.newFixedThreadPool(threadCount);
+	}
+
+	/**
+	 * Creates the watcher tracking the deployments of an execution with a
+	 * single polling request, or returns null if each deployment is polled on
+	 * its own, as done when there is only one
+	 */
+	protected DeploymentWatcher _createDeploymentWatcher(MuleRest muleRest, int deploymentCount) {
+		if (!this.watchDeployments || deploymentCount <= 1) {
+			return null;
+		}
+		return new DeploymentWatcher(muleRest, _createPollingStrategy());
+	}
+
+	/**
+	 * Creates or updates the deployment of a plan and starts deploying it
+	 * 
+	 * @return The id of the deployment or null if the application was already
+	 *         deployed
+	 */
+	protected String _createDeployment(MuleRest muleRest, DeploymentPlan deploymentPlan, String versionId, File muleAppFile) throws Exception {
+		String deploymentId = muleRest.restfullyCreateDeployment(deploymentPlan, versionId);
+		if (deploymentId == null) {
+			_logger.info("Application \"" + muleAppFile.getAbsolutePath() + "\" already deployed in deployment \"" + deploymentPlan.name + "\".");
+			return null;
+		}
+		muleRest.restfullyDeployDeploymentById(deploymentId);
+		return deploymentId;
+	}
+
+	/**
+	 * Waits for a deployment to finish
+	 * 
+	 * @param deploymentWatcher
+	 *            Watcher tracking the deployment, or null to poll it on its own
+	 * @return The final state of the deployment
+	 */
+	protected DeploymentStatus _awaitDeployment(MuleRest muleRest, String deploymentId, String deploymentName, String versionId, File muleAppFile, DeploymentWatcher deploymentWatcher) throws Exception {
+		// The wait is bounded by the deadline of the execution as well
+		long waitTimeoutMs = this.deadline.isBounded() ? Math.min(this.deploymentTimeoutMs, this.deadline.getRemainingMs()) : this.deploymentTimeoutMs;
+		if (deploymentWatcher != null) {
+			Future<DeploymentState> watchedState = deploymentWatcher.watch(deploymentId);
+			try {
+				return _checkDeploymentState(watchedState.get(waitTimeoutMs, TimeUnit.MILLISECONDS), deploymentId, deploymentName, muleAppFile);
+			} catch (TimeoutException e) {
+				watchedState.cancel(false);
+				throw new TimeoutException("Timeout of \"" + waitTimeoutMs + "ms\" occurred while waiting for Mule application \"" + versionId + "\" to be deployed");
+			} catch (ExecutionException e) {
+				throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+			}
+		}
+
+		DeploymentState deploymentState = null;
+		PollingStrategy pollingStrategy = _createPollingStrategy();
+
+		long startTime = System.currentTimeMillis();
+		int probes = 0;
+
+		// Wait for application to be deployed
+		while (true) {
+			deploymentState = muleRest.restfullyGetDeploymentState(deploymentId);
+			probes++;
+			if (deploymentState.status == DeploymentStatus.IN_PROGRESS && !pollingStrategy.isSettled(deploymentState)) {
+				long elaspedTime = System.currentTimeMillis() - startTime;
+
+				if (elaspedTime > waitTimeoutMs) {
+					throw new TimeoutException("Timeout of \"" + waitTimeoutMs + "ms\" occurred while waiting for Mule application \"" + versionId + "\" to be deployed");
+				}
+
+				// Do not sleep past the timeout, the last probe is done on time
+				long delayMs = pollingStrategy.getDelayMs(probes, deploymentState);
+				Thread.sleep(Math.max(1, Math.min(delayMs, waitTimeoutMs - elaspedTime + 1)));
+				continue;
+			}
+			_logger.debug("Deployment \"" + deploymentName + "\" state probed " + probes + " time(s) in " + (System.currentTimeMillis() - startTime) + "ms");
+			return _checkDeploymentState(deploymentState, deploymentId, deploymentName, muleAppFile);
+		}
+	}
+
+	private DeploymentStatus _checkDeploymentState(DeploymentState deploymentState, String deploymentId, String deploymentName, File muleAppFile) throws Exception {
+		if (deploymentState.status == DeploymentStatus.DEPLOYED) {
+			_logger.info("Application \"" + muleAppFile.getAbsolutePath() + "\" successfully deployed in deployment \"" + deploymentName + "\".");
+			return deploymentState.status;
+		}
+		// Settled by the polling strategy, the servers have caught up with the
+		// deployment
+		if (deploymentState.status == DeploymentStatus.IN_PROGRESS && deploymentState.reconciled) {
+			_logger.info("Application \"" + muleAppFile.getAbsolutePath() + "\" successfully deployed in deployment \"" + deploymentName + "\", reconciled.");
+			return DeploymentStatus.DEPLOYED;
+		}
+		String msg = "Failed to deploy application with deployment id \"" + deploymentId + "\", unexpected deployment state \"" + deploymentState.status + "\"";
+		if (throwIfDeployFails) {
+			throw new Exception(msg);
+		}
+		_logger.warn(msg);
+		return deploymentState.status;
+	}
+
 	private static String _getStrRepr(String str) {
 		return str == null ? "null" : "\"" + str + "\"";
 	}
 
-	private void _logDeploymentSummary(String muleZipFile, String mmcApiUrl, String mmcUsername, String mmcPassword, String repositoryAppName, String uploadedRepositoryVersion, String deploymentName, String targetDeploymentServer, int deploymentTimeoutMs) {
+	private void _logDeploymentSummary(String muleZipFile, String mmcApiUrl, String mmcUsername, String mmcPassword, String repositoryAppName, String uploadedRepositoryVersion, String deploymentName, List<String> targetDeploymentServers, int deploymentTimeoutMs) {
 		this._logger.info("___MULE APPLICATION DEPLOYMENT SUMMARY___");
 		this._logger.info("> Artifact to be deployed : " + (muleZipFile == null ? "null" : "\"" + muleZipFile + "\""));
 
@@ -307,13 +845,16 @@ public class Deploy extends AbstractMojo {
 		this._logger.info("> App version on the repository : " + _getStrRepr(uploadedRepositoryVersion));
 
 		this._logger.info("> Name of the deployment : " + _getStrRepr(deploymentName));
-		if (targetDeploymentServer != null) {
-			this._logger.info("> Target group,server or cluster : " + _getStrRepr(targetDeploymentServer));
+		Map<String, List<String>> deploymentTargets = _getDeploymentTargets(deploymentName, targetDeploymentServers);
+		for (Map.Entry<String, List<String>> deploymentTarget : deploymentTargets.entrySet()) {
+			for (String targetDeploymentServer : deploymentTarget.getValue()) {
+				this._logger.info("> Target group,server or cluster : " + _getStrRepr(targetDeploymentServer) + (deploymentTargets.size() > 1 ? " (deployment " + _getStrRepr(deploymentTarget.getKey()) + ")" : ""));
+			}
 		}
 		this._logger.debug("> Deployment timeout (ms) : " + deploymentTimeoutMs);
 	}
 
-	private URL getMmcApiUrl() throws MojoFailureException {
+	protected URL getMmcApiUrl() throws MojoFailureException {
 		if (StringUtils.isEmpty(this.mmcApiUrl)) {
 			throw new MojoFailureException("mmcApiUrl is not defined");
 		}
@@ -329,7 +870,97 @@ public class Deploy extends AbstractMojo {
 	}
 
 	protected MuleRest _createMuleRest(String mmcUsername, String mmcPassword, URL mmcApiUrl) {
-		return new MuleRest(mmcApiUrl, mmcUsername, mmcPassword);
+		MuleRest muleRest = new MuleRest(mmcApiUrl, _createTransport(mmcUsername, mmcPassword, mmcApiUrl));
+		muleRest.getTopologyCache().setTtlMs(this.topologyCacheTtlMs);
+		muleRest.setRetryPolicy(_createRetryPolicy());
+		muleRest.setDeadline(this.deadline);
+		muleRest.setCircuitBreaker(new CircuitBreaker("MMC at " + mmcApiUrl, this.circuitBreakerFailureThreshold, this.circuitBreakerSlowCallMs, this.circuitBreakerOpenMs));
+		if (this.skipIdenticalUpload) {
+			File fingerprintsFile = this.archiveFingerprintsFile != null ? this.archiveFingerprintsFile : new File(System.getProperty("user.home"), ".m2/mule-mmc-rest-plugin/archive-fingerprints.properties");
+			muleRest.setArchiveFingerprints(new ArchiveFingerprints(fingerprintsFile));
+		}
+		if (this.requestMetricsFile != null) {
+			muleRest.setRequestListener(new RequestMetrics());
+		}
+		if (this.prefetchInventory) {
+			muleRest.prefetchInventory();
+		}
+		return muleRest;
+	}
+
+	/**
+	 * Starts the deadline of the execution, see executionTimeoutMs
+	 */
+	protected Deadline _startDeadline() {
+		this.deadline = Deadline.after(this.executionTimeoutMs);
+		return this.deadline;
+	}
+
+	protected PollingStrategy _createPollingStrategy() {
+		if ("fixed".equalsIgnoreCase(this.deploymentPolling)) {
+			return PollingStrategy.fixed(DEPLOYMENT_WAIT_SLEEP_MS);
+		} else if ("backoff".equalsIgnoreCase(this.deploymentPolling)) {
+			return PollingStrategy.backoff(this.deploymentPollInitialDelayMs, this.deploymentPollMaxDelayMs, this.deploymentPollMultiplier, this.deploymentPollJitter);
+		}
+		throw new IllegalArgumentException("Unknown deployment polling \"" + this.deploymentPolling + "\", expected \"backoff\" or \"fixed\"");
+	}
+
+	private RetryPolicy _createRetryPolicy() {
+		RetryPolicy retryPolicy = new RetryPolicy();
+		retryPolicy.maxAttempts = Math.max(1, this.maxRequestAttempts);
+		retryPolicy.initialBackoffMs = this.retryInitialBackoffMs;
+		retryPolicy.maxBackoffMs = this.retryMaxBackoffMs;
+		retryPolicy.retryBudgetMs = this.retryBudgetMs;
+		return retryPolicy;
+	}
+
+	/**
+	 * Logs the figures of a MMC session before it is closed
+	 */
+	protected void _logSessionMetrics(MuleRest muleRest) {
+		RetryPolicy retryPolicy = muleRest.getRetryPolicy();
+		if (retryPolicy != null) {
+			RetryMetrics retryMetrics = retryPolicy.getMetrics();
+			if (retryMetrics.getTransientFailures() > 0) {
+				_logger.info("MMC requests: " + retryMetrics);
+			} else {
+				_logger.debug("MMC requests: " + retryMetrics);
+			}
+		}
+		CircuitBreaker circuitBreaker = muleRest.getCircuitBreaker();
+		if (circuitBreaker != null && circuitBreaker.getShortCircuitedCalls() > 0) {
+			_logger.warn("MMC requests short-circuited while the MMC was unavailable: " + circuitBreaker.getShortCircuitedCalls());
+		}
+		if (muleRest.getRequestListener() instanceof RequestMetrics && this.requestMetricsFile != null) {
+			RequestMetrics requestMetrics = (RequestMetrics) muleRest.getRequestListener();
+			for (RequestMetrics.EndpointMetrics endpointMetrics : requestMetrics.getEndpoints()) {
+				_logger.debug("> " + endpointMetrics);
+			}
+			try {
+				requestMetrics.writeJson(this.requestMetricsFile);
+				_logger.info("Figures of the " + requestMetrics.getRequests() + " MMC requests written to \"" + this.requestMetricsFile + "\"");
+			} catch (IOException e) {
+				_logger.warn("Unable to write the MMC request figures to \"" + this.requestMetricsFile + "\": " + e);
+			}
+		}
+	}
+
+	private Transport _createTransport(String mmcUsername, String mmcPassword, URL mmcApiUrl) {
+		if ("cxf".equalsIgnoreCase(this.httpClient)) {
+			return new CxfTransport(mmcApiUrl, mmcUsername, mmcPassword, _createConnectionSettings());
+		} else if ("jdk".equalsIgnoreCase(this.httpClient)) {
+			return new JdkHttpTransport(mmcApiUrl, mmcUsername, mmcPassword, _createConnectionSettings());
+		}
+		throw new IllegalArgumentException("Unknown HTTP client \"" + this.httpClient + "\", expected \"cxf\" or \"jdk\"");
+	}
+
+	private ConnectionSettings _createConnectionSettings() {
+		ConnectionSettings connectionSettings = new ConnectionSettings();
+		connectionSettings.maxConcurrentRequests = this.maxConcurrentRequests;
+		connectionSettings.idleClientTimeoutMs = this.idleClientTimeoutMs;
+		connectionSettings.connectTimeoutMs = this.connectTimeoutMs;
+		connectionSettings.receiveTimeoutMs = this.receiveTimeoutMs;
+		return connectionSettings;
 	}
 
 	protected File getMuleAppFile() throws MojoFailureException {
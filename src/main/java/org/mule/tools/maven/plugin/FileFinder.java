@@ -3,6 +3,8 @@ package org.mule.tools.maven.plugin;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FilenameFilter;
+import java.util.Arrays;
+import java.util.List;
 
 import org.apache.commons.lang.NullArgumentException;
 import org.apache.cxf.common.util.StringUtils;
@@ -10,32 +12,58 @@ import org.apache.cxf.common.util.StringUtils;
 public class FileFinder {
 
 	public static File find(String filePathPattern) throws Exception {
-		if (StringUtils.isEmpty(filePathPattern)) {
-			throw new NullArgumentException("Can't find files from null or empty pattern");
-		}
-
-		File filePath = new File(filePathPattern);
+		File filePath = _checkPattern(filePathPattern);
 		if (filePath.exists()) {
 			return filePath;
 		}
 
-		String standarizedFilePathPattern = filePathPattern.replace("\\", "/");
+		List<File> matchingFiles = _findMatching(filePathPattern);
+		if (matchingFiles.size() > 1) {
+			throw new Exception("More than one file found matching pattern \"" + _getFileNameSearchPattern(filePathPattern) + "\" in directory \"" + _getRootSearchDir(filePathPattern).getAbsolutePath() + "\"");
+		} else {
+			return matchingFiles.get(0);
+		}
+	}
 
-		int lastSlashPos = standarizedFilePathPattern.lastIndexOf("/");
+	/**
+	 * Returns all the files matching a pattern, sorted by name. If the pattern
+	 * is a directory, all the files of the directory with the given extension
+	 * are returned.
+	 */
+	public static List<File> findAll(String filePathPattern, final String directoryFilesExtension) throws Exception {
+		File filePath = _checkPattern(filePathPattern);
+		if (filePath.isDirectory()) {
+			File[] directoryFiles = filePath.listFiles(new FilenameFilter() {
+				@Override
+				public boolean accept(File dir, String name) {
+					return name.endsWith(directoryFilesExtension) && new File(dir, name).isFile();
+				}
+			});
+			if (directoryFiles == null || directoryFiles.length <= 0) {
+				throw new FileNotFoundException("No \"" + directoryFilesExtension + "\" file found in directory \"" + filePath.getAbsolutePath() + "\"");
+			}
+			Arrays.sort(directoryFiles);
+			return Arrays.asList(directoryFiles);
+		}
+		if (filePath.exists()) {
+			return Arrays.asList(filePath);
+		}
 
-		String rootSearchDirPath;
-		String fileNameSearchPattern;
-		if (lastSlashPos >= 0) {
-			rootSearchDirPath = filePathPattern.substring(0, lastSlashPos);
-			fileNameSearchPattern = filePathPattern.substring(lastSlashPos + 1);
-		} else {
-			rootSearchDirPath = "./";
-			fileNameSearchPattern = filePathPattern;
+		return _findMatching(filePathPattern);
+	}
+
+	private static File _checkPattern(String filePathPattern) {
+		if (StringUtils.isEmpty(filePathPattern)) {
+			throw new NullArgumentException("Can't find files from null or empty pattern");
 		}
+		return new File(filePathPattern);
+	}
 
+	private static List<File> _findMatching(String filePathPattern) throws FileNotFoundException {
+		String fileNameSearchPattern = _getFileNameSearchPattern(filePathPattern);
 		final String fileNameSearchRegex = fileNameSearchPattern.replace(".", "\\.").replace("*", ".*");
 
-		File rootSearchDir = new File(rootSearchDirPath);
+		File rootSearchDir = _getRootSearchDir(filePathPattern);
 		File[] matchingFiles = rootSearchDir.listFiles(new FilenameFilter() {
 			@Override
 			public boolean accept(File dir, String name) {
@@ -45,11 +73,24 @@ public class FileFinder {
 
 		if (matchingFiles == null || matchingFiles.length <= 0) {
 			throw new FileNotFoundException("No file matching pattern \"" + fileNameSearchPattern + "\" found in directory \"" + rootSearchDir.getAbsolutePath() + "\"");
-		} else if (matchingFiles.length > 1) {
-			throw new Exception("More than one file found matching pattern \"" + fileNameSearchPattern + "\" in directory \"" + rootSearchDir.getAbsolutePath() + "\"");
-		} else {
-			return matchingFiles[0];
 		}
+		Arrays.sort(matchingFiles);
+		return Arrays.asList(matchingFiles);
+	}
+
+	private static int _getLastSlashPos(String filePathPattern) {
+		String standarizedFilePathPattern = filePathPattern.replace("\\", "/");
+		return standarizedFilePathPattern.lastIndexOf("/");
+	}
+
+	private static File _getRootSearchDir(String filePathPattern) {
+		int lastSlashPos = _getLastSlashPos(filePathPattern);
+		return new File(lastSlashPos >= 0 ? filePathPattern.substring(0, lastSlashPos) : "./");
+	}
+
+	private static String _getFileNameSearchPattern(String filePathPattern) {
+		int lastSlashPos = _getLastSlashPos(filePathPattern);
+		return lastSlashPos >= 0 ? filePathPattern.substring(lastSlashPos + 1) : filePathPattern;
 	}
 
 }
@@ -0,0 +1,203 @@
+package org.mule.tools.maven.plugin;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BiConsumer;
+
+/**
+ * Runs the steps of a deployment as a dependency graph: each step starts as
+ * soon as the steps it depends on have succeeded, so independent steps run in
+ * parallel. A step whose dependency failed is skipped and fails with the same
+ * error. The start time and duration of each step are recorded.
+ */
+class StepScheduler {
+
+	/**
+	 * Work of a step
+	 */
+	interface Task<T> {
+		T run() throws Exception;
+	}
+
+	enum StepState {
+		PENDING, RUNNING, SUCCEEDED, FAILED, SKIPPED
+	}
+
+	/**
+	 * Step added to the scheduler
+	 */
+	class Step<T> {
+		final String name;
+		private final CompletableFuture<T> future = new CompletableFuture<T>();
+		private volatile StepState state = StepState.PENDING;
+		private volatile long startMs = -1;
+		private volatile long durationMs = -1;
+
+		private Step(String name) {
+			this.name = name;
+		}
+
+		/**
+		 * Returns the result of the step, to be called by the steps depending
+		 * on it, once it has succeeded
+		 */
+		T get() {
+			if (state != StepState.SUCCEEDED) {
+				throw new IllegalStateException("Step \"" + name + "\" is " + state);
+			}
+			return future.join();
+		}
+
+		StepState getState() {
+			return state;
+		}
+
+		/**
+		 * Returns the error of the failed or skipped step, null otherwise
+		 */
+		Throwable getFailure() {
+			if (!future.isCompletedExceptionally()) {
+				return null;
+			}
+			try {
+				future.join();
+				return null;
+			} catch (CompletionException e) {
+				return e.getCause();
+			}
+		}
+
+		/**
+		 * Returns the time at which the step started, relative to the creation
+		 * of the scheduler, or -1 if it did not start
+		 */
+		long getStartMs() {
+			return startMs;
+		}
+
+		/**
+		 * Returns the duration of the step, or -1 if it is not over
+		 */
+		long getDurationMs() {
+			return durationMs;
+		}
+
+		private void _run(Task<T> task) {
+			long startTime = System.currentTimeMillis();
+			startMs = startTime - creationTime;
+			state = StepState.RUNNING;
+			try {
+				T result = task.run();
+				durationMs = System.currentTimeMillis() - startTime;
+				state = StepState.SUCCEEDED;
+				future.complete(result);
+			} catch (Throwable t) {
+				durationMs = System.currentTimeMillis() - startTime;
+				state = StepState.FAILED;
+				future.completeExceptionally(t);
+			}
+		}
+
+		private void _skip(Throwable failure) {
+			state = StepState.SKIPPED;
+			future.completeExceptionally(failure);
+		}
+	}
+
+	private final Executor executor;
+	private final long creationTime = System.currentTimeMillis();
+	private final List<Step<?>> steps = new ArrayList<Step<?>>();
+
+	/**
+	 * @param executor
+	 *            Executor running the steps, bounding the number of steps
+	 *            running at the same time
+	 */
+	StepScheduler(Executor executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * Adds a step, started once all its dependencies have succeeded
+	 */
+	<T> Step<T> add(String name, final Task<T> task, Step<?>... dependencies) {
+		final Step<T> step = new Step<T>(name);
+		CompletableFuture<?>[] dependencyFutures = new CompletableFuture<?>[dependencies.length];
+		for (int i = 0; i < dependencies.length; i++) {
+			dependencyFutures[i] = dependencies[i].future;
+		}
+		synchronized (steps) {
+			steps.add(step);
+		}
+		CompletableFuture.allOf(dependencyFutures).whenComplete(new BiConsumer<Void, Throwable>() {
+			@Override
+			public void accept(Void ignored, Throwable failure) {
+				if (failure != null) {
+					step._skip(failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure);
+					return;
+				}
+				try {
+					executor.execute(new Runnable() {
+						@Override
+						public void run() {
+							step._run(task);
+						}
+					});
+				} catch (RejectedExecutionException e) {
+					step._skip(e);
+				}
+			}
+		});
+		return step;
+	}
+
+	/**
+	 * Waits for all the steps to be over, whether they succeed or not
+	 */
+	void awaitAll() throws InterruptedException {
+		List<Step<?>> allSteps = getSteps();
+		for (Step<?> step : allSteps) {
+			try {
+				step.future.get();
+			} catch (ExecutionException e) {
+				// Reported by the step
+			}
+		}
+	}
+
+	/**
+	 * Returns the steps, in the order they were added
+	 */
+	List<Step<?>> getSteps() {
+		synchronized (steps) {
+			return new ArrayList<Step<?>>(steps);
+		}
+	}
+
+	/**
+	 * Returns one line per step with its start time, duration and outcome
+	 */
+	List<String> getTimings() {
+		List<String> timings = new ArrayList<String>();
+		for (Step<?> step : getSteps()) {
+			StringBuilder timing = new StringBuilder("> ").append(step.name).append(" : ");
+			if (step.getStartMs() < 0) {
+				timing.append(step.getState().toString().toLowerCase());
+			} else {
+				timing.append(step.getDurationMs() < 0 ? "running" : step.getDurationMs() + "ms");
+				timing.append(" (started at +").append(step.getStartMs()).append("ms");
+				if (step.getState() == StepState.FAILED) {
+					timing.append(", failed");
+				}
+				timing.append(")");
+			}
+			timings.add(timing.toString());
+		}
+		return timings;
+	}
+}
@@ -0,0 +1,52 @@
+package org.mule.tools.maven.plugin;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Access to the virtual threads of the JDK running Maven, available from Java
+ * 21. The plugin is built for older JDKs, so they are looked up by reflection.
+ */
+final class VirtualThreads {
+
+	private static final Method NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = _lookup();
+
+	private VirtualThreads() {
+	}
+
+	private static Method _lookup() {
+		try {
+			return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns true if the running JDK supports virtual threads
+	 */
+	static boolean isSupported() {
+		return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+	}
+
+	/**
+	 * Returns an executor starting a new virtual thread for each task
+	 *
+	 * @throws UnsupportedOperationException
+	 *             If the running JDK does not support virtual threads
+	 */
+	static ExecutorService newVirtualThreadPerTaskExecutor() {
+		if (!isSupported()) {
+			throw new UnsupportedOperationException("Virtual threads require Java 21 or later, running " + System.getProperty("java.version"));
+		}
+		try {
+			return (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke(null);
+		} catch (IllegalAccessException e) {
+			throw new UnsupportedOperationException("Virtual threads not available", e);
+		} catch (InvocationTargetException e) {
+			throw new UnsupportedOperationException("Virtual threads not available", e.getCause());
+		}
+	}
+}
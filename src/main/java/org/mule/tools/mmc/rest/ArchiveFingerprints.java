@@ -0,0 +1,165 @@
+package org.mule.tools.mmc.rest;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Properties;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Record of the SHA-256 fingerprints of the archives uploaded to MMC
+ * repositories, with the version id they were uploaded as.
+ *
+ * The record is kept in a properties file so that it survives across builds.
+ * The file is read again before each change, so that the entries written in
+ * the meantime by concurrent builds are kept. It is only a hint: a recorded
+ * version id must still be checked against the repository before being
+ * reused, and losing an entry (for instance when two builds write the file at
+ * the very same time) only costs an upload.
+ */
+public class ArchiveFingerprints {
+	private static final Logger _logger = LoggerFactory.getLogger(ArchiveFingerprints.class);
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final File storeFile;
+	private final Properties fingerprints = new Properties();
+
+	/**
+	 * @param storeFile
+	 *            File where the fingerprints are kept, created if needed
+	 */
+	public ArchiveFingerprints(File storeFile) {
+		this.storeFile = storeFile;
+		_load();
+	}
+
+	/**
+	 * Returns the hexadecimal SHA-256 digest of the content of a file
+	 */
+	public static String sha256(File file) throws IOException {
+		MessageDigest messageDigest;
+		try {
+			messageDigest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		InputStream inputStream = new FileInputStream(file);
+		try {
+			byte[] buffer = new byte[BUFFER_SIZE];
+			int read;
+			while ((read = inputStream.read(buffer)) != -1) {
+				messageDigest.update(buffer, 0, read);
+			}
+		} finally {
+			inputStream.close();
+		}
+		byte[] digest = messageDigest.digest();
+		char[] hex = new char[digest.length * 2];
+		for (int i = 0; i < digest.length; i++) {
+			hex[i * 2] = HEX_DIGITS[(digest[i] >> 4) & 0xf];
+			hex[i * 2 + 1] = HEX_DIGITS[digest[i] & 0xf];
+		}
+		return new String(hex);
+	}
+
+	/**
+	 * Returns the version id an archive with the given fingerprint was
+	 * uploaded as, or null if there is none
+	 */
+	public synchronized String findVersionId(String mmcUrl, String appName, String fingerprint) {
+		return fingerprints.getProperty(_key(mmcUrl, appName, fingerprint));
+	}
+
+	/**
+	 * Records the version id an archive was uploaded as
+	 */
+	public synchronized void record(String mmcUrl, String appName, String fingerprint, String versionId) {
+		_load();
+		fingerprints.setProperty(_key(mmcUrl, appName, fingerprint), versionId);
+		_save();
+	}
+
+	/**
+	 * Forgets the fingerprints recorded for a version id, typically because
+	 * the version was deleted
+	 */
+	public synchronized void forget(String versionId) {
+		_load();
+		boolean changed = false;
+		Iterator<Map.Entry<Object, Object>> entries = fingerprints.entrySet().iterator();
+		while (entries.hasNext()) {
+			if (versionId.equals(entries.next().getValue())) {
+				entries.remove();
+				changed = true;
+			}
+		}
+		if (changed) {
+			_save();
+		}
+	}
+
+	private static String _key(String mmcUrl, String appName, String fingerprint) {
+		return mmcUrl + "|" + appName + "|" + fingerprint;
+	}
+
+	/**
+	 * Replaces the fingerprints in memory with the ones of the file, keeping
+	 * the ones in memory if it cannot be read
+	 */
+	private void _load() {
+		if (!storeFile.isFile()) {
+			return;
+		}
+		Properties storedFingerprints = new Properties();
+		try {
+			InputStream inputStream = new FileInputStream(storeFile);
+			try {
+				storedFingerprints.load(inputStream);
+			} finally {
+				inputStream.close();
+			}
+		} catch (IOException e) {
+			_logger.warn("Unable to read archive fingerprints from \"" + storeFile.getAbsolutePath() + "\": " + e.getMessage());
+			return;
+		}
+		fingerprints.clear();
+		fingerprints.putAll(storedFingerprints);
+	}
+
+	private void _save() {
+		File parentDir = storeFile.getAbsoluteFile().getParentFile();
+		try {
+			if (!parentDir.isDirectory() && !parentDir.mkdirs()) {
+				throw new IOException("Unable to create directory \"" + parentDir.getAbsolutePath() + "\"");
+			}
+			// Write aside then rename, so that a concurrent reader never sees a
+			// partially written file
+			File tempFile = File.createTempFile(storeFile.getName(), ".tmp", parentDir);
+			OutputStream outputStream = new FileOutputStream(tempFile);
+			try {
+				fingerprints.store(outputStream, "Fingerprints of the archives uploaded to MMC repositories");
+			} finally {
+				outputStream.close();
+			}
+			if (!tempFile.renameTo(storeFile)) {
+				storeFile.delete();
+				if (!tempFile.renameTo(storeFile)) {
+					tempFile.delete();
+					throw new IOException("Unable to replace \"" + storeFile.getAbsolutePath() + "\"");
+				}
+			}
+		} catch (IOException e) {
+			_logger.warn("Unable to save archive fingerprints to \"" + storeFile.getAbsolutePath() + "\": " + e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,383 @@
+package org.mule.tools.mmc.rest;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Asynchronous counterpart of {@link MuleRest}, for callers driving many
+ * deployments at once which can't afford a blocked thread per request.
+ *
+ * Operations return at once with a {@link CompletableFuture}. Requests are sent
+ * by a pool of as many threads as the session has connections to the MMC, so
+ * extra requests wait in a queue instead of holding a thread. Failed requests
+ * are retried according to the {@link RetryPolicy} from a timer rather than by
+ * sleeping, and deployments are awaited through a shared
+ * {@link DeploymentWatcher}, so that no thread is held between two attempts
+ * or two polls.
+ */
+public class AsyncMuleRest implements Closeable {
+	private static final Logger _logger = LoggerFactory.getLogger(AsyncMuleRest.class);
+
+	private final MuleRest muleRest;
+	private final ExecutorService ioExecutor;
+	private final ScheduledExecutorService timer;
+	private volatile RetryPolicy retryPolicy = new RetryPolicy();
+	private volatile PollingStrategy pollingStrategy = PollingStrategy.backoff(PollingStrategy.DEFAULT_INITIAL_DELAY_MS, PollingStrategy.DEFAULT_MAX_DELAY_MS, PollingStrategy.DEFAULT_MULTIPLIER, PollingStrategy.DEFAULT_JITTER);
+
+	// Guarded by this
+	private DeploymentWatcher deploymentWatcher;
+
+	/**
+	 * Constructor
+	 *
+	 * @param mmcUrl
+	 * @param username
+	 * @param password
+	 * @param connectionSettings
+	 *            Settings of the connections kept open to the MMC, the number
+	 *            of connections being the number of requests sent at the same
+	 *            time
+	 */
+	public AsyncMuleRest(URL mmcUrl, String username, String password, ConnectionSettings connectionSettings) {
+		this(new MuleRest(mmcUrl, username, password, connectionSettings), connectionSettings.maxConcurrentRequests);
+	}
+
+	/**
+	 * Takes over a session whose requests are retried by this instance. The
+	 * retry policy of the session is replaced with
+	 * {@link RetryPolicy#noRetry()} and the session is closed with this
+	 * instance, so it must not be used on its own any more.
+	 *
+	 * @param ioThreads
+	 *            Number of requests sent at the same time
+	 */
+	AsyncMuleRest(MuleRest muleRest, int ioThreads) {
+		this.muleRest = muleRest;
+		// Retries are scheduled here, a request attempt must not block
+		muleRest.setRetryPolicy(RetryPolicy.noRetry());
+		int threadCount = Math.max(1, ioThreads);
+		this.ioExecutor = new ThreadPoolExecutor(threadCount, threadCount, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(), _createThreadFactory("mmc-io-"));
+		this.timer = Executors.newSingleThreadScheduledExecutor(_createThreadFactory("mmc-timer-"));
+	}
+
+	private static ThreadFactory _createThreadFactory(final String namePrefix) {
+		final AtomicInteger threadCount = new AtomicInteger();
+		return new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, namePrefix + threadCount.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
+	}
+
+	/**
+	 * Stops the watcher and the timer, fails the requests not sent yet and
+	 * closes the connections to the MMC
+	 */
+	@Override
+	public void close() {
+		synchronized (this) {
+			if (deploymentWatcher != null) {
+				deploymentWatcher.close();
+			}
+		}
+		timer.shutdownNow();
+		ioExecutor.shutdownNow();
+		muleRest.close();
+	}
+
+	/**
+	 * Returns the policy deciding whether failed requests are attempted again
+	 */
+	public RetryPolicy getRetryPolicy() {
+		return retryPolicy;
+	}
+
+	public void setRetryPolicy(RetryPolicy retryPolicy) {
+		this.retryPolicy = retryPolicy;
+	}
+
+	/**
+	 * Returns the breaker failing requests at once while the MMC looks
+	 * unhealthy
+	 */
+	public CircuitBreaker getCircuitBreaker() {
+		return muleRest.getCircuitBreaker();
+	}
+
+	public void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+		muleRest.setCircuitBreaker(circuitBreaker);
+	}
+
+	/**
+	 * Sets the deadline by which all the following requests must be over, see
+	 * {@link MuleRest#setDeadline(Deadline)}
+	 */
+	public void setDeadline(Deadline deadline) {
+		muleRest.setDeadline(deadline);
+	}
+
+	/**
+	 * Sets the strategy spacing the polls of the deployments awaited with
+	 * {@link #awaitDeployment(String, long)}, before the first one
+	 */
+	public void setPollingStrategy(PollingStrategy pollingStrategy) {
+		this.pollingStrategy = pollingStrategy;
+	}
+
+	/**
+	 * See {@link MuleRest#restfullyGetApplicationId(String, String)}
+	 */
+	public CompletableFuture<String> getApplicationId(final String name, final String version) {
+		return _submit("Id of application \"" + name + "\" " + version, true, new RetryPolicy.Request<String>() {
+			@Override
+			public String execute() throws IOException {
+				return muleRest.restfullyGetApplicationId(name, version);
+			}
+		});
+	}
+
+	/**
+	 * See {@link MuleRest#restfullyUploadRepository(String, String, File)}.
+	 * The upload is never retried, the archive may have been stored before
+	 * the failure.
+	 */
+	public CompletableFuture<String> uploadRepository(final String appName, final String appVersion, final File packageFile) {
+		return _submit("Upload of \"" + packageFile.getName() + "\"", false, new RetryPolicy.Request<String>() {
+			@Override
+			public String execute() throws IOException {
+				return muleRest.restfullyUploadRepository(appName, appVersion, packageFile);
+			}
+		});
+	}
+
+	/**
+	 * See {@link MuleRest#restfullyCreateDeployment(String, String, String)}.
+	 * The lookups of the target and of the deployment are retried, the
+	 * changes made to the deployment are not.
+	 */
+	public CompletableFuture<String> createDeployment(String targetServerName, String name, final String versionId) {
+		return prepareDeployment(targetServerName, name).thenCompose(new Function<DeploymentPlan, CompletionStage<String>>() {
+			@Override
+			public CompletionStage<String> apply(DeploymentPlan deploymentPlan) {
+				return createDeployment(deploymentPlan, versionId);
+			}
+		});
+	}
+
+	/**
+	 * See {@link MuleRest#restfullyPrepareDeployment(String, String)}
+	 */
+	public CompletableFuture<DeploymentPlan> prepareDeployment(final String targetServerName, final String name) {
+		return _submit("Preparation of deployment \"" + name + "\"", true, new RetryPolicy.Request<DeploymentPlan>() {
+			@Override
+			public DeploymentPlan execute() throws IOException {
+				return muleRest.restfullyPrepareDeployment(targetServerName, name);
+			}
+		});
+	}
+
+	/**
+	 * See {@link MuleRest#restfullyCreateDeployment(DeploymentPlan, String)}.
+	 * Not retried, the deployment may have been changed before the failure.
+	 */
+	public CompletableFuture<String> createDeployment(final DeploymentPlan deploymentPlan, final String versionId) {
+		return _submit("Creation of deployment \"" + deploymentPlan.name + "\"", false, new RetryPolicy.Request<String>() {
+			@Override
+			public String execute() throws IOException {
+				return muleRest.restfullyCreateDeployment(deploymentPlan, versionId);
+			}
+		});
+	}
+
+	/**
+	 * See {@link MuleRest#restfullyDeployDeploymentById(String)}
+	 */
+	public CompletableFuture<Void> deployDeploymentById(final String deploymentId) {
+		return _submit("Deployment of deployment \"" + deploymentId + "\"", true, new RetryPolicy.Request<Void>() {
+			@Override
+			public Void execute() throws IOException {
+				muleRest.restfullyDeployDeploymentById(deploymentId);
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * See {@link MuleRest#restfullyDeleteDeploymentById(String)}
+	 */
+	public CompletableFuture<Void> deleteDeploymentById(final String deploymentId) {
+		return _submit("Deletion of deployment \"" + deploymentId + "\"", true, new RetryPolicy.Request<Void>() {
+			@Override
+			public Void execute() throws IOException {
+				muleRest.restfullyDeleteDeploymentById(deploymentId);
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * See {@link MuleRest#restfullyGetDeploymentState(String)}
+	 */
+	public CompletableFuture<DeploymentState> getDeploymentState(final String deploymentId) {
+		return _submit("State of deployment \"" + deploymentId + "\"", true, new RetryPolicy.Request<DeploymentState>() {
+			@Override
+			public DeploymentState execute() throws IOException {
+				return muleRest.restfullyGetDeploymentState(deploymentId);
+			}
+		});
+	}
+
+	/**
+	 * Returns a future completing with the first state of a deployment which
+	 * is not IN_PROGRESS. All the awaited deployments are polled together.
+	 *
+	 * @param timeoutMs
+	 *            Time after which the future fails with a
+	 *            {@link TimeoutException}, 0 to wait without limit
+	 */
+	public CompletableFuture<DeploymentState> awaitDeployment(final String deploymentId, final long timeoutMs) {
+		final CompletableFuture<DeploymentState> watchedState;
+		try {
+			watchedState = _getDeploymentWatcher().watch(deploymentId);
+		} catch (IllegalStateException e) {
+			return _failed(new IOException("Asynchronous MMC session closed", e));
+		}
+		if (timeoutMs > 0) {
+			_schedule(new Runnable() {
+				@Override
+				public void run() {
+					if (watchedState.completeExceptionally(new TimeoutException("Timeout of \"" + timeoutMs + "ms\" occurred while waiting for deployment \"" + deploymentId + "\""))) {
+						_logger.warn("Stopped waiting for deployment \"" + deploymentId + "\" after " + timeoutMs + "ms");
+					}
+				}
+			}, timeoutMs, watchedState);
+		}
+		return watchedState;
+	}
+
+	/**
+	 * Uploads an application unless it is already on the repository, deploys
+	 * it to a target and waits for the deployment to finish, the same way the
+	 * deploy goal does
+	 *
+	 * @return A future completing with the final state of the deployment, or
+	 *         null if the application was already deployed
+	 */
+	public CompletableFuture<DeploymentState> deployApplication(final String appName, final String appVersion, final File packageFile, final String targetServerName, final String deploymentName, final long deploymentTimeoutMs) {
+		return getApplicationId(appName, appVersion).thenCompose(new Function<String, CompletionStage<String>>() {
+			@Override
+			public CompletionStage<String> apply(String versionId) {
+				return versionId != null ? CompletableFuture.completedFuture(versionId) : uploadRepository(appName, appVersion, packageFile);
+			}
+		}).thenCompose(new Function<String, CompletionStage<String>>() {
+			@Override
+			public CompletionStage<String> apply(String versionId) {
+				return createDeployment(targetServerName, deploymentName, versionId);
+			}
+		}).thenCompose(new Function<String, CompletionStage<DeploymentState>>() {
+			@Override
+			public CompletionStage<DeploymentState> apply(final String deploymentId) {
+				if (deploymentId == null) {
+					_logger.info("Application \"" + packageFile.getAbsolutePath() + "\" already deployed in deployment \"" + deploymentName + "\".");
+					return CompletableFuture.<DeploymentState> completedFuture(null);
+				}
+				return deployDeploymentById(deploymentId).thenCompose(new Function<Void, CompletionStage<DeploymentState>>() {
+					@Override
+					public CompletionStage<DeploymentState> apply(Void ignored) {
+						return awaitDeployment(deploymentId, deploymentTimeoutMs);
+					}
+				});
+			}
+		});
+	}
+
+	private synchronized DeploymentWatcher _getDeploymentWatcher() {
+		if (deploymentWatcher == null) {
+			deploymentWatcher = new DeploymentWatcher(muleRest, pollingStrategy);
+		}
+		return deploymentWatcher;
+	}
+
+	private <T> CompletableFuture<T> _submit(String description, boolean retried, RetryPolicy.Request<T> request) {
+		CompletableFuture<T> result = new CompletableFuture<T>();
+		_attempt(description, retried, request, 1, System.currentTimeMillis(), result);
+		return result;
+	}
+
+	private <T> void _attempt(final String description, final boolean retried, final RetryPolicy.Request<T> request, final int attempt, final long startTime, final CompletableFuture<T> result) {
+		try {
+			ioExecutor.execute(new Runnable() {
+				@Override
+				public void run() {
+					if (result.isDone()) {
+						// Cancelled while waiting for a thread
+						return;
+					}
+					Deadline deadline = muleRest.getDeadline();
+					RetryPolicy retryPolicy = AsyncMuleRest.this.retryPolicy;
+					try {
+						deadline.check(description);
+					} catch (IOException e) {
+						result.completeExceptionally(e);
+						return;
+					}
+					retryPolicy.recordAttempt();
+					try {
+						T value = request.execute();
+						retryPolicy.recordSuccess(attempt);
+						result.complete(value);
+					} catch (IOException | RuntimeException e) {
+						long retryDelayMs = retried ? retryPolicy.getRetryDelayMs(description, e, attempt, startTime, deadline) : -1;
+						if (retryDelayMs < 0) {
+							result.completeExceptionally(e);
+							return;
+						}
+						_schedule(new Runnable() {
+							@Override
+							public void run() {
+								_attempt(description, retried, request, attempt + 1, startTime, result);
+							}
+						}, retryDelayMs, result);
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			result.completeExceptionally(new IOException("Asynchronous MMC session closed", e));
+		}
+	}
+
+	private void _schedule(Runnable task, long delayMs, CompletableFuture<?> result) {
+		try {
+			timer.schedule(task, delayMs, TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException e) {
+			result.completeExceptionally(new IOException("Asynchronous MMC session closed", e));
+		}
+	}
+
+	private static <T> CompletableFuture<T> _failed(Throwable failure) {
+		CompletableFuture<T> result = new CompletableFuture<T>();
+		result.completeExceptionally(failure);
+		return result;
+	}
+}
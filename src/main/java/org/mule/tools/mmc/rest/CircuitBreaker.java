@@ -0,0 +1,161 @@
+package org.mule.tools.mmc.rest;
+
+import java.io.IOException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Stops sending requests to a MMC which looks unhealthy.
+ *
+ * The breaker opens after a number of consecutive failures, a failure being a
+ * request failing with a transient error (see
+ * {@link RetryPolicy#isTransientFailure(Throwable)}) or taking longer than the
+ * slow call threshold, unless the request is known to take long such as an
+ * upload. While it is open, requests fail at once with a
+ * {@link CircuitBreakerOpenException}. Once the open duration has elapsed, a
+ * single probe request is let through (half-open state): the breaker closes if
+ * it succeeds and opens again otherwise.
+ */
+public class CircuitBreaker {
+	private static final Logger _logger = LoggerFactory.getLogger(CircuitBreaker.class);
+
+	public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+	public static final long DEFAULT_SLOW_CALL_THRESHOLD_MS = 60000;
+	public static final long DEFAULT_OPEN_DURATION_MS = 30000;
+
+	public enum State {
+		CLOSED, OPEN, HALF_OPEN
+	}
+
+	private final String name;
+	private final int failureThreshold;
+	private final long slowCallThresholdMs;
+	private final long openDurationMs;
+
+	// Guarded by this
+	private State state = State.CLOSED;
+	private int consecutiveFailures;
+	private long openedAt;
+	private String lastFailure;
+	private long shortCircuitedCalls;
+
+	/**
+	 * @param name
+	 *            Name of the protected service, for the messages
+	 * @param failureThreshold
+	 *            Number of consecutive failures opening the breaker, 0 to
+	 *            never open it
+	 * @param slowCallThresholdMs
+	 *            Duration past which a request counts as a failure, 0 to
+	 *            ignore durations
+	 * @param openDurationMs
+	 *            Time during which requests are short-circuited once the
+	 *            breaker is open
+	 */
+	public CircuitBreaker(String name, int failureThreshold, long slowCallThresholdMs, long openDurationMs) {
+		this.name = name;
+		this.failureThreshold = failureThreshold;
+		this.slowCallThresholdMs = slowCallThresholdMs;
+		this.openDurationMs = openDurationMs;
+	}
+
+	/**
+	 * Returns a breaker which never opens
+	 */
+	public static CircuitBreaker disabled(String name) {
+		return new CircuitBreaker(name, 0, 0, 0);
+	}
+
+	public synchronized State getState() {
+		return state;
+	}
+
+	/**
+	 * Returns the number of requests failed at once because the breaker was
+	 * open
+	 */
+	public synchronized long getShortCircuitedCalls() {
+		return shortCircuitedCalls;
+	}
+
+	/**
+	 * Executes a request unless the breaker is open, and records its outcome
+	 */
+	<T> T execute(RetryPolicy.Request<T> request) throws IOException {
+		return execute(request, true);
+	}
+
+	/**
+	 * Same as {@link #execute(RetryPolicy.Request)}
+	 * 
+	 * @param countSlowCalls
+	 *            False for a request which may take long when the MMC is
+	 *            healthy, such as the upload of a large archive, so that it
+	 *            doesn't count as a failure when slower than the threshold
+	 */
+	<T> T execute(RetryPolicy.Request<T> request, boolean countSlowCalls) throws IOException {
+		if (failureThreshold <= 0) {
+			return request.execute();
+		}
+		_acquirePermission();
+		long startTime = System.currentTimeMillis();
+		try {
+			T result = request.execute();
+			_onCompletion(countSlowCalls ? System.currentTimeMillis() - startTime : 0, null);
+			return result;
+		} catch (IOException e) {
+			_onCompletion(System.currentTimeMillis() - startTime, e);
+			throw e;
+		} catch (RuntimeException e) {
+			_onCompletion(System.currentTimeMillis() - startTime, e);
+			throw e;
+		}
+	}
+
+	private synchronized void _acquirePermission() throws CircuitBreakerOpenException {
+		if (state == State.CLOSED) {
+			return;
+		}
+		long remainingMs = openedAt + openDurationMs - System.currentTimeMillis();
+		if (state == State.OPEN && remainingMs <= 0) {
+			// Let a single probe through
+			_logger.info("Probing " + name + " after " + openDurationMs + "ms of short-circuited requests");
+			state = State.HALF_OPEN;
+			return;
+		}
+		shortCircuitedCalls++;
+		String message = name + " considered unavailable after " + consecutiveFailures + " consecutive failure(s) (last one: " + lastFailure + ")";
+		throw new CircuitBreakerOpenException(state == State.HALF_OPEN ? message + ", probe in progress" : message + ", requests short-circuited for another " + remainingMs + "ms");
+	}
+
+	private synchronized void _onCompletion(long durationMs, Exception failure) {
+		boolean failed;
+		if (failure != null) {
+			failed = RetryPolicy.isTransientFailure(failure);
+			if (failed) {
+				lastFailure = failure.toString();
+			}
+		} else {
+			failed = slowCallThresholdMs > 0 && durationMs > slowCallThresholdMs;
+			if (failed) {
+				lastFailure = "request took " + durationMs + "ms";
+			}
+		}
+
+		if (!failed) {
+			if (state != State.CLOSED) {
+				_logger.info(name + " is available again, closing circuit breaker");
+			}
+			state = State.CLOSED;
+			consecutiveFailures = 0;
+			return;
+		}
+		consecutiveFailures++;
+		if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+			_logger.warn("Opening circuit breaker of " + name + " for " + openDurationMs + "ms after " + consecutiveFailures + " consecutive failure(s), last one: " + lastFailure);
+			state = State.OPEN;
+			openedAt = System.currentTimeMillis();
+		}
+	}
+}
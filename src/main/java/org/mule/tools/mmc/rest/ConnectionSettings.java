@@ -0,0 +1,38 @@
+package org.mule.tools.mmc.rest;
+
+/**
+ * Settings of the HTTP session a {@link MuleRest} instance keeps open with the
+ * MMC
+ */
+public class ConnectionSettings {
+
+	public static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 5;
+	public static final long DEFAULT_IDLE_CLIENT_TIMEOUT_MS = 30000;
+	public static final long DEFAULT_CONNECT_TIMEOUT_MS = 30000;
+	public static final long DEFAULT_RECEIVE_TIMEOUT_MS = 1000000;
+
+	/**
+	 * Maximum number of requests sent at the same time to the MMC, and so of
+	 * connections in use. Idle connections are kept by the keep-alive cache of
+	 * the JDK, bounded by the http.maxConnections system property.
+	 */
+	public int maxConcurrentRequests = DEFAULT_MAX_CONCURRENT_REQUESTS;
+
+	/**
+	 * Time after which an unused pooled CXF client is closed. The connection
+	 * it used stays in the keep-alive cache of the JDK, which closes it on
+	 * its own timeout.
+	 */
+	public long idleClientTimeoutMs = DEFAULT_IDLE_CLIENT_TIMEOUT_MS;
+
+	/**
+	 * Time to wait for a connection to the MMC to be established
+	 */
+	public long connectTimeoutMs = DEFAULT_CONNECT_TIMEOUT_MS;
+
+	/**
+	 * Time to wait for the MMC to answer a request
+	 */
+	public long receiveTimeoutMs = DEFAULT_RECEIVE_TIMEOUT_MS;
+
+}
@@ -0,0 +1,54 @@
+package org.mule.tools.mmc.rest;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Counts the bytes read from a stream
+ */
+class CountingInputStream extends FilterInputStream {
+
+	private volatile long count;
+
+	CountingInputStream(InputStream inputStream) {
+		super(inputStream);
+	}
+
+	/**
+	 * Returns the number of bytes read or skipped
+	 */
+	long getCount() {
+		return count;
+	}
+
+	@Override
+	public int read() throws IOException {
+		int b = super.read();
+		if (b != -1) {
+			count++;
+		}
+		return b;
+	}
+
+	@Override
+	public int read(byte[] buffer, int offset, int length) throws IOException {
+		int read = super.read(buffer, offset, length);
+		if (read > 0) {
+			count += read;
+		}
+		return read;
+	}
+
+	@Override
+	public long skip(long length) throws IOException {
+		long skipped = super.skip(length);
+		count += skipped;
+		return skipped;
+	}
+
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+}
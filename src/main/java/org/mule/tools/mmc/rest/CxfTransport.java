@@ -0,0 +1,64 @@
+package org.mule.tools.mmc.rest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Map;
+
+import javax.ws.rs.core.Response;
+
+import org.apache.cxf.jaxrs.client.WebClient;
+
+/**
+ * {@link Transport} built on the CXF {@link WebClient}s of a
+ * {@link WebClientPool}.
+ * 
+ * CXF cannot stream a body with an exact Content-Length, which the MMC
+ * requires for uploads: the requests with a {@link StreamingBody} are sent
+ * through a {@link JdkHttpTransport}.
+ */
+public class CxfTransport implements Transport {
+
+	private final WebClientPool webClientPool;
+	private final JdkHttpTransport streamingTransport;
+
+	public CxfTransport(URL mmcUrl, String username, String password, ConnectionSettings settings) {
+		this.webClientPool = new WebClientPool(mmcUrl, username, password, settings);
+		this.streamingTransport = new JdkHttpTransport(mmcUrl, username, password, settings);
+	}
+
+	@Override
+	public TransportResponse send(TransportRequest request, Deadline deadline) throws IOException {
+		if (request.body != null) {
+			return streamingTransport.send(request, deadline);
+		}
+		final WebClient webClient = webClientPool.borrow(deadline);
+		try {
+			for (String segment : request.path) {
+				webClient.path(segment);
+			}
+			for (Map.Entry<String, String> parameter : request.query.entrySet()) {
+				webClient.query(parameter.getKey(), parameter.getValue());
+			}
+			if (request.contentType != null) {
+				webClient.type(request.contentType);
+			}
+			Response response = webClient.invoke(request.method, request.entity);
+			return new TransportResponse(response.getStatus(), (InputStream) response.getEntity()) {
+				@Override
+				protected void released() {
+					webClientPool.release(webClient);
+				}
+			};
+		} catch (RuntimeException | Error e) {
+			webClientPool.release(webClient);
+			throw e;
+		}
+	}
+
+	@Override
+	public void close() {
+		webClientPool.close();
+		streamingTransport.close();
+	}
+}
@@ -0,0 +1,80 @@
+package org.mule.tools.mmc.rest;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point in time by which a whole sequence of MMC requests must be over.
+ *
+ * The time left is used to bound the waits of the requests: connection and
+ * receive timeouts, waits for a free connection and sleeps between retries are
+ * shortened so that none goes past the deadline.
+ */
+public final class Deadline {
+
+	/**
+	 * Deadline which never expires
+	 */
+	public static final Deadline NONE = new Deadline(Long.MAX_VALUE, 0);
+
+	private final long timeoutMs;
+	private final long expiresAtNanos;
+
+	private Deadline(long timeoutMs, long expiresAtNanos) {
+		this.timeoutMs = timeoutMs;
+		this.expiresAtNanos = expiresAtNanos;
+	}
+
+	/**
+	 * Returns a deadline expiring after the given time from now, or
+	 * {@link #NONE} if the time is not positive
+	 */
+	public static Deadline after(long timeoutMs) {
+		if (timeoutMs <= 0) {
+			return NONE;
+		}
+		return new Deadline(timeoutMs, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs));
+	}
+
+	public boolean isBounded() {
+		return this != NONE;
+	}
+
+	/**
+	 * Returns the time left before the deadline, 0 once it has passed
+	 */
+	public long getRemainingMs() {
+		if (!isBounded()) {
+			return Long.MAX_VALUE;
+		}
+		return Math.max(0, TimeUnit.NANOSECONDS.toMillis(expiresAtNanos - System.nanoTime()));
+	}
+
+	public boolean isExpired() {
+		return isBounded() && expiresAtNanos - System.nanoTime() <= 0;
+	}
+
+	/**
+	 * Returns the given timeout shortened to the time left, but at least 1ms
+	 * so that it is never mistaken for an infinite timeout
+	 */
+	public long clamp(long timeoutMs) {
+		return Math.max(1, Math.min(timeoutMs, getRemainingMs()));
+	}
+
+	/**
+	 * Throws if the deadline has passed
+	 *
+	 * @param description
+	 *            Description of what was about to be done, for the message
+	 */
+	public void check(String description) throws DeadlineExceededException {
+		if (isExpired()) {
+			throw new DeadlineExceededException("Deadline of " + timeoutMs + "ms exceeded before " + description);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return isBounded() ? getRemainingMs() + "ms left of " + timeoutMs + "ms" : "no deadline";
+	}
+}
@@ -0,0 +1,14 @@
+package org.mule.tools.mmc.rest;
+
+import java.io.InterruptedIOException;
+
+/**
+ * Thrown when the {@link Deadline} of a sequence of MMC requests has passed
+ */
+public class DeadlineExceededException extends InterruptedIOException {
+	private static final long serialVersionUID = 1L;
+
+	public DeadlineExceededException(String message) {
+		super(message);
+	}
+}
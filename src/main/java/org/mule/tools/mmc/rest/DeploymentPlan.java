@@ -0,0 +1,41 @@
+package org.mule.tools.mmc.rest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.codehaus.jackson.JsonNode;
+
+/**
+ * Everything needed to create or update a deployment but the application
+ * version: the resolved targets and the deployment already bearing the name,
+ * if any. See {@link MuleRest#restfullyPrepareDeployment(List, String)}.
+ */
+public class DeploymentPlan {
+
+	/**
+	 * Names of the servers, server groups and clusters targeted by the
+	 * deployment
+	 */
+	public List<String> targetServerNames = new ArrayList<String>();
+
+	/**
+	 * Name of the deployment
+	 */
+	public String name;
+
+	/**
+	 * Ids of the targeted servers and server groups
+	 */
+	public List<String> serverOrGroupIds = new ArrayList<String>();
+
+	/**
+	 * Ids of the targeted clusters
+	 */
+	public List<String> clusterIds = new ArrayList<String>();
+
+	/**
+	 * Deployment bearing the name when the plan was made, null if none
+	 */
+	JsonNode deployment;
+
+}
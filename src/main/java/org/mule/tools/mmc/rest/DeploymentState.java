@@ -3,13 +3,18 @@ package org.mule.tools.mmc.rest;
 
 public class DeploymentState {
 
+	/**
+	 * Id of the deployment
+	 */
+	public String id;
+
 	/**
 	 * Boolean value indicating the reconciled status of the deployment
 	 */
 	public boolean reconciled;
 	
 	/**
-	 * Deployment state (DEPLOYED, UNDEPLOYED, IN_PROGRESS, SUCCESSFUL, FAILED, and DELETING)
+	 * Deployment state (DEPLOYED, UNDEPLOYED, IN_PROGRESS, SUCCESSFUL, FAILED, and DELETING), UNKNOWN if the MMC returned another one
 	 */
 	public DeploymentStatus status;
 	
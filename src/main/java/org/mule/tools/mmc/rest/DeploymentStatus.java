@@ -2,4 +2,24 @@ package org.mule.tools.mmc.rest;
 
 public enum DeploymentStatus {
 	DEPLOYED, UNDEPLOYED, IN_PROGRESS, SUCCESSFUL, FAILED, DELETING,
+
+	/**
+	 * Status missing or not known to this plugin
+	 */
+	UNKNOWN;
+
+	/**
+	 * Returns the status bearing a name in any case, {@link #UNKNOWN} if none
+	 * does
+	 */
+	public static DeploymentStatus parse(String name) {
+		if (name != null) {
+			try {
+				return valueOf(name.toUpperCase());
+			} catch (IllegalArgumentException e) {
+				// Unknown
+			}
+		}
+		return UNKNOWN;
+	}
 }
@@ -0,0 +1,254 @@
+package org.mule.tools.mmc.rest;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tracks the deployments in progress of a MMC session with a single periodic
+ * <code>GET /deployments</code> request, whatever their number, instead of one
+ * <code>GET /deployments/{id}</code> request per deployment.
+ *
+ * Status changes are published to the {@link Listener}s, and the future
+ * returned by {@link #watch(String)} completes once the deployment is no more
+ * in progress, or is settled for the {@link PollingStrategy}. The delay between two requests is given by a
+ * {@link PollingStrategy}, restarting from its first delay whenever a
+ * deployment is added or changes status.
+ */
+public class DeploymentWatcher implements Closeable {
+	private static final Logger _logger = LoggerFactory.getLogger(DeploymentWatcher.class);
+
+	/**
+	 * Number of failed requests in a row after which the pending deployments
+	 * fail
+	 */
+	public static final int MAX_CONSECUTIVE_FAILURES = 3;
+
+	/**
+	 * Notified of the status changes of the watched deployments
+	 */
+	public interface Listener {
+		/**
+		 * Called from the polling thread when a watched deployment is seen for
+		 * the first time and whenever its status changes
+		 */
+		void statusChanged(DeploymentState deploymentState);
+	}
+
+	private final MuleRest muleRest;
+	private final PollingStrategy pollingStrategy;
+	private final ScheduledExecutorService scheduler;
+	private final List<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+
+	// Guarded by this
+	private final Map<String, Watch> watches = new LinkedHashMap<String, Watch>();
+	private boolean pollScheduled;
+	private boolean closed;
+	private int probes;
+	private int consecutiveFailures;
+
+	public DeploymentWatcher(MuleRest muleRest, PollingStrategy pollingStrategy) {
+		this.muleRest = muleRest;
+		this.pollingStrategy = pollingStrategy;
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "mmc-deployment-watcher");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	public void addListener(Listener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(Listener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Starts watching a deployment. The returned future completes with the
+	 * first state of the deployment which is not IN_PROGRESS or is settled for
+	 * the polling strategy, or fails if the
+	 * deployment disappears or the MMC can't be reached. Each caller gets a
+	 * future of its own: cancelling it only affects this caller, the
+	 * deployment stops being watched once all its futures are cancelled.
+	 */
+	public synchronized CompletableFuture<DeploymentState> watch(String deploymentId) {
+		if (closed) {
+			throw new IllegalStateException("Deployment watcher closed");
+		}
+		Watch watch = watches.get(deploymentId);
+		if (watch == null || watch.result.isDone()) {
+			watch = new Watch();
+			watches.put(deploymentId, watch);
+		}
+		CompletableFuture<DeploymentState> waiter = watch.result.thenApply(new Function<DeploymentState, DeploymentState>() {
+			@Override
+			public DeploymentState apply(DeploymentState deploymentState) {
+				return deploymentState;
+			}
+		});
+		watch.waiters.add(waiter);
+		probes = 0;
+		_schedulePoll();
+		return waiter;
+	}
+
+	/**
+	 * Returns the number of deployments still watched
+	 */
+	public synchronized int getPendingCount() {
+		return watches.size();
+	}
+
+	/**
+	 * Stops polling, the deployments still watched fail
+	 */
+	@Override
+	public void close() {
+		List<Watch> pending;
+		synchronized (this) {
+			closed = true;
+			pending = new ArrayList<Watch>(watches.values());
+			watches.clear();
+		}
+		scheduler.shutdownNow();
+		for (Watch watch : pending) {
+			watch.result.completeExceptionally(new IOException("Deployment watcher closed"));
+		}
+	}
+
+	// Called with the lock held
+	private void _schedulePoll() {
+		if (pollScheduled || closed || watches.isEmpty()) {
+			return;
+		}
+		long delayMs = probes == 0 ? 0 : pollingStrategy.getDelayMs(probes, null);
+		pollScheduled = true;
+		scheduler.schedule(new Runnable() {
+			@Override
+			public void run() {
+				_poll();
+			}
+		}, delayMs, TimeUnit.MILLISECONDS);
+	}
+
+	private void _poll() {
+		Set<String> deploymentIds;
+		synchronized (this) {
+			pollScheduled = false;
+			if (closed || watches.isEmpty()) {
+				return;
+			}
+			deploymentIds = new HashSet<String>(watches.keySet());
+		}
+
+		Map<String, DeploymentState> deploymentStates = null;
+		IOException failure = null;
+		try {
+			// Only the watched deployments are read from the listing
+			deploymentStates = muleRest.restfullyGetDeploymentStates(deploymentIds);
+		} catch (IOException e) {
+			failure = e;
+		} catch (RuntimeException e) {
+			failure = new IOException(e);
+		}
+
+		List<DeploymentState> changes = new ArrayList<DeploymentState>();
+		Map<Watch, Object> outcomes = new LinkedHashMap<Watch, Object>();
+		synchronized (this) {
+			probes++;
+			if (failure != null) {
+				consecutiveFailures++;
+				_logger.warn("Unable to get the state of the deployments (" + consecutiveFailures + " failure(s) in a row): " + failure);
+				if (consecutiveFailures >= MAX_CONSECUTIVE_FAILURES) {
+					for (Watch watch : watches.values()) {
+						outcomes.put(watch, failure);
+					}
+					watches.clear();
+				}
+			} else {
+				consecutiveFailures = 0;
+				Iterator<Map.Entry<String, Watch>> entries = watches.entrySet().iterator();
+				while (entries.hasNext()) {
+					Map.Entry<String, Watch> entry = entries.next();
+					Watch watch = entry.getValue();
+					DeploymentState deploymentState = deploymentStates.get(entry.getKey());
+					if (watch.isAbandoned()) {
+						entries.remove();
+					} else if (deploymentState == null) {
+						outcomes.put(watch, new IOException("Deployment \"" + entry.getKey() + "\" not found"));
+						entries.remove();
+					} else {
+						if (watch.lastState == null || watch.lastState.status != deploymentState.status) {
+							changes.add(deploymentState);
+							probes = 1;
+						}
+						watch.lastState = deploymentState;
+						if (deploymentState.status != DeploymentStatus.IN_PROGRESS || pollingStrategy.isSettled(deploymentState)) {
+							outcomes.put(watch, deploymentState);
+							entries.remove();
+						}
+					}
+				}
+			}
+			_schedulePoll();
+		}
+
+		// Listeners and waiters are called without the lock
+		for (DeploymentState deploymentState : changes) {
+			for (Listener listener : listeners) {
+				try {
+					listener.statusChanged(deploymentState);
+				} catch (RuntimeException e) {
+					_logger.warn("Deployment listener failed: " + e);
+				}
+			}
+		}
+		for (Map.Entry<Watch, Object> outcome : outcomes.entrySet()) {
+			if (outcome.getValue() instanceof DeploymentState) {
+				outcome.getKey().result.complete((DeploymentState) outcome.getValue());
+			} else {
+				outcome.getKey().result.completeExceptionally((Throwable) outcome.getValue());
+			}
+		}
+	}
+
+	private static class Watch {
+		final CompletableFuture<DeploymentState> result = new CompletableFuture<DeploymentState>();
+		final List<CompletableFuture<DeploymentState>> waiters = new ArrayList<CompletableFuture<DeploymentState>>();
+		DeploymentState lastState;
+
+		/**
+		 * Returns true if all the callers waiting for the deployment have
+		 * cancelled their future
+		 */
+		boolean isAbandoned() {
+			for (CompletableFuture<DeploymentState> waiter : waiters) {
+				if (!waiter.isDone()) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
@@ -0,0 +1,209 @@
+package org.mule.tools.mmc.rest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.cxf.common.util.Base64Utility;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link Transport} built on the {@link HttpURLConnection} of the JDK, without
+ * the client stack of CXF: nothing to bootstrap and little allocated per
+ * request. The connections are kept open by the keep-alive cache of the JDK,
+ * which keeps at most 5 idle connections per host unless the JVM is started
+ * with a higher -Dhttp.maxConnections.
+ * 
+ * At most {@link ConnectionSettings#maxConcurrentRequests} requests are sent at the
+ * same time. Request bodies are streamed, with an exact Content-Length when it
+ * is known. The deadline bounds the connection and the response through their
+ * timeouts, and the streaming of a body, which has no timeout, by
+ * disconnecting when it passes.
+ */
+public class JdkHttpTransport implements Transport {
+	private static final Logger _logger = LoggerFactory.getLogger(JdkHttpTransport.class);
+	private static final String UTF_8 = "UTF-8";
+
+	private final URL mmcUrl;
+	private final String authorization;
+	private final ConnectionSettings settings;
+	private final Semaphore permits;
+	private ScheduledExecutorService watchdog;
+
+	public JdkHttpTransport(URL mmcUrl, String username, String password, ConnectionSettings settings) {
+		this.mmcUrl = mmcUrl;
+		try {
+			this.authorization = "Basic " + Base64Utility.encode((username + ":" + password).getBytes(UTF_8));
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		this.settings = settings;
+		this.permits = new Semaphore(Math.max(1, settings.maxConcurrentRequests), true);
+	}
+
+	@Override
+	public TransportResponse send(TransportRequest request, Deadline deadline) throws IOException {
+		_acquire(deadline);
+		HttpURLConnection connection = null;
+		try {
+			deadline.check(request.toString());
+			connection = (HttpURLConnection) new URL(_toUrl(request)).openConnection();
+			connection.setRequestMethod(request.method);
+			connection.setUseCaches(false);
+			connection.setConnectTimeout((int) Math.min(Integer.MAX_VALUE, deadline.clamp(settings.connectTimeoutMs)));
+			connection.setReadTimeout((int) Math.min(Integer.MAX_VALUE, deadline.clamp(settings.receiveTimeoutMs)));
+			connection.setRequestProperty("Authorization", authorization);
+			connection.setRequestProperty("Accept", "application/json");
+			_writeBody(connection, request, deadline);
+
+			int status = connection.getResponseCode();
+			InputStream body = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+			return new TransportResponse(status, body) {
+				@Override
+				protected void released() {
+					permits.release();
+				}
+			};
+		} catch (IOException | RuntimeException | Error e) {
+			if (connection != null) {
+				// Do not put a connection in an unknown state back into the
+				// keep-alive cache
+				connection.disconnect();
+			}
+			permits.release();
+			throw e;
+		}
+	}
+
+	/**
+	 * Stops the watchdog of the bodies being sent. The idle connections are
+	 * closed by the keep-alive cache of the JDK.
+	 */
+	@Override
+	public synchronized void close() {
+		if (watchdog != null) {
+			watchdog.shutdownNow();
+			watchdog = null;
+		}
+	}
+
+	private synchronized ScheduledExecutorService _getWatchdog() {
+		if (watchdog == null) {
+			watchdog = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "mmc-upload-watchdog");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return watchdog;
+	}
+
+	private void _acquire(Deadline deadline) throws InterruptedIOException {
+		try {
+			if (!deadline.isBounded()) {
+				permits.acquire();
+			} else if (!permits.tryAcquire(deadline.getRemainingMs(), TimeUnit.MILLISECONDS)) {
+				throw new DeadlineExceededException("Deadline exceeded while waiting for a connection to the MMC");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for a connection to the MMC");
+		}
+	}
+
+	private void _writeBody(final HttpURLConnection connection, TransportRequest request, Deadline deadline) throws IOException {
+		boolean sendsBody = "POST".equals(request.method) || "PUT".equals(request.method);
+		if (request.body != null) {
+			long contentLength = request.body.getContentLength();
+			connection.setDoOutput(true);
+			connection.setRequestProperty("Content-Type", request.body.getContentType());
+			if (contentLength >= 0) {
+				connection.setFixedLengthStreamingMode(contentLength);
+			} else {
+				connection.setChunkedStreamingMode(MultipartUpload.BUFFER_SIZE);
+			}
+			_logger.trace("{} {} bytes", request.method, contentLength);
+			// A write blocked by a MMC which stopped reading only ends when
+			// the connection is closed
+			final AtomicBoolean expired = new AtomicBoolean();
+			ScheduledFuture<?> disconnection = null;
+			if (deadline.isBounded()) {
+				disconnection = _getWatchdog().schedule(new Runnable() {
+					@Override
+					public void run() {
+						expired.set(true);
+						connection.disconnect();
+					}
+				}, deadline.getRemainingMs(), TimeUnit.MILLISECONDS);
+			}
+			try {
+				OutputStream outputStream = connection.getOutputStream();
+				try {
+					request.body.writeTo(outputStream);
+				} finally {
+					outputStream.close();
+				}
+			} catch (IOException e) {
+				if (expired.get() || deadline.isExpired()) {
+					DeadlineExceededException deadlineExceededException = new DeadlineExceededException("Deadline exceeded while sending " + request);
+					deadlineExceededException.initCause(e);
+					throw deadlineExceededException;
+				}
+				throw e;
+			} finally {
+				if (disconnection != null) {
+					disconnection.cancel(false);
+				}
+			}
+		} else if (request.entity != null || sendsBody) {
+			byte[] entity = request.entity == null ? new byte[0] : request.entity.getBytes(UTF_8);
+			connection.setDoOutput(true);
+			if (request.contentType != null) {
+				connection.setRequestProperty("Content-Type", request.contentType);
+			}
+			connection.setFixedLengthStreamingMode(entity.length);
+			OutputStream outputStream = connection.getOutputStream();
+			try {
+				outputStream.write(entity);
+			} finally {
+				outputStream.close();
+			}
+		}
+	}
+
+	private String _toUrl(TransportRequest request) throws IOException {
+		StringBuilder url = new StringBuilder(mmcUrl.toString());
+		if (url.charAt(url.length() - 1) == '/') {
+			url.setLength(url.length() - 1);
+		}
+		for (String segment : request.path) {
+			url.append('/').append(_encode(segment));
+		}
+		char separator = '?';
+		for (Map.Entry<String, String> parameter : request.query.entrySet()) {
+			url.append(separator).append(_encode(parameter.getKey())).append('=').append(_encode(parameter.getValue()));
+			separator = '&';
+		}
+		return url.toString();
+	}
+
+	private static String _encode(String value) throws IOException {
+		return URLEncoder.encode(value, UTF_8).replace("+", "%20");
+	}
+}
@@ -0,0 +1,154 @@
+package org.mule.tools.mmc.rest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+import org.codehaus.jackson.map.MappingJsonFactory;
+
+/**
+ * Streaming reader of the list documents returned by the MMC, shaped like
+ * <code>{"total": 2, "data": [{...}, {...}]}</code>.
+ *
+ * The elements of the <code>data</code> array are handed one at a time to an
+ * {@link ElementHandler} straight from the response stream, so the memory used
+ * does not depend on the size of the list and reading stops as soon as the
+ * handler has found what it was looking for.
+ */
+class JsonListReader {
+	private static final JsonFactory JSON_FACTORY = new MappingJsonFactory();
+
+	/**
+	 * Handles the elements of the <code>data</code> array
+	 */
+	interface ElementHandler {
+		/**
+		 * Called with the parser positioned on the START_OBJECT token of an
+		 * element. The handler must consume the element up to its END_OBJECT
+		 * token.
+		 *
+		 * @return false to stop reading the list
+		 */
+		boolean handle(JsonParser parser) throws IOException;
+	}
+
+	/**
+	 * Page of a list: some elements of the <code>data</code> array and the
+	 * <code>total</code> number of elements of the list
+	 */
+	static class Page {
+		/**
+		 * Total number of elements of the list, -1 if not given
+		 */
+		long total = -1;
+		final List<JsonNode> elements = new ArrayList<JsonNode>();
+	}
+
+	private JsonListReader() {
+	}
+
+	/**
+	 * Hands the elements of the <code>data</code> array to the handler until
+	 * the handler asks to stop or the array ends. The stream is closed when
+	 * this method returns.
+	 */
+	static void read(InputStream inputStream, ElementHandler handler) throws IOException {
+		JsonParser parser = JSON_FACTORY.createJsonParser(inputStream);
+		try {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				return;
+			}
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String fieldName = parser.getCurrentName();
+				JsonToken token = parser.nextToken();
+				if ("data".equals(fieldName) && token == JsonToken.START_ARRAY) {
+					while ((token = parser.nextToken()) != null && token != JsonToken.END_ARRAY) {
+						if (token != JsonToken.START_OBJECT) {
+							parser.skipChildren();
+						} else if (!handler.handle(parser)) {
+							return;
+						}
+					}
+					return;
+				}
+				parser.skipChildren();
+			}
+		} finally {
+			parser.close();
+		}
+	}
+
+	/**
+	 * Reads a page of a list: all the elements of the <code>data</code> array
+	 * and the <code>total</code> field, wherever it is. The stream is closed
+	 * when this method returns.
+	 */
+	static Page readPage(InputStream inputStream) throws IOException {
+		Page page = new Page();
+		JsonParser parser = JSON_FACTORY.createJsonParser(inputStream);
+		try {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				return page;
+			}
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String fieldName = parser.getCurrentName();
+				JsonToken token = parser.nextToken();
+				if ("data".equals(fieldName) && token == JsonToken.START_ARRAY) {
+					while ((token = parser.nextToken()) != null && token != JsonToken.END_ARRAY) {
+						if (token != JsonToken.START_OBJECT) {
+							parser.skipChildren();
+						} else {
+							page.elements.add(parser.<JsonNode> readValueAsTree());
+						}
+					}
+				} else if ("total".equals(fieldName) && token == JsonToken.VALUE_NUMBER_INT) {
+					page.total = parser.getLongValue();
+				} else {
+					parser.skipChildren();
+				}
+			}
+		} finally {
+			parser.close();
+		}
+		return page;
+	}
+
+	/**
+	 * Returns the first element of the <code>data</code> array whose given
+	 * field has the given text value, or null if there is none. Reading stops
+	 * at the first match.
+	 */
+	static JsonNode findFirst(InputStream inputStream, final String fieldName, final String value) throws IOException {
+		final JsonNode[] found = new JsonNode[1];
+		read(inputStream, new ElementHandler() {
+			@Override
+			public boolean handle(JsonParser parser) throws IOException {
+				JsonNode elementNode = parser.readValueAsTree();
+				if (value.equals(elementNode.path(fieldName).getTextValue())) {
+					found[0] = elementNode;
+					return false;
+				}
+				return true;
+			}
+		});
+		return found[0];
+	}
+
+	/**
+	 * Moves to the value of the current field and returns it if it is a
+	 * string, skips it and returns null otherwise
+	 */
+	static String nextTextValue(JsonParser parser) throws IOException {
+		JsonToken token = parser.nextToken();
+		if (token == JsonToken.VALUE_STRING) {
+			return parser.getText();
+		}
+		parser.skipChildren();
+		return null;
+	}
+}
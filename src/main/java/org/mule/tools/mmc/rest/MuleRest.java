@@ -1,43 +1,73 @@
 package org.mule.tools.mmc.rest;
 
+import java.io.Closeable;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.io.StringWriter;
 import java.net.URL;
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.ws.rs.core.MediaType;
-import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 
 import org.apache.cxf.common.util.StringUtils;
 import org.apache.cxf.helpers.IOUtils;
-import org.apache.cxf.jaxrs.client.WebClient;
-import org.apache.cxf.jaxrs.ext.multipart.Attachment;
-import org.apache.cxf.jaxrs.ext.multipart.AttachmentBuilder;
-import org.apache.cxf.jaxrs.ext.multipart.ContentDisposition;
-import org.apache.cxf.jaxrs.ext.multipart.MultipartBody;
-import org.apache.cxf.transport.http.HTTPConduit;
 import org.apache.cxf.transport.http.HTTPException;
 import org.codehaus.jackson.JsonFactory;
 import org.codehaus.jackson.JsonGenerator;
 import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
 import org.codehaus.jackson.map.ObjectMapper;
+import org.mule.tools.mmc.rest.TopologyCache.TopologyKind;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class MuleRest {
+public class MuleRest implements Closeable {
+	public static final int DEFAULT_PAGE_SIZE = 100;
+
 	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
 	private static final Logger _logger = LoggerFactory.getLogger(MuleRest.class);
 	private static final String SNAPSHOT = "SNAPSHOT";
 
 	private URL mmcUrl;
-	private String username;
-	private String password;
+	private final Transport transport;
+	private final TopologyCache topologyCache = new TopologyCache();
+	private final RepositoryCatalog repositoryCatalog = new RepositoryCatalog();
+	private volatile UploadStatistics lastUploadStatistics;
+	private volatile ArchiveFingerprints archiveFingerprints;
+	private volatile RetryPolicy retryPolicy = new RetryPolicy();
+	private volatile CircuitBreaker circuitBreaker;
+	private volatile Deadline deadline = Deadline.NONE;
+	private volatile RequestListener requestListener;
+	private volatile CompletableFuture<DeploymentListing> prefetchedDeployments;
+	private final SingleFlight singleFlight = new SingleFlight();
+	private volatile boolean serverSideFiltering = true;
+	private volatile boolean serverSidePagination = true;
+	private volatile int pageSize = DEFAULT_PAGE_SIZE;
+	private final RepositoryCatalog.Loader repositoryCatalogLoader = new RepositoryCatalog.Loader() {
+		@Override
+		public void load(RepositoryCatalog catalog) throws IOException {
+			_restfullyLoadRepositoryCatalog(catalog);
+		}
+	};
 
 	/**
 	 * Constructor
@@ -47,46 +77,328 @@ public class MuleRest {
 	 * @param password
 	 */
 	public MuleRest(URL mmcUrl, String username, String password) {
-		this.mmcUrl = mmcUrl;
-		this.username = username;
-		this.password = password;
+		this(mmcUrl, username, password, new ConnectionSettings());
+	}
+
+	/**
+	 * Constructor
+	 * 
+	 * @param mmcUrl
+	 * @param username
+	 * @param password
+	 * @param connectionSettings
+	 *            Settings of the connections kept open to the MMC
+	 */
+	public MuleRest(URL mmcUrl, String username, String password, ConnectionSettings connectionSettings) {
+		this(mmcUrl, new CxfTransport(mmcUrl, username, password, connectionSettings));
 		_logger.debug("MMC URL: {}, Username: {}", mmcUrl, username);
 	}
 
-	private WebClient _getWebClient(String... paths) {
-		WebClient webClient = WebClient.create(mmcUrl.toString(), username, password, null);
-		HTTPConduit conduit = WebClient.getConfig(webClient).getHttpConduit();
-        conduit.getClient().setReceiveTimeout(1000000);
-		for (String path : paths) {
-			webClient.path(path);
+	/**
+	 * Constructor
+	 * 
+	 * @param mmcUrl
+	 * @param transport
+	 *            HTTP client sending the requests to the MMC, closed with the
+	 *            session
+	 */
+	public MuleRest(URL mmcUrl, Transport transport) {
+		this.mmcUrl = mmcUrl;
+		this.transport = transport;
+		this.circuitBreaker = new CircuitBreaker("MMC at " + mmcUrl, CircuitBreaker.DEFAULT_FAILURE_THRESHOLD, CircuitBreaker.DEFAULT_SLOW_CALL_THRESHOLD_MS, CircuitBreaker.DEFAULT_OPEN_DURATION_MS);
+	}
+
+	/**
+	 * Closes the connections kept open to the MMC
+	 */
+	@Override
+	public void close() {
+		transport.close();
+	}
+
+	/**
+	 * Returns the policy deciding whether failed requests are attempted again
+	 */
+	public RetryPolicy getRetryPolicy() {
+		return retryPolicy;
+	}
+
+	public void setRetryPolicy(RetryPolicy retryPolicy) {
+		this.retryPolicy = retryPolicy;
+	}
+
+	/**
+	 * Returns the breaker failing requests at once while the MMC looks
+	 * unhealthy
+	 */
+	public CircuitBreaker getCircuitBreaker() {
+		return circuitBreaker;
+	}
+
+	public void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+		this.circuitBreaker = circuitBreaker;
+	}
+
+	/**
+	 * Returns the deadline bounding the requests of the session
+	 */
+	public Deadline getDeadline() {
+		return deadline;
+	}
+
+	/**
+	 * Sets the deadline by which all the following requests of the session
+	 * must be over. Connection and receive timeouts, waits for a free
+	 * connection and retries are shortened to the time left, and requests fail
+	 * with a {@link DeadlineExceededException} once it has passed.
+	 * 
+	 * @param deadline
+	 *            The deadline, or {@link Deadline#NONE} to only apply the
+	 *            timeouts of the connection settings
+	 */
+	public void setDeadline(Deadline deadline) {
+		this.deadline = deadline == null ? Deadline.NONE : deadline;
+	}
+
+	/**
+	 * Sets the listener told of each request sent to the MMC, such as a
+	 * {@link RequestMetrics}
+	 * 
+	 * @param requestListener
+	 *            The listener or null to tell none
+	 */
+	public void setRequestListener(RequestListener requestListener) {
+		this.requestListener = requestListener;
+	}
+
+	public RequestListener getRequestListener() {
+		return requestListener;
+	}
+
+	/**
+	 * Sends at once the listings of the MMC inventory: the repository, the
+	 * server groups, the servers, the clusters and the deployments, instead of
+	 * one after the other when they are first needed. The lookups made later
+	 * are served from the loaded listings, and those made while a listing is
+	 * being loaded wait for it rather than sending their own request.
+	 * 
+	 * The prefetched deployments only serve the lookups of deployments by
+	 * name, for as long as the topology is cached and until a deployment is
+	 * changed through this session.
+	 * 
+	 * @return A future completing once all the listings are loaded. A listing
+	 *         which can't be loaded is only logged, the lookups needing it
+	 *         send their own request.
+	 */
+	public CompletableFuture<Void> prefetchInventory() {
+		List<RetryPolicy.Request<?>> listings = new ArrayList<RetryPolicy.Request<?>>();
+		listings.add(new RetryPolicy.Request<Void>() {
+			@Override
+			public Void execute() throws IOException {
+				repositoryCatalog.load(repositoryCatalogLoader);
+				return null;
+			}
+		});
+		for (final TopologyKind kind : TopologyKind.values()) {
+			listings.add(new RetryPolicy.Request<TopologyCache.Snapshot>() {
+				@Override
+				public TopologyCache.Snapshot execute() throws IOException {
+					return _getTopology(kind);
+				}
+			});
 		}
-		if (_logger.isTraceEnabled()) {
-			StringBuilder sb = new StringBuilder();
-			for (String path : paths) {
-				sb.append('/');
-				sb.append(path);
+		final CompletableFuture<DeploymentListing> deploymentListing = new CompletableFuture<DeploymentListing>();
+		prefetchedDeployments = deploymentListing;
+		listings.add(new RetryPolicy.Request<Void>() {
+			@Override
+			public Void execute() throws IOException {
+				try {
+					deploymentListing.complete(_restfullyListDeployments());
+				} finally {
+					// Lookups fall back to their own request
+					deploymentListing.complete(null);
+				}
+				return null;
+			}
+		});
+
+		final AtomicInteger threadCount = new AtomicInteger();
+		ExecutorService executorService = Executors.newFixedThreadPool(listings.size(), new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "mmc-prefetch-" + threadCount.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		try {
+			CompletableFuture<?>[] loads = new CompletableFuture<?>[listings.size()];
+			for (int i = 0; i < listings.size(); i++) {
+				final RetryPolicy.Request<?> listing = listings.get(i);
+				loads[i] = CompletableFuture.runAsync(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							listing.execute();
+						} catch (Exception e) {
+							_logger.warn("Unable to prefetch the MMC inventory: " + e);
+						}
+					}
+				}, executorService);
 			}
-			_logger.trace("WebClient path: "+sb.toString());
+			return CompletableFuture.allOf(loads);
+		} finally {
+			// The threads end with their listing
+			executorService.shutdown();
 		}
-		return webClient;
 	}
 
-	private String _processResponse(Response response) throws IOException {
-		int statusCode = response.getStatus();
-		String responseText = IOUtils.toString((InputStream) response.getEntity());
+	/**
+	 * Sends a request through the circuit breaker, retrying it according to
+	 * the retry policy, within the deadline of the session
+	 */
+	private <T> T _execute(String description, final RetryPolicy.Request<T> request) throws IOException {
+		return retryPolicy.execute(description, new RetryPolicy.Request<T>() {
+			@Override
+			public T execute() throws IOException {
+				return circuitBreaker.execute(request);
+			}
+		}, deadline);
+	}
+
+	/**
+	 * Reads the body of a successful response
+	 */
+	private interface ResponseReader<T> {
+		T read(InputStream inputStream) throws IOException;
+	}
 
+	private static final ResponseReader<String> TEXT_READER = new ResponseReader<String>() {
+		@Override
+		public String read(InputStream inputStream) throws IOException {
+			// Reading the whole body lets the connection go back to the
+			// keep-alive pool
+			return IOUtils.toString(inputStream);
+		}
+	};
+
+	/**
+	 * Sends a request through the circuit breaker, retrying it according to
+	 * the retry policy, within the deadline of the session, and reads the body
+	 * of its response
+	 */
+	private <T> T _execute(String description, final TransportRequest request, final ResponseReader<T> responseReader) throws IOException {
+		return _execute(description, new RetryPolicy.Request<T>() {
+			private int attempt;
+
+			@Override
+			public T execute() throws IOException {
+				return _send(request, responseReader, ++attempt);
+			}
+		});
+	}
+
+	/**
+	 * Sends a request once and reads the body of its response, or throws the
+	 * {@link HTTPException} matching the status of an unsuccessful one
+	 */
+	private <T> T _send(TransportRequest request, ResponseReader<T> responseReader, int attempt) throws IOException {
+		_logger.trace("{}", request);
+		RequestRecord record = new RequestRecord(request, attempt);
+		long startTime = System.currentTimeMillis();
+		CountingInputStream responseStream = null;
+		try {
+			TransportResponse response = transport.send(request, deadline);
+			try {
+				record.status = response.status;
+				responseStream = new CountingInputStream(response.body);
+				return responseReader.read(_processResponseStream(response.status, responseStream));
+			} finally {
+				response.close();
+			}
+		} finally {
+			_record(record, startTime, responseStream);
+		}
+	}
+
+	/**
+	 * Hands the figures of a request over to the request listener, if any
+	 */
+	private void _record(RequestRecord record, long startTime, CountingInputStream responseStream) {
+		RequestListener listener = requestListener;
+		if (listener == null) {
+			return;
+		}
+		record.latencyMs = System.currentTimeMillis() - startTime;
+		record.responseBytes = responseStream == null ? 0 : responseStream.getCount();
+		try {
+			listener.requestCompleted(record);
+		} catch (RuntimeException e) {
+			_logger.warn("Request listener failed on " + record.method + " " + record.endpoint, e);
+		}
+	}
+
+	/**
+	 * Gets a list from the MMC, asking it to filter the elements. If the MMC
+	 * rejects the filters, the whole list is requested instead, and the
+	 * filters are not sent any more during the session. The reader must
+	 * filter the elements itself as well, a MMC may also ignore the filters.
+	 * 
+	 * @param query
+	 *            Query parameters always sent
+	 * @param filters
+	 *            Query parameters sent while the MMC accepts them
+	 */
+	private <T> T _getList(String description, Map<String, String> query, Map<String, String> filters, ResponseReader<T> listReader, String... paths) throws IOException {
+		if (!filters.isEmpty() && serverSideFiltering) {
+			Map<String, String> filteredQuery = new LinkedHashMap<String, String>(query);
+			filteredQuery.putAll(filters);
+			try {
+				return _getList(description, filteredQuery, listReader, paths);
+			} catch (HTTPException he) {
+				if (he.getResponseCode() != Status.BAD_REQUEST.getStatusCode() && he.getResponseCode() != Status.NOT_FOUND.getStatusCode()) {
+					throw he;
+				}
+				_logger.info("The MMC does not support filtering " + filters.keySet() + " (" + he.getResponseCode() + "), filtering the lists on the client");
+				serverSideFiltering = false;
+			}
+		}
+		return _getList(description, query, listReader, paths);
+	}
+
+	private <T> T _getList(String description, Map<String, String> query, ResponseReader<T> listReader, String... paths) throws IOException {
+		TransportRequest request = new TransportRequest("GET", paths);
+		request.query.putAll(query);
+		return _execute(description, request, listReader);
+	}
+
+	/**
+	 * Returns the body of a successful response, or throws the {@link HTTPException} matching the
+	 * status of an unsuccessful one
+	 */
+	private InputStream _processResponseStream(int statusCode, InputStream responseStream) throws IOException {
 		if (statusCode == Status.OK.getStatusCode() || statusCode == Status.CREATED.getStatusCode()) {
-			return responseText;
+			return responseStream;
+		}
+		String responseText;
+		try {
+			responseText = IOUtils.toString(responseStream);
+		} finally {
+			responseStream.close();
 		}
+		throw _createHttpException(statusCode, responseText);
+	}
+
+	private HTTPException _createHttpException(int statusCode, String responseText) {
 		_logger.trace("MMC Response: {}", responseText);
 		if (statusCode == Status.NOT_FOUND.getStatusCode()) {
-			throw new HTTPException(statusCode, "The resource was not found.", mmcUrl);
+			return new HTTPException(statusCode, "The resource was not found.", mmcUrl);
 		} else if (statusCode == Status.CONFLICT.getStatusCode()) {
-			throw new HTTPException(statusCode, "The operation was unsuccessful because a resource with that name already exists.", mmcUrl);
+			return new HTTPException(statusCode, "The operation was unsuccessful because a resource with that name already exists.", mmcUrl);
 		} else if (statusCode == Status.INTERNAL_SERVER_ERROR.getStatusCode()) {
-			throw new HTTPException(statusCode, "The operation was unsuccessful.", mmcUrl);
+			return new HTTPException(statusCode, "The operation was unsuccessful.", mmcUrl);
 		} else {
-			throw new HTTPException(statusCode, "Unexpected MMC returned status code \"" + statusCode + "\". Response was \"" + responseText + "\".", mmcUrl);
+			return new HTTPException(statusCode, "Unexpected MMC returned status code \"" + statusCode + "\". Response was \"" + responseText + "\".", mmcUrl);
 		}
 	}
 
@@ -106,105 +418,151 @@ public class MuleRest {
 	 * @throws Exception
 	 */
 	public String restfullyCreateDeployment(String targetServerName, String name, String versionId) throws IOException {
-		_logger.trace("START: restfullyCreateDeployment");
-		String serverOrGroupId = restfullyGetServerGroupId(targetServerName);
-		if (StringUtils.isEmpty(serverOrGroupId)) {
-			serverOrGroupId = restfullyGetServerId(targetServerName);
-		}
-		String clusterId = null;
-		if (StringUtils.isEmpty(serverOrGroupId)) {
-			clusterId = restfullyGetClusterId(targetServerName);
-		}
-
-		if (StringUtils.isEmpty(serverOrGroupId) && StringUtils.isEmpty(clusterId)) {
-			throw new IllegalArgumentException("No group, server or cluster named \"" + targetServerName + "\" found");
-		}
+		return restfullyCreateDeployment(restfullyPrepareDeployment(targetServerName, name), versionId);
+	}
 
-		JsonNode deployment = restfullyGetDeploymentByName(name, serverOrGroupId, clusterId);
+	/**
+	 * Resolves the target of a deployment and looks up the deployment already
+	 * bearing its name. The plan does not depend on the application version,
+	 * so it can be made while the application is uploaded.
+	 * 
+	 * @param targetServerName
+	 *            Name of the server, group or cluster where to deploy the
+	 *            application
+	 * @param name
+	 *            Name of the deployment
+	 * @throws IllegalArgumentException
+	 *             If there is no server, group or cluster with this name
+	 */
+	public DeploymentPlan restfullyPrepareDeployment(String targetServerName, String name) throws IOException {
+		return restfullyPrepareDeployment(Collections.singletonList(targetServerName), name);
+	}
 
-		WebClient webClient = _getWebClient("deployments");
-		webClient.type(MediaType.APPLICATION_JSON_TYPE);
+	/**
+	 * Same as {@link #restfullyPrepareDeployment(String, String)}, for a
+	 * single deployment holding several servers, groups or clusters. An
+	 * existing deployment keeps the targets it has.
+	 * 
+	 * @param targetServerNames
+	 *            Names of the servers, groups or clusters where to deploy the
+	 *            application
+	 * @param name
+	 *            Name of the deployment
+	 * @throws IllegalArgumentException
+	 *             If there is no server, group or cluster with one of the
+	 *             names
+	 */
+	public DeploymentPlan restfullyPrepareDeployment(List<String> targetServerNames, String name) throws IOException {
+		_logger.trace("START: restfullyPrepareDeployment");
 		try {
-			if (deployment != null) {
-				String oldVersionId = null;
-				if (deployment.path("applications").has(0)) {
-					oldVersionId = deployment.path("applications").get(0).asText();
+			DeploymentPlan deploymentPlan = new DeploymentPlan();
+			deploymentPlan.name = name;
+			for (String targetServerName : targetServerNames) {
+				String serverOrGroupId = restfullyGetServerGroupId(targetServerName);
+				if (StringUtils.isEmpty(serverOrGroupId)) {
+					serverOrGroupId = restfullyGetServerId(targetServerName);
 				}
-				_logger.info("oldVersionId: "+oldVersionId+", versionId: "+versionId);
-				if (!versionId.equals(oldVersionId)) {
-					if (oldVersionId != null) {
-						webClient.path(deployment.path("id").getTextValue());
-						webClient.path("remove");
-						
-						String deploymentJson = createDeploymentJSON(name,deployment.path("lastModified").getTextValue(), deployment.path("applications").get(0).asText());
-						
-						deployment = doHttpRequest("PUT", deploymentJson, webClient);
-						
-						webClient.back(false);
-						webClient.back(false);
-					}
-					String deploymentJson = createDeploymentJSON(name, deployment.path("lastModified").getTextValue(), versionId);
-					webClient.path(deployment.path("id").getTextValue());
-					webClient.path("add");
-					
-					deployment = doHttpRequest("PUT", deploymentJson, webClient);
-					return deployment.path("id").getTextValue();
+				String clusterId = null;
+				if (StringUtils.isEmpty(serverOrGroupId)) {
+					clusterId = restfullyGetClusterId(targetServerName);
+				}
+
+				if (StringUtils.isEmpty(serverOrGroupId) && StringUtils.isEmpty(clusterId)) {
+					throw new IllegalArgumentException("No group, server or cluster named \"" + targetServerName + "\" found");
+				}
+
+				deploymentPlan.targetServerNames.add(targetServerName);
+				if (!StringUtils.isEmpty(serverOrGroupId)) {
+					deploymentPlan.serverOrGroupIds.add(serverOrGroupId);
+				} else {
+					deploymentPlan.clusterIds.add(clusterId);
 				}
-				return null;
 			}
-			else {
-				String deploymentJson = createDeploymentJSON(name, null, versionId, serverOrGroupId, clusterId);
-	
-				JsonNode jsonNode =  doHttpRequest("POST", deploymentJson, webClient);
-				String deploymentId = jsonNode.path("id").getTextValue();
-	
-				_logger.info("Deployment successfully created with id \"" + deploymentId + "\"");
-	
-				return deploymentId;
+			deploymentPlan.deployment = restfullyGetDeploymentByName(name, deploymentPlan.serverOrGroupIds.isEmpty() ? null : deploymentPlan.serverOrGroupIds.get(0), deploymentPlan.clusterIds.isEmpty() ? null : deploymentPlan.clusterIds.get(0));
+			return deploymentPlan;
+		} finally {
+			_logger.trace("END: restfullyPrepareDeployment");
+		}
+	}
+
+	/**
+	 * Creates or updates the deployment of a plan without deploying it. If
+	 * the deployment was changed by someone else since the plan was made, the
+	 * plan is made again once.
+	 * 
+	 * @param versionId
+	 *            Version id of an application on the repository
+	 * @return Returns the id of the deployment, or null if it already holds
+	 *         this version
+	 */
+	public String restfullyCreateDeployment(DeploymentPlan deploymentPlan, String versionId) throws IOException {
+		_logger.trace("START: restfullyCreateDeployment");
+		try {
+			try {
+				return _createDeployment(deploymentPlan, versionId);
+			} catch (HTTPException he) {
+				if (he.getResponseCode() != Status.CONFLICT.getStatusCode() || deploymentPlan.deployment == null) {
+					throw he;
+				}
+				_logger.info("Deployment \"" + deploymentPlan.name + "\" changed since it was looked up, looking it up again");
+				return _createDeployment(restfullyPrepareDeployment(deploymentPlan.targetServerNames, deploymentPlan.name), versionId);
 			}
 		} finally {
-			webClient.close();
 			_logger.trace("END: restfullyCreateDeployment");
 		}
 	}
-	
-	private JsonNode doHttpRequest(String method, String body, WebClient webClient) throws IOException {
-		int retries = 0;
-		String responseText;
-		while (true) {
-			_logger.info(method+" \n"+body);
-			Response response;
-			if (method.equals("POST")) {
-				response = webClient.post(body);
-			}
-			else if (method.equals("PUT")) {
-				response = webClient.put(body);				
-			}
-			else {
-				throw new UnsupportedOperationException(method);
+
+	private String _createDeployment(DeploymentPlan deploymentPlan, String versionId) throws IOException {
+		_onDeploymentsChanged();
+		String name = deploymentPlan.name;
+		JsonNode deployment = deploymentPlan.deployment;
+
+		if (deployment != null) {
+			String oldVersionId = null;
+			if (deployment.path("applications").has(0)) {
+				oldVersionId = deployment.path("applications").get(0).asText();
 			}
-			
-			try {
-				responseText = _processResponse(response);
-				break;
-			} 
-			catch (HTTPException he) {
-				if (retries > 1) {
-					throw he;
+			_logger.info("oldVersionId: "+oldVersionId+", versionId: "+versionId);
+			if (!versionId.equals(oldVersionId)) {
+				if (oldVersionId != null) {
+					String deploymentJson = createDeploymentJSON(name,deployment.path("lastModified").getTextValue(), deployment.path("applications").get(0).asText());
+					
+					deployment = doHttpRequest("PUT", deploymentJson, "deployments", deployment.path("id").getTextValue(), "remove");
 				}
-				sleep(1000);
-				_logger.info("Retrying...");
-				retries++;
+				String deploymentJson = createDeploymentJSON(name, deployment.path("lastModified").getTextValue(), versionId);
+				
+				deployment = doHttpRequest("PUT", deploymentJson, "deployments", deployment.path("id").getTextValue(), "add");
+				return deployment.path("id").getTextValue();
 			}
+			return null;
 		}
+		else {
+			String deploymentJson = createDeploymentJSON(name, null, versionId, deploymentPlan.serverOrGroupIds, deploymentPlan.clusterIds);
+
+			JsonNode jsonNode =  doHttpRequest("POST", deploymentJson, "deployments");
+			String deploymentId = jsonNode.path("id").getTextValue();
+
+			_logger.info("Deployment successfully created with id \"" + deploymentId + "\"");
+
+			return deploymentId;
+		}
+	}
+
+	private JsonNode doHttpRequest(String method, String body, String... paths) throws IOException {
+		TransportRequest request = new TransportRequest(method, paths);
+		request.entity = body;
+		request.contentType = MediaType.APPLICATION_JSON;
+		_logger.info(method+" \n"+body);
+		String responseText = _execute(request.toString(), request, TEXT_READER);
 		return OBJECT_MAPPER.readTree(responseText);		
 	}
 	
-	private String createDeploymentJSON(String name, String lastModified, String appVersionId) throws IOException {
+	private static String createDeploymentJSON(String name, String lastModified, String appVersionId) throws IOException {
 		return createDeploymentJSON(name, lastModified, appVersionId, null, null);
 	}
 	
-	private String createDeploymentJSON(String name, String lastModified, String appVersionId, String serverId, String clusterId) throws IOException {
+	// Package-private for the benchmarks
+	static String createDeploymentJSON(String name, String lastModified, String appVersionId, List<String> serverIds, List<String> clusterIds) throws IOException {
 		StringWriter stringWriter = new StringWriter();
 		JsonFactory jfactory = new JsonFactory();
 		JsonGenerator jGenerator = jfactory.createJsonGenerator(stringWriter);
@@ -213,20 +571,24 @@ public class MuleRest {
 		jGenerator.writeStartArray(); // [
 		jGenerator.writeString(appVersionId); // "application version Id"
 		jGenerator.writeEndArray(); // ]
-		if (!StringUtils.isEmpty(clusterId)) { 
+		if (clusterIds != null && !clusterIds.isEmpty()) { 
 			jGenerator.writeFieldName("clusters"); // "clusters" :
 			jGenerator.writeStartArray(); // [
-			jGenerator.writeString(clusterId); // "clusterId"
+			for (String clusterId : clusterIds) {
+				jGenerator.writeString(clusterId); // "clusterId"
+			}
 			jGenerator.writeEndArray(); // ]
 		}
 		if (lastModified != null) {
 			jGenerator.writeStringField("lastModified", lastModified); // "lastModified" : lastModified
 		}
 		jGenerator.writeStringField("name", name); // "name" : name
-		if (!StringUtils.isEmpty(serverId)) { 
+		if (serverIds != null && !serverIds.isEmpty()) { 
 			jGenerator.writeFieldName("servers"); // "servers" :
 			jGenerator.writeStartArray(); // [
-			jGenerator.writeString(serverId); // "serverId"
+			for (String serverId : serverIds) {
+				jGenerator.writeString(serverId); // "serverId"
+			}
 			jGenerator.writeEndArray(); // ]
 		}
 		jGenerator.writeEndObject(); // }
@@ -237,28 +599,8 @@ public class MuleRest {
 
 	public void restfullyDeleteDeploymentById(String deploymentId) throws IOException {
 		_logger.trace("START: restfullyDeleteDeploymentById");
-		WebClient webClient = _getWebClient("deployments", deploymentId);
-
-		try {
-			int retries = 0;
-			while (true) {
-				try {
-					_logger.trace("DELETE");
-					Response response = webClient.delete();
-					_processResponse(response);
-					break;
-				} catch (HTTPException he) {
-					if (retries > 1) {
-						throw he;
-					}
-					sleep(1000);
-					_logger.info("Retrying...");
-					retries++;					
-				}
-			}
-		} finally {
-			webClient.close();
-		}
+		_onDeploymentsChanged();
+		_execute("Deletion of deployment \"" + deploymentId + "\"", new TransportRequest("DELETE", "deployments", deploymentId), TEXT_READER);
 		_logger.trace("END: restfullyDeleteDeploymentById");
 	}
 
@@ -271,30 +613,9 @@ public class MuleRest {
 	 */
 	public void restfullyDeployDeploymentById(String deploymentId) throws IOException {
 		_logger.trace("START: restfullyDeployDeploymentById");
-		WebClient webClient = _getWebClient("deployments", deploymentId, "deploy");
-
-		try {
-			int retries = 0;
-			while (true) {
-				_logger.trace("POST");
-				Response response = webClient.post(null);
-				try {
-					String responseText = _processResponse(response);
-					_logger.info("Application deployed with answer \"" + responseText + "\"");
-					break;
-				} 
-				catch (HTTPException he) {
-					if (retries > 1) {
-						throw he;
-					}
-					sleep(1000);
-					_logger.info("Retrying...");
-					retries++;					
-				}
-			}
-		} finally {
-			webClient.close();
-		}
+		_onDeploymentsChanged();
+		String responseText = _execute("Deployment of deployment \"" + deploymentId + "\"", new TransportRequest("POST", "deployments", deploymentId, "deploy"), TEXT_READER);
+		_logger.info("Application deployed with answer \"" + responseText + "\"");
 		_logger.trace("END: restfullyDeployDeploymentById");
 	}
 
@@ -305,33 +626,55 @@ public class MuleRest {
 	 * @return
 	 * @throws IOException
 	 */
-	public String restfullyGetDeploymentIdByName(String deploymentName, String serverId, String clusterId) throws IOException {
+	public String restfullyGetDeploymentIdByName(final String deploymentName, final String serverId, final String clusterId) throws IOException {
+		return singleFlight.execute("deployment id of " + deploymentName + " on " + serverId + "/" + clusterId, new RetryPolicy.Request<String>() {
+			@Override
+			public String execute() throws IOException {
+				return _restfullyGetDeploymentIdByName(deploymentName, serverId, clusterId);
+			}
+		});
+	}
+
+	private String _restfullyGetDeploymentIdByName(final String deploymentName, String serverId, String clusterId) throws IOException {
 		_logger.trace("START: restfullyGetDeploymentIdByName");
-		WebClient webClient = _getWebClient("deployments");
+		Map<String, String> query = new LinkedHashMap<String, String>();
 		if (serverId != null) {
-			webClient.query("serverId", serverId);
+			query.put("serverId", serverId);
 		}
 		else if (clusterId != null) {
-			webClient.query("clusterId", clusterId);			
+			query.put("clusterId", clusterId);
 		}
 
-		String deploymentId = null;
-		try {
-			_logger.trace("GET");
-			Response response = webClient.get();
-
-			String responseText = _processResponse(response);
-			JsonNode jsonNode = OBJECT_MAPPER.readTree(responseText);
-			JsonNode deploymentsNode = jsonNode.path("data");
-			for (JsonNode deploymentNode : deploymentsNode) {
-				if (deploymentName.equals(deploymentNode.path("name").getTextValue())) {
-					deploymentId = deploymentNode.path("id").getTextValue();
-					break;
-				}
+		String deploymentId = _getList("Deployment named \"" + deploymentName + "\"", query, Collections.singletonMap("name", deploymentName), new ResponseReader<String>() {
+			@Override
+			public String read(InputStream inputStream) throws IOException {
+				final String[] deploymentId = new String[1];
+				JsonListReader.read(inputStream, new JsonListReader.ElementHandler() {
+					@Override
+					public boolean handle(JsonParser parser) throws IOException {
+						String name = null;
+						String id = null;
+						while (parser.nextToken() == JsonToken.FIELD_NAME) {
+							String fieldName = parser.getCurrentName();
+							if ("name".equals(fieldName)) {
+								name = JsonListReader.nextTextValue(parser);
+							} else if ("id".equals(fieldName)) {
+								id = JsonListReader.nextTextValue(parser);
+							} else {
+								parser.nextToken();
+								parser.skipChildren();
+							}
+						}
+						if (deploymentName.equals(name)) {
+							deploymentId[0] = id;
+							return false;
+						}
+						return true;
+					}
+				});
+				return deploymentId[0];
 			}
-		} finally {
-			webClient.close();
-		}
+		}, "deployments");
 		_logger.trace("END: restfullyGetDeploymentIdByName");
 		return deploymentId;
 	}
@@ -343,33 +686,29 @@ public class MuleRest {
 	 * @return
 	 * @throws IOException
 	 */
-	public JsonNode restfullyGetDeploymentByName(String deploymentName, String serverId, String clusterId) throws IOException {
-		_logger.trace("START: restfullyGetDeploymentByName");
-		WebClient webClient = _getWebClient("deployments");
-//		if (serverId != null) {
-//			webClient.query("serverId", serverId);
-//		}
-//		else if (clusterId != null) {
-//			webClient.query("clusterId", clusterId);			
-//		}
-
-		JsonNode deployment = null;
-		try {
-			_logger.trace("GET");
-			Response response = webClient.get();
+	public JsonNode restfullyGetDeploymentByName(final String deploymentName, final String serverId, final String clusterId) throws IOException {
+		DeploymentListing deploymentListing = _getPrefetchedDeployments();
+		if (deploymentListing != null) {
+			return deploymentListing.deploymentsByName.get(deploymentName);
+		}
+		return singleFlight.execute("deployment " + deploymentName, new RetryPolicy.Request<JsonNode>() {
+			@Override
+			public JsonNode execute() throws IOException {
+				return _restfullyGetDeploymentByName(deploymentName, serverId, clusterId);
+			}
+		});
+	}
 
-			String responseText = _processResponse(response);
-			JsonNode jsonNode = OBJECT_MAPPER.readTree(responseText);
-			JsonNode deploymentsNode = jsonNode.path("data");
-			for (JsonNode deploymentNode : deploymentsNode) {
-				if (deploymentName.equals(deploymentNode.path("name").getTextValue())) {
-					deployment = deploymentNode;
-					break;
-				}
+	private JsonNode _restfullyGetDeploymentByName(final String deploymentName, String serverId, String clusterId) throws IOException {
+		_logger.trace("START: restfullyGetDeploymentByName");
+		// Not filtered by server or cluster, the deployment may have been
+		// moved to another target
+		JsonNode deployment = _getList("Deployment named \"" + deploymentName + "\"", Collections.<String, String> emptyMap(), Collections.singletonMap("name", deploymentName), new ResponseReader<JsonNode>() {
+			@Override
+			public JsonNode read(InputStream inputStream) throws IOException {
+				return JsonListReader.findFirst(inputStream, "name", deploymentName);
 			}
-		} finally {
-			webClient.close();
-		}
+		}, "deployments");
 		_logger.trace("END: restfullyGetDeploymentByName");
 		return deployment;
 	}
@@ -382,57 +721,306 @@ public class MuleRest {
 	 * @return
 	 * @throws IOException
 	 */
-	public DeploymentState restfullyGetDeploymentState(String deploymentId) throws IOException {
+	public DeploymentState restfullyGetDeploymentState(final String deploymentId) throws IOException {
+		return singleFlight.execute("state of deployment " + deploymentId, new RetryPolicy.Request<DeploymentState>() {
+			@Override
+			public DeploymentState execute() throws IOException {
+				return _restfullyGetDeploymentState(deploymentId);
+			}
+		});
+	}
+
+	private DeploymentState _restfullyGetDeploymentState(String deploymentId) throws IOException {
 		_logger.trace("START: restfullyGetDeploymentState");
-		WebClient webClient = _getWebClient("deployments", deploymentId);
 		try {
-			_logger.trace("GET");
-			Response response = webClient.get();
-			String responseText = _processResponse(response);
+			String responseText = _execute("State of deployment \"" + deploymentId + "\"", new TransportRequest("GET", "deployments", deploymentId), TEXT_READER);
 
 			JsonNode jsonNode = OBJECT_MAPPER.readTree(responseText);
-			DeploymentState deploymentState = new DeploymentState();
-			deploymentState.reconciled = jsonNode.path("reconciled").getBooleanValue();
-			deploymentState.status = DeploymentStatus.valueOf(jsonNode.path("status").getTextValue().toUpperCase());
-			deploymentState.href = jsonNode.path("href").getTextValue();
-			deploymentState.name = jsonNode.path("name").getTextValue();
+			DeploymentState deploymentState = _toDeploymentState(jsonNode);
 
 			return deploymentState;
 
 		} finally {
-			webClient.close();
 			_logger.trace("END: restfullyGetDeploymentState");
 		}
 	}
 
-	public String restfullyGetApplicationId(String name, String version) throws IOException {
-		_logger.trace("START: restfullyGetApplicationId");
-		WebClient webClient = _getWebClient("repository");
+	/**
+	 * Get the state of all the deployments with a single request
+	 * 
+	 * @return The deployment states by deployment id
+	 * @throws IOException
+	 */
+	public Map<String, DeploymentState> restfullyGetDeploymentStates() throws IOException {
+		return restfullyGetDeploymentStates(null);
+	}
 
-		String applicationId = null;
-		try {
-			_logger.trace("GET");
-			Response response = webClient.get();
+	/**
+	 * Get the state of some deployments with a single request listing all the
+	 * deployments. The other deployments are not read, so that a deployment
+	 * the plugin can't make sense of doesn't get in the way.
+	 * 
+	 * @param deploymentIds
+	 *            Ids of the deployments, or null for all of them
+	 * @return The deployment states by deployment id, without the deployments
+	 *         not found
+	 * @throws IOException
+	 */
+	public Map<String, DeploymentState> restfullyGetDeploymentStates(Collection<String> deploymentIds) throws IOException {
+		final Set<String> ids = deploymentIds == null ? null : new TreeSet<String>(deploymentIds);
+		return singleFlight.execute(ids == null ? "state of the deployments" : "state of the deployments " + ids, new RetryPolicy.Request<Map<String, DeploymentState>>() {
+			@Override
+			public Map<String, DeploymentState> execute() throws IOException {
+				return _restfullyGetDeploymentStates(ids);
+			}
+		});
+	}
 
-			String responseText = _processResponse(response);
-			JsonNode jsonNode = OBJECT_MAPPER.readTree(responseText);
-			JsonNode applicationsNode = jsonNode.path("data");
-			for (JsonNode applicationNode : applicationsNode) {
-				if (name.equals(applicationNode.path("name").getTextValue())) {
-					JsonNode versionsNode = applicationNode.path("versions");
-					for (JsonNode versionNode : versionsNode) {
-						if (version.equals(versionNode.path("name").getTextValue())) {
-							applicationId = versionNode.get("id").getTextValue();
-							break;
+	private Map<String, DeploymentState> _restfullyGetDeploymentStates(final Set<String> deploymentIds) throws IOException {
+		_logger.trace("START: restfullyGetDeploymentStates");
+		Map<String, DeploymentState> deploymentStates = _execute("State of the deployments", new TransportRequest("GET", "deployments"), new ResponseReader<Map<String, DeploymentState>>() {
+			@Override
+			public Map<String, DeploymentState> read(InputStream inputStream) throws IOException {
+				final Map<String, DeploymentState> deploymentStates = new HashMap<String, DeploymentState>();
+				JsonListReader.read(inputStream, new JsonListReader.ElementHandler() {
+					@Override
+					public boolean handle(JsonParser parser) throws IOException {
+						JsonNode jsonNode = parser.readValueAsTree();
+						if (deploymentIds != null && !deploymentIds.contains(jsonNode.path("id").getTextValue())) {
+							return true;
+						}
+						if (jsonNode.path("id").isTextual() && jsonNode.path("status").isTextual()) {
+							DeploymentState deploymentState = _toDeploymentState(jsonNode);
+							deploymentStates.put(deploymentState.id, deploymentState);
 						}
+						return true;
+					}
+				});
+				return deploymentStates;
+			}
+		});
+		_logger.trace("END: restfullyGetDeploymentStates");
+		return deploymentStates;
+	}
+
+	/**
+	 * Returns the number of elements requested per page by the iterators
+	 */
+	public int getPageSize() {
+		return pageSize;
+	}
+
+	public void setPageSize(int pageSize) {
+		if (pageSize <= 0) {
+			throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+		}
+		this.pageSize = pageSize;
+	}
+
+	/**
+	 * Iterates over the deployments, requesting them one page at a time as
+	 * they are consumed, see {@link PageIterator}
+	 */
+	public PageIterator restfullyIterateDeployments() {
+		return _iterate("Deployment list", "deployments");
+	}
+
+	/**
+	 * Iterates over the applications of the repository, requesting them one
+	 * page at a time as they are consumed, see {@link PageIterator}
+	 */
+	public PageIterator restfullyIterateApplications() {
+		return _iterate("Repository", "repository");
+	}
+
+	/**
+	 * Iterates over the servers, requesting them one page at a time as they
+	 * are consumed, see {@link PageIterator}
+	 */
+	public PageIterator restfullyIterateServers() {
+		return _iterate("Server list", "servers");
+	}
+
+	private PageIterator _iterate(final String description, final String... paths) {
+		final ResponseReader<JsonListReader.Page> pageReader = new ResponseReader<JsonListReader.Page>() {
+			@Override
+			public JsonListReader.Page read(InputStream inputStream) throws IOException {
+				return JsonListReader.readPage(inputStream);
+			}
+		};
+		return new PageIterator(new PageIterator.PageLoader() {
+			@Override
+			public JsonListReader.Page load(int offset, int limit) throws IOException {
+				if (serverSidePagination) {
+					Map<String, String> query = new LinkedHashMap<String, String>();
+					query.put("offset", String.valueOf(offset));
+					query.put("limit", String.valueOf(limit));
+					try {
+						return _getList(description + " from " + offset, query, pageReader, paths);
+					} catch (HTTPException he) {
+						// Once a page has been read, the MMC does paginate
+						if (offset > 0 || (he.getResponseCode() != Status.BAD_REQUEST.getStatusCode() && he.getResponseCode() != Status.NOT_FOUND.getStatusCode())) {
+							throw he;
+						}
+						_logger.info("The MMC does not paginate the lists (" + he.getResponseCode() + "), requesting them whole");
+						serverSidePagination = false;
 					}
 				}
+				JsonListReader.Page page = _getList(description, Collections.<String, String> emptyMap(), pageReader, paths);
+				// The whole list is the only page
+				page.total = page.elements.size();
+				return page;
 			}
+		}, pageSize);
+	}
+
+	/**
+	 * Returns the number of lookups which were not sent to the MMC because an
+	 * identical one was already in flight, their callers sharing its result
+	 */
+	public long getCoalescedRequests() {
+		return singleFlight.getCoalescedRequests();
+	}
+
+	/**
+	 * Drops what was read about the deployments before a change made through
+	 * this session
+	 */
+	private void _onDeploymentsChanged() {
+		prefetchedDeployments = null;
+		singleFlight.forget();
+	}
+
+	/**
+	 * Returns the prefetched deployments, waiting for them if they are being
+	 * loaded, or null if they were not prefetched or are out of date
+	 */
+	private DeploymentListing _getPrefetchedDeployments() throws IOException {
+		CompletableFuture<DeploymentListing> prefetchedDeployments = this.prefetchedDeployments;
+		if (prefetchedDeployments == null) {
+			return null;
+		}
+		DeploymentListing deploymentListing;
+		try {
+			deploymentListing = prefetchedDeployments.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for the prefetched deployments");
+		} catch (ExecutionException e) {
+			return null;
+		}
+		if (deploymentListing == null || System.currentTimeMillis() - deploymentListing.loadTime >= topologyCache.getTtlMs()) {
+			return null;
+		}
+		return deploymentListing;
+	}
+
+	private DeploymentListing _restfullyListDeployments() throws IOException {
+		return _execute("Deployment list", new TransportRequest("GET", "deployments"), new ResponseReader<DeploymentListing>() {
+			@Override
+			public DeploymentListing read(InputStream inputStream) throws IOException {
+				final DeploymentListing deploymentListing = new DeploymentListing();
+				JsonListReader.read(inputStream, new JsonListReader.ElementHandler() {
+					@Override
+					public boolean handle(JsonParser parser) throws IOException {
+						JsonNode jsonNode = parser.readValueAsTree();
+						// The first deployment with a name wins, as with a lookup
+						if (jsonNode.path("name").isTextual() && !deploymentListing.deploymentsByName.containsKey(jsonNode.path("name").getTextValue())) {
+							deploymentListing.deploymentsByName.put(jsonNode.path("name").getTextValue(), jsonNode);
+						}
+						return true;
+					}
+				});
+				return deploymentListing;
+			}
+		});
+	}
+
+	/**
+	 * Deployments of a prefetched listing, by name
+	 */
+	private static class DeploymentListing {
+		final long loadTime = System.currentTimeMillis();
+		final Map<String, JsonNode> deploymentsByName = new HashMap<String, JsonNode>();
+	}
+
+	private static DeploymentState _toDeploymentState(JsonNode jsonNode) {
+		DeploymentState deploymentState = new DeploymentState();
+		deploymentState.id = jsonNode.path("id").getTextValue();
+		deploymentState.reconciled = jsonNode.path("reconciled").getBooleanValue();
+		deploymentState.status = DeploymentStatus.parse(jsonNode.path("status").getTextValue());
+		if (deploymentState.status == DeploymentStatus.UNKNOWN) {
+			_logger.warn("Unknown status \"" + jsonNode.path("status").getTextValue() + "\" of deployment \"" + deploymentState.id + "\"");
+		}
+		deploymentState.href = jsonNode.path("href").getTextValue();
+		deploymentState.name = jsonNode.path("name").getTextValue();
+		return deploymentState;
+	}
+
+	/**
+	 * Returns the id of the given application version on the repository or
+	 * null if not found. The lookup is served by the repository catalog of the
+	 * session, see {@link #getRepositoryCatalog()}.
+	 * 
+	 * @param name
+	 *            Name of the application on the repository
+	 * @param version
+	 *            Version of the application on the repository
+	 * @return
+	 * @throws IOException
+	 */
+	public String restfullyGetApplicationId(String name, String version) throws IOException {
+		_logger.trace("START: restfullyGetApplicationId");
+		try {
+			return repositoryCatalog.getVersionId(name, version, repositoryCatalogLoader);
 		} finally {
-			webClient.close();
+			_logger.trace("END: restfullyGetApplicationId");
+		}
+	}
+
+	/**
+	 * Returns the catalog of the application versions stored on the
+	 * repository
+	 */
+	public RepositoryCatalog getRepositoryCatalog() {
+		return repositoryCatalog;
+	}
+
+	private void _restfullyLoadRepositoryCatalog(final RepositoryCatalog catalog) throws IOException {
+		_logger.trace("START: _restfullyLoadRepositoryCatalog");
+		try {
+			_execute("Repository catalog", new TransportRequest("GET", "repository"), new ResponseReader<Void>() {
+				@Override
+				public Void read(InputStream inputStream) throws IOException {
+					JsonListReader.read(inputStream, new JsonListReader.ElementHandler() {
+						@Override
+						public boolean handle(JsonParser parser) throws IOException {
+							// The versions may come before the name of the application
+							String name = null;
+							List<String[]> versions = new ArrayList<String[]>();
+							while (parser.nextToken() == JsonToken.FIELD_NAME) {
+								String fieldName = parser.getCurrentName();
+								if ("name".equals(fieldName)) {
+									name = JsonListReader.nextTextValue(parser);
+								} else if ("versions".equals(fieldName)) {
+									versions = _readNamesAndIds(parser);
+								} else {
+									parser.nextToken();
+									parser.skipChildren();
+								}
+							}
+							for (String[] version : versions) {
+								catalog.addVersion(name, version[0], version[1]);
+							}
+							return true;
+						}
+					});
+					return null;
+				}
+			});
+		} finally {
+			_logger.trace("END: _restfullyLoadRepositoryCatalog");
 		}
-		_logger.trace("END: restfullyGetApplicationId");
-		return applicationId;
 	}
 
 	/**
@@ -444,24 +1032,9 @@ public class MuleRest {
 	 */
 	public final String restfullyGetServerGroupId(String serverGroupName) throws IOException {
 		_logger.trace("START: restfullyGetServerGroupId");
-		String serverGroupId = null;
-		WebClient webClient = _getWebClient("serverGroups");
 		try {
-			_logger.trace("GET");
-			Response response = webClient.get();
-
-			String responseText = _processResponse(response);
-			JsonNode jsonNode = OBJECT_MAPPER.readTree(responseText);
-			JsonNode groupsNode = jsonNode.path("data");
-			for (JsonNode groupNode : groupsNode) {
-				if (serverGroupName.equals(groupNode.path("name").getTextValue())) {
-					serverGroupId = groupNode.path("id").getTextValue();
-					break;
-				}
-			}
-			return serverGroupId;
+			return _getTopology(TopologyKind.SERVER_GROUP).getId(serverGroupName);
 		} finally {
-			webClient.close();
 			_logger.trace("END: restfullyGetServerGroupId");
 		}
 	}
@@ -475,29 +1048,7 @@ public class MuleRest {
 	 */
 	public Set<String> restfullyGetServerIdsInGroup(String serverGroupName) throws IOException {
 		_logger.trace("START: restfullyGetServerIdsInGroup");
-		Set<String> serversId = new TreeSet<String>();
-		WebClient webClient = _getWebClient("servers");
-
-		try {
-			_logger.trace("GET");
-			Response response = webClient.get();
-
-			String responseText = _processResponse(response);
-			JsonNode jsonNode = OBJECT_MAPPER.readTree(responseText);
-			JsonNode serversNode = jsonNode.path("data");
-			for (JsonNode serverNode : serversNode) {
-				String serverId = serverNode.path("id").getTextValue();
-
-				JsonNode groupsNode = serverNode.path("groups");
-				for (JsonNode groupNode : groupsNode) {
-					if (serverGroupName.equals(groupNode.path("name").getTextValue())) {
-						serversId.add(serverId);
-					}
-				}
-			}
-		} finally {
-			webClient.close();
-		}
+		Set<String> serversId = new TreeSet<String>(_getTopology(TopologyKind.SERVER).getServerIdsInGroup(serverGroupName));
 		_logger.trace("END: restfullyGetServerIdsInGroup");
 		return serversId;
 	}
@@ -511,25 +1062,9 @@ public class MuleRest {
 	 */
 	public String restfullyGetServerId(String serverName) throws IOException {
 		_logger.trace("START: restfullyGetServerId");
-		String serverId = null;
-		WebClient webClient = _getWebClient("servers");
-
 		try {
-			_logger.trace("GET");
-			Response response = webClient.get();
-			String responseText = _processResponse(response);
-			JsonNode jsonNode = OBJECT_MAPPER.readTree(responseText);
-			JsonNode serversNode = jsonNode.path("data");
-			for (JsonNode serverNode : serversNode) {
-				if (serverName.equals(serverNode.path("name").getTextValue())) {
-					serverId = serverNode.path("id").getTextValue();
-					break;
-				}
-			}
-
-			return serverId;
+			return _getTopology(TopologyKind.SERVER).getId(serverName);
 		} finally {
-			webClient.close();
 			_logger.trace("END: restfullyGetServerId");
 		}
 	}
@@ -543,26 +1078,109 @@ public class MuleRest {
 	 */
 	public String restfullyGetClusterId(String clusterName) throws IOException {
 		_logger.trace("START: restfullyGetClusterId");
-		String clusterId = null;
-		WebClient webClient = _getWebClient("clusters");
-
 		try {
-			_logger.trace("GET");
-			Response response = webClient.get();
-			String responseText = _processResponse(response);
-			JsonNode jsonNode = OBJECT_MAPPER.readTree(responseText);
-			JsonNode clustersNode = jsonNode.path("data");
-			for (JsonNode clusterNode : clustersNode) {
-				if (clusterName.equals(clusterNode.path("name").getTextValue())) {
-					clusterId = clusterNode.path("id").getTextValue();
-					break;
+			return _getTopology(TopologyKind.CLUSTER).getId(clusterName);
+		} finally {
+			_logger.trace("END: restfullyGetClusterId");
+		}
+	}
+
+	/**
+	 * Returns the cache used to resolve server group, server and cluster names
+	 */
+	public TopologyCache getTopologyCache() {
+		return topologyCache;
+	}
+
+	private TopologyCache.Snapshot _getTopology(final TopologyKind kind) throws IOException {
+		// Coalesced even when the cache is disabled
+		return singleFlight.execute(kind.path + " list", new RetryPolicy.Request<TopologyCache.Snapshot>() {
+			@Override
+			public TopologyCache.Snapshot execute() throws IOException {
+				return topologyCache.snapshot(kind, new TopologyCache.Loader() {
+					@Override
+					public TopologyCache.Snapshot load(TopologyKind kind) throws IOException {
+						return _restfullyGetTopology(kind);
+					}
+				});
+			}
+		});
+	}
+
+	/**
+	 * Moves to the value of the current field and reads the name and the id of
+	 * the objects it contains, as found in the versions of an application or
+	 * in the groups of a server
+	 */
+	private static List<String[]> _readNamesAndIds(JsonParser parser) throws IOException {
+		List<String[]> namesAndIds = new ArrayList<String[]>();
+		if (parser.nextToken() != JsonToken.START_ARRAY) {
+			parser.skipChildren();
+			return namesAndIds;
+		}
+		JsonToken token;
+		while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+			if (token != JsonToken.START_OBJECT) {
+				parser.skipChildren();
+				continue;
+			}
+			String[] nameAndId = new String[2];
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String fieldName = parser.getCurrentName();
+				if ("name".equals(fieldName)) {
+					nameAndId[0] = JsonListReader.nextTextValue(parser);
+				} else if ("id".equals(fieldName)) {
+					nameAndId[1] = JsonListReader.nextTextValue(parser);
+				} else {
+					parser.nextToken();
+					parser.skipChildren();
 				}
 			}
+			namesAndIds.add(nameAndId);
+		}
+		return namesAndIds;
+	}
 
-			return clusterId;
+	private TopologyCache.Snapshot _restfullyGetTopology(final TopologyKind kind) throws IOException {
+		_logger.trace("START: _restfullyGetTopology {}", kind);
+		try {
+			return _execute(kind.path + " list", new TransportRequest("GET", kind.path), new ResponseReader<TopologyCache.Snapshot>() {
+				@Override
+				public TopologyCache.Snapshot read(InputStream inputStream) throws IOException {
+					final TopologyCache.Snapshot snapshot = new TopologyCache.Snapshot();
+					JsonListReader.read(inputStream, new JsonListReader.ElementHandler() {
+						@Override
+						public boolean handle(JsonParser parser) throws IOException {
+							String name = null;
+							String id = null;
+							List<String[]> groups = new ArrayList<String[]>();
+							while (parser.nextToken() == JsonToken.FIELD_NAME) {
+								String fieldName = parser.getCurrentName();
+								if ("name".equals(fieldName)) {
+									name = JsonListReader.nextTextValue(parser);
+								} else if ("id".equals(fieldName)) {
+									id = JsonListReader.nextTextValue(parser);
+								} else if (kind == TopologyKind.SERVER && "groups".equals(fieldName)) {
+									groups = _readNamesAndIds(parser);
+								} else {
+									parser.nextToken();
+									parser.skipChildren();
+								}
+							}
+							snapshot.addResource(name, id);
+							if (id != null) {
+								for (String[] group : groups) {
+									snapshot.addServerToGroup(group[0], id);
+								}
+							}
+							return true;
+						}
+					});
+					return snapshot;
+				}
+			});
 		} finally {
-			webClient.close();
-			_logger.trace("END: restfullyGetClusterId");
+			_logger.trace("END: _restfullyGetTopology {}", kind);
 		}
 	}
 	
@@ -581,77 +1199,174 @@ public class MuleRest {
 
 	public String restfullyUploadRepository(String appName, String appVersion, File packageFile) throws IOException {
 		_logger.trace("START: restfullyUploadRepository");
-		WebClient webClient = _getWebClient("repository");
-		webClient.type("multipart/form-data");
-
-		try {
-			// delete application first
-			if (isSnapshotVersion(appVersion)) {
-				restfullyDeleteApplication(appName, appVersion);
+		String fingerprint = null;
+		if (archiveFingerprints != null) {
+			fingerprint = ArchiveFingerprints.sha256(packageFile);
+			String uploadedVersionId = archiveFingerprints.findVersionId(mmcUrl.toString(), appName, fingerprint);
+			if (uploadedVersionId != null && repositoryCatalog.containsVersionId(uploadedVersionId, repositoryCatalogLoader)) {
+				_logger.info("Archive \"" + packageFile.getName() + "\" is identical to the one already uploaded with version id \"" + uploadedVersionId + "\", skipping upload");
+				_logger.trace("END: restfullyUploadRepository");
+				return uploadedVersionId;
 			}
-			Attachment nameAttachment = new AttachmentBuilder().id("name").object(appName).contentDisposition(new ContentDisposition("form-data; name=\"name\"")).build();
-			Attachment versionAttachment = new AttachmentBuilder().id("version").object(appVersion).contentDisposition(new ContentDisposition("form-data; name=\"version\"")).build();
-			Attachment fileAttachment = new Attachment("file", new FileInputStream(packageFile), new ContentDisposition("form-data; name=\"file\"; filename=\"" + packageFile.getName() + "\""));
+		}
 
-			MultipartBody multipartBody = new MultipartBody(Arrays.asList(fileAttachment, nameAttachment, versionAttachment), MediaType.MULTIPART_FORM_DATA_TYPE, true);
+		// delete application first
+		if (isSnapshotVersion(appVersion)) {
+			restfullyDeleteApplication(appName, appVersion);
+		}
 
-			_logger.trace("POST");
-			Response response = webClient.post(multipartBody);
+		final MultipartUpload multipartUpload = new MultipartUpload();
+		multipartUpload.addFilePart("file", packageFile);
+		multipartUpload.addTextPart("name", appName);
+		multipartUpload.addTextPart("version", appVersion);
 
-			String responseObject = _processResponse(response);
+		try {
+			String responseObject;
+			try {
+				// Not retried, the archive may have been stored before the
+				// failure. A large archive takes long to upload, which doesn't
+				// mean the MMC is unhealthy.
+				responseObject = circuitBreaker.execute(new RetryPolicy.Request<String>() {
+					@Override
+					public String execute() throws IOException {
+						return _postMultipart(multipartUpload, "repository");
+					}
+				}, false);
+			} catch (HTTPException he) {
+				if (he.getResponseCode() == Status.CONFLICT.getStatusCode()) {
+					// The repository was changed behind our back
+					repositoryCatalog.invalidate();
+				}
+				throw he;
+			}
 
-			ObjectMapper mapper = new ObjectMapper();
-			JsonNode result = mapper.readTree(responseObject);
-			return result.path("versionId").getTextValue();
+			JsonNode result = OBJECT_MAPPER.readTree(responseObject);
+			String versionId = result.path("versionId").getTextValue();
+			repositoryCatalog.addVersion(appName, appVersion, versionId);
+			if (fingerprint != null && versionId != null) {
+				archiveFingerprints.record(mmcUrl.toString(), appName, fingerprint, versionId);
+			}
+			return versionId;
 		} finally {
-			webClient.close();
 			_logger.trace("END: restfullyUploadRepository");
 		}
 	}
 
-	public void restfullyDeleteApplicationById(String applicationVersionId) throws IOException {
-		_logger.trace("START: restfullyDeleteApplicationById");
-		WebClient webClient = _getWebClient("repository", applicationVersionId);
+	/**
+	 * Sets the record of the archives already uploaded. When set, uploading an
+	 * archive identical to one recorded and still on the repository returns
+	 * the version id of the latter instead of uploading the archive again.
+	 * 
+	 * @param archiveFingerprints
+	 *            The record to use or null to always upload
+	 */
+	public void setArchiveFingerprints(ArchiveFingerprints archiveFingerprints) {
+		this.archiveFingerprints = archiveFingerprints;
+	}
 
+	/**
+	 * Returns the figures of the last upload made with
+	 * {@link #restfullyUploadRepository(String, String, File)} or null if
+	 * there was none
+	 */
+	public UploadStatistics getLastUploadStatistics() {
+		return lastUploadStatistics;
+	}
+
+	/**
+	 * Posts a multipart body with its exact length, streaming it to the MMC
+	 * without buffering it in memory, and returns the response text
+	 */
+	private String _postMultipart(final MultipartUpload multipartUpload, String... paths) throws IOException {
+		final long contentLength = multipartUpload.getContentLength();
+		final UploadStatistics uploadStatistics = new UploadStatistics();
+		final long startTime = System.currentTimeMillis();
+		TransportRequest request = new TransportRequest("POST", paths);
+		request.body = new StreamingBody() {
+			@Override
+			public String getContentType() {
+				return multipartUpload.getContentType();
+			}
+
+			@Override
+			public long getContentLength() {
+				return contentLength;
+			}
+
+			@Override
+			public void writeTo(OutputStream outputStream) throws IOException {
+				multipartUpload.writeTo(outputStream, new MultipartUpload.ProgressListener() {
+					private long nextLoggedPercent = 10;
+
+					@Override
+					public void bytesWritten(long totalBytesWritten, long contentLength) {
+						long percent = contentLength == 0 ? 100 : totalBytesWritten * 100 / contentLength;
+						if (percent >= nextLoggedPercent) {
+							_logger.debug("Uploaded {}% ({} bytes)", percent, totalBytesWritten);
+							nextLoggedPercent = percent + 10;
+						}
+					}
+				});
+				uploadStatistics.uploadTimeMs = System.currentTimeMillis() - startTime;
+			}
+		};
+
+		_logger.trace("POST {} bytes", contentLength);
+		RequestRecord record = new RequestRecord(request, 1);
+		CountingInputStream responseStream = null;
 		try {
-			_logger.trace("DELETE");
-			Response response = webClient.delete();
-			_processResponse(response);
+			TransportResponse response = transport.send(request, deadline);
+			try {
+				record.status = response.status;
+				uploadStatistics.bytesSent = contentLength;
+				uploadStatistics.timeToFirstByteMs = System.currentTimeMillis() - startTime;
+				lastUploadStatistics = uploadStatistics;
+				_logger.info("Upload statistics: " + uploadStatistics);
+
+				responseStream = new CountingInputStream(response.body);
+				return TEXT_READER.read(_processResponseStream(response.status, responseStream));
+			} finally {
+				response.close();
+			}
 		} finally {
-			webClient.close();
-			_logger.trace("END: restfullyDeleteApplicationById");
+			_record(record, startTime, responseStream);
 		}
 	}
 
-	public void restfullyDeleteApplication(String applicationName, String version) throws IOException {
-		int retries = 0;
-		while (true) {
+	public void restfullyDeleteApplicationById(String applicationVersionId) throws IOException {
+		_logger.trace("START: restfullyDeleteApplicationById");
+		final TransportRequest request = new TransportRequest("DELETE", "repository", applicationVersionId);
+		try {
 			try {
-				String applicationVersionId = restfullyGetApplicationId(applicationName, version);
-				if (applicationVersionId != null) {
-					restfullyDeleteApplicationById(applicationVersionId);
-				}
-				break;
-			}
-			catch (HTTPException he) {
-				if (retries > 1) {
+				_execute("Deletion of application version \"" + applicationVersionId + "\"", request, TEXT_READER);
+			} catch (HTTPException he) {
+				if (he.getResponseCode() != Status.NOT_FOUND.getStatusCode()) {
 					throw he;
 				}
-				sleep(1000);
-				_logger.info("Retrying...");
-				retries++;					
+				// Deleted behind our back since the catalog was loaded, which
+				// may hold other stale versions, or by an attempt whose response
+				// was lost
+				_logger.info("Application version \"" + applicationVersionId + "\" is already deleted");
+				repositoryCatalog.invalidate();
 			}
+			repositoryCatalog.removeVersion(applicationVersionId);
+			if (archiveFingerprints != null) {
+				archiveFingerprints.forget(applicationVersionId);
+			}
+		} finally {
+			_logger.trace("END: restfullyDeleteApplicationById");
+		}
+	}
+
+	public void restfullyDeleteApplication(String applicationName, String version) throws IOException {
+		// The lookup and the deletion are each retried on their own
+		String applicationVersionId = restfullyGetApplicationId(applicationName, version);
+		if (applicationVersionId != null) {
+			restfullyDeleteApplicationById(applicationVersionId);
 		}
 	}
 
 	protected boolean isSnapshotVersion(String version) {
 		return version.contains(SNAPSHOT);
 	}
-	
-	private void sleep(long millis) {
-		try {
-			Thread.sleep(millis);
-		} catch (InterruptedException e) {
-		}
-	}
 }
\ No newline at end of file
@@ -0,0 +1,127 @@
+package org.mule.tools.mmc.rest;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * multipart/form-data body made of text fields and files.
+ *
+ * The length of the body is known before it is written, so it can be sent with
+ * an exact Content-Length, and files are streamed from disk through a fixed
+ * size buffer, so the memory used does not depend on their size.
+ */
+class MultipartUpload {
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private static final byte[] CRLF = "\r\n".getBytes(UTF_8);
+	static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * Notified while the body is written
+	 */
+	interface ProgressListener {
+		void bytesWritten(long totalBytesWritten, long contentLength);
+	}
+
+	private final String boundary;
+	private final List<Part> parts = new ArrayList<Part>();
+
+	MultipartUpload() {
+		this("uuid:" + UUID.randomUUID());
+	}
+
+	MultipartUpload(String boundary) {
+		this.boundary = boundary;
+	}
+
+	void addTextPart(String id, String value) {
+		parts.add(new Part(id, "text/plain", "form-data; name=\"" + id + "\"", value.getBytes(UTF_8), null));
+	}
+
+	void addFilePart(String id, File file) {
+		parts.add(new Part(id, "application/octet-stream", "form-data; name=\"" + id + "\"; filename=\"" + file.getName() + "\"", null, file));
+	}
+
+	String getContentType() {
+		return "multipart/form-data; boundary=\"" + boundary + "\"";
+	}
+
+	long getContentLength() {
+		long contentLength = 0;
+		for (Part part : parts) {
+			contentLength += part.headers.length + part.getLength() + CRLF.length;
+		}
+		return contentLength + _closeDelimiter().length;
+	}
+
+	/**
+	 * Writes the body, the output stream is not closed
+	 */
+	void writeTo(OutputStream outputStream, ProgressListener progressListener) throws IOException {
+		long contentLength = getContentLength();
+		long totalBytesWritten = 0;
+		byte[] buffer = new byte[BUFFER_SIZE];
+		for (Part part : parts) {
+			outputStream.write(part.headers);
+			totalBytesWritten += part.headers.length;
+			if (part.file == null) {
+				outputStream.write(part.content);
+				totalBytesWritten += part.content.length;
+			} else {
+				FileInputStream fileInputStream = new FileInputStream(part.file);
+				try {
+					int read;
+					while ((read = fileInputStream.read(buffer)) != -1) {
+						outputStream.write(buffer, 0, read);
+						totalBytesWritten += read;
+						if (progressListener != null) {
+							progressListener.bytesWritten(totalBytesWritten, contentLength);
+						}
+					}
+				} finally {
+					fileInputStream.close();
+				}
+			}
+			outputStream.write(CRLF);
+			totalBytesWritten += CRLF.length;
+		}
+		byte[] closeDelimiter = _closeDelimiter();
+		outputStream.write(closeDelimiter);
+		totalBytesWritten += closeDelimiter.length;
+		if (progressListener != null) {
+			progressListener.bytesWritten(totalBytesWritten, contentLength);
+		}
+	}
+
+	private byte[] _closeDelimiter() {
+		return ("--" + boundary + "--").getBytes(UTF_8);
+	}
+
+	private class Part {
+		final byte[] headers;
+		final byte[] content;
+		final File file;
+
+		Part(String id, String contentType, String contentDisposition, byte[] content, File file) {
+			StringBuilder sb = new StringBuilder();
+			sb.append("--").append(boundary).append("\r\n");
+			sb.append("Content-Type: ").append(contentType).append("\r\n");
+			sb.append("Content-Transfer-Encoding: binary\r\n");
+			sb.append("Content-ID: <").append(id).append(">\r\n");
+			sb.append("Content-Disposition: ").append(contentDisposition).append("\r\n");
+			sb.append("\r\n");
+			this.headers = sb.toString().getBytes(UTF_8);
+			this.content = content;
+			this.file = file;
+		}
+
+		long getLength() {
+			return file == null ? content.length : file.length();
+		}
+	}
+}
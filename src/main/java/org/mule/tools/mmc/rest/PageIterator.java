@@ -0,0 +1,95 @@
+package org.mule.tools.mmc.rest;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.codehaus.jackson.JsonNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Iterates over the elements of a MMC list, requesting it one page at a time
+ * as the elements are consumed. Only the current page is held in memory, and
+ * no more pages are requested once the caller stops iterating.
+ * 
+ * If the MMC does not paginate the list, the whole list is the first and only
+ * page. If it ignores the offset, sending the same page again, the repeated
+ * page is dropped and the iteration ends.
+ */
+public class PageIterator {
+	private static final Logger _logger = LoggerFactory.getLogger(PageIterator.class);
+
+	/**
+	 * Requests a page of the list
+	 */
+	interface PageLoader {
+		/**
+		 * @param offset
+		 *            Index of the first element of the page
+		 * @param limit
+		 *            Maximum number of elements of the page
+		 */
+		JsonListReader.Page load(int offset, int limit) throws IOException;
+	}
+
+	private final PageLoader pageLoader;
+	private final int pageSize;
+	private Iterator<JsonNode> page = Collections.<JsonNode> emptyList().iterator();
+	private int offset;
+	private boolean lastPage;
+	private int pagesRead;
+	private JsonNode previousFirstElement;
+
+	PageIterator(PageLoader pageLoader, int pageSize) {
+		if (pageSize <= 0) {
+			throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+		}
+		this.pageLoader = pageLoader;
+		this.pageSize = pageSize;
+	}
+
+	/**
+	 * Returns true if there are more elements, requesting the next page if the
+	 * current one has been consumed
+	 */
+	public boolean hasNext() throws IOException {
+		while (!page.hasNext() && !lastPage) {
+			_loadPage();
+		}
+		return page.hasNext();
+	}
+
+	public JsonNode next() throws IOException {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		return page.next();
+	}
+
+	/**
+	 * Returns the number of pages requested so far
+	 */
+	public int getPagesRead() {
+		return pagesRead;
+	}
+
+	private void _loadPage() throws IOException {
+		JsonListReader.Page loadedPage = pageLoader.load(offset, pageSize);
+		pagesRead++;
+		int size = loadedPage.elements.size();
+		JsonNode firstElement = size > 0 ? loadedPage.elements.get(0) : null;
+		if (firstElement != null && firstElement.equals(previousFirstElement)) {
+			_logger.warn("The MMC sent the page at offset " + offset + " again, it may not support the offset parameter: stopping at " + offset + " elements");
+			lastPage = true;
+			return;
+		}
+		previousFirstElement = firstElement;
+		offset += size;
+		// Shorter than asked for: the end of the list. Longer: the MMC ignored
+		// the limit and sent the whole list
+		lastPage = size != pageSize || (loadedPage.total >= 0 && offset >= loadedPage.total);
+		page = loadedPage.elements.iterator();
+	}
+}
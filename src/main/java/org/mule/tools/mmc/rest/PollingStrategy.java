@@ -0,0 +1,115 @@
+package org.mule.tools.mmc.rest;
+
+import java.util.Random;
+
+/**
+ * Delays between the probes of the state of a deployment which is in
+ * progress.
+ */
+public abstract class PollingStrategy {
+
+	public static final long DEFAULT_INITIAL_DELAY_MS = 200;
+	public static final long DEFAULT_MAX_DELAY_MS = 5000;
+	public static final double DEFAULT_MULTIPLIER = 2;
+	public static final double DEFAULT_JITTER = 0.2;
+
+	/**
+	 * Returns the time to wait before probing the deployment again
+	 *
+	 * @param probe
+	 *            Number of probes already done, starting at 1
+	 * @param lastState
+	 *            State returned by the last probe
+	 */
+	public abstract long getDelayMs(int probe, DeploymentState lastState);
+
+	/**
+	 * Returns true if the wait can end although the deployment is still
+	 * reported in progress
+	 *
+	 * @param lastState
+	 *            State returned by the last probe
+	 */
+	public boolean isSettled(DeploymentState lastState) {
+		return false;
+	}
+
+	/**
+	 * Probes at a constant rate
+	 */
+	public static PollingStrategy fixed(final long delayMs) {
+		return new PollingStrategy() {
+			@Override
+			public long getDelayMs(int probe, DeploymentState lastState) {
+				return delayMs;
+			}
+
+			@Override
+			public String toString() {
+				return "fixed(" + delayMs + "ms)";
+			}
+		};
+	}
+
+	/**
+	 * Probes quickly first, then less and less often
+	 */
+	public static PollingStrategy backoff(long initialDelayMs, long maxDelayMs, double multiplier, double jitter) {
+		return new Backoff(initialDelayMs, maxDelayMs, multiplier, jitter, new Random());
+	}
+
+	/**
+	 * Exponential backoff capped to a maximum delay. Each delay is shortened by
+	 * a random part (the jitter) so that concurrent deployments do not probe
+	 * the MMC in lockstep.
+	 *
+	 * Once the MMC reports the deployment as reconciled, the servers have
+	 * caught up with it: the wait ends without waiting for the status to
+	 * follow.
+	 */
+	static class Backoff extends PollingStrategy {
+		private final long initialDelayMs;
+		private final long maxDelayMs;
+		private final double multiplier;
+		private final double jitter;
+		private final Random random;
+
+		Backoff(long initialDelayMs, long maxDelayMs, double multiplier, double jitter, Random random) {
+			if (initialDelayMs <= 0 || maxDelayMs < initialDelayMs) {
+				throw new IllegalArgumentException("Polling delays must be positive and the maximum one not lower than the initial one");
+			}
+			if (multiplier < 1) {
+				throw new IllegalArgumentException("Polling delay multiplier can't be lower than 1");
+			}
+			if (jitter < 0 || jitter > 1) {
+				throw new IllegalArgumentException("Polling jitter must be between 0 and 1");
+			}
+			this.initialDelayMs = initialDelayMs;
+			this.maxDelayMs = maxDelayMs;
+			this.multiplier = multiplier;
+			this.jitter = jitter;
+			this.random = random;
+		}
+
+		@Override
+		public long getDelayMs(int probe, DeploymentState lastState) {
+			double delayMs = initialDelayMs * Math.pow(multiplier, Math.max(0, probe - 1));
+			delayMs = Math.min(delayMs, maxDelayMs);
+			double randomPart;
+			synchronized (random) {
+				randomPart = random.nextDouble();
+			}
+			return Math.max(1, Math.round(delayMs * (1 - jitter * randomPart)));
+		}
+
+		@Override
+		public boolean isSettled(DeploymentState lastState) {
+			return lastState != null && lastState.reconciled;
+		}
+
+		@Override
+		public String toString() {
+			return "backoff(" + initialDelayMs + "ms to " + maxDelayMs + "ms, x" + multiplier + ", jitter " + jitter + ")";
+		}
+	}
+}
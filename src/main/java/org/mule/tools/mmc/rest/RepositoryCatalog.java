@@ -0,0 +1,144 @@
+package org.mule.tools.mmc.rest;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Index of the application versions stored in the MMC repository, by
+ * application name and version.
+ *
+ * The catalog is loaded from the MMC the first time it is used and is then
+ * kept up to date by the uploads and deletions made through the same
+ * {@link MuleRest} session, so looking up a version does not need the network.
+ * Changes made to the repository by other clients are only seen after
+ * {@link #invalidate()}.
+ */
+public class RepositoryCatalog {
+
+	/**
+	 * Fills the catalog from the MMC
+	 */
+	interface Loader {
+		void load(RepositoryCatalog catalog) throws IOException;
+	}
+
+	/**
+	 * Version ids by version, by application name
+	 */
+	private final Map<String, Map<String, String>> versionIdsByName = new HashMap<String, Map<String, String>>();
+
+	/**
+	 * Application name and version by version id
+	 */
+	private final Map<String, String[]> versionsById = new HashMap<String, String[]>();
+	private boolean loaded;
+
+	/**
+	 * Held while loading, without holding the monitor of the catalog: a
+	 * virtual thread blocked on a monitor holds its carrier thread
+	 */
+	private final ReentrantLock loadLock = new ReentrantLock();
+
+	/**
+	 * Forgets the content of the catalog, it will be loaded again by the next
+	 * lookup
+	 */
+	public synchronized void invalidate() {
+		versionIdsByName.clear();
+		versionsById.clear();
+		loaded = false;
+	}
+
+	public synchronized boolean isLoaded() {
+		return loaded;
+	}
+
+	/**
+	 * Returns the id of the given application version, loading the catalog
+	 * first if needed
+	 *
+	 * @return The version id or null if the repository does not hold this
+	 *         version
+	 */
+	String getVersionId(String name, String version, Loader loader) throws IOException {
+		_ensureLoaded(loader);
+		synchronized (this) {
+			Map<String, String> versionIds = versionIdsByName.get(name);
+			return versionIds == null ? null : versionIds.get(version);
+		}
+	}
+
+	/**
+	 * Returns true if the repository holds a version with the given id,
+	 * loading the catalog first if needed
+	 */
+	boolean containsVersionId(String versionId, Loader loader) throws IOException {
+		_ensureLoaded(loader);
+		synchronized (this) {
+			return versionsById.containsKey(versionId);
+		}
+	}
+
+	/**
+	 * Registers an application version, the first version registered with a
+	 * name and version wins
+	 */
+	synchronized void addVersion(String name, String version, String versionId) {
+		if (name == null || version == null || versionId == null) {
+			return;
+		}
+		Map<String, String> versionIds = versionIdsByName.get(name);
+		if (versionIds == null) {
+			versionIds = new HashMap<String, String>();
+			versionIdsByName.put(name, versionIds);
+		}
+		if (!versionIds.containsKey(version)) {
+			versionIds.put(version, versionId);
+			versionsById.put(versionId, new String[] { name, version });
+		}
+	}
+
+	/**
+	 * Unregisters the application version with the given id
+	 */
+	synchronized void removeVersion(String versionId) {
+		String[] nameAndVersion = versionsById.remove(versionId);
+		if (nameAndVersion != null) {
+			Map<String, String> versionIds = versionIdsByName.get(nameAndVersion[0]);
+			versionIds.remove(nameAndVersion[1]);
+			if (versionIds.isEmpty()) {
+				versionIdsByName.remove(nameAndVersion[0]);
+			}
+		}
+	}
+
+	/**
+	 * Loads the catalog unless it is already loaded
+	 */
+	void load(Loader loader) throws IOException {
+		_ensureLoaded(loader);
+	}
+
+	private void _ensureLoaded(Loader loader) throws IOException {
+		if (isLoaded()) {
+			return;
+		}
+		loadLock.lock();
+		try {
+			if (!isLoaded()) {
+				synchronized (this) {
+					versionIdsByName.clear();
+					versionsById.clear();
+				}
+				loader.load(this);
+				synchronized (this) {
+					loaded = true;
+				}
+			}
+		} finally {
+			loadLock.unlock();
+		}
+	}
+}
@@ -0,0 +1,15 @@
+package org.mule.tools.mmc.rest;
+
+/**
+ * Told of each request sent to the MMC, see
+ * {@link MuleRest#setRequestListener(RequestListener)}. Requests are sent from
+ * several threads at once, so implementations must be thread safe.
+ */
+public interface RequestListener {
+
+	/**
+	 * Called once the response of a request has been read, or once the
+	 * request has failed
+	 */
+	void requestCompleted(RequestRecord record);
+}
@@ -0,0 +1,262 @@
+package org.mule.tools.mmc.rest;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.codehaus.jackson.JsonEncoding;
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonGenerator;
+
+/**
+ * Aggregates the requests sent to the MMC by endpoint: counts, statuses,
+ * retries, bytes sent and received, and a histogram of the latencies, to find
+ * out which endpoints the time of a deployment goes to.
+ */
+public class RequestMetrics implements RequestListener {
+
+	/**
+	 * Upper bounds of the buckets of the latency histograms, a last bucket
+	 * holding the longer latencies
+	 */
+	public static final long[] LATENCY_BUCKETS_MS = { 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000 };
+
+	/**
+	 * Figures of the requests sent with a method to an endpoint
+	 */
+	public static class EndpointMetrics {
+		private final String method;
+		private final String endpoint;
+		private final Map<Integer, Long> statusCounts = new TreeMap<Integer, Long>();
+		private final long[] latencyHistogram = new long[LATENCY_BUCKETS_MS.length + 1];
+		private long requests;
+		private long retries;
+		private long errors;
+		private long requestBytes;
+		private long responseBytes;
+		private long totalLatencyMs;
+		private long maxLatencyMs;
+
+		EndpointMetrics(String method, String endpoint) {
+			this.method = method;
+			this.endpoint = endpoint;
+		}
+
+		synchronized void add(RequestRecord record) {
+			requests++;
+			if (record.attempt > 1) {
+				retries++;
+			}
+			if (record.status < 0 || record.status >= 400) {
+				errors++;
+			}
+			Long statusCount = statusCounts.get(record.status);
+			statusCounts.put(record.status, statusCount == null ? 1 : statusCount + 1);
+			requestBytes += record.requestBytes;
+			responseBytes += record.responseBytes;
+			totalLatencyMs += record.latencyMs;
+			maxLatencyMs = Math.max(maxLatencyMs, record.latencyMs);
+			int bucket = 0;
+			while (bucket < LATENCY_BUCKETS_MS.length && record.latencyMs > LATENCY_BUCKETS_MS[bucket]) {
+				bucket++;
+			}
+			latencyHistogram[bucket]++;
+		}
+
+		public String getMethod() {
+			return method;
+		}
+
+		public String getEndpoint() {
+			return endpoint;
+		}
+
+		/**
+		 * Number of requests sent, retries included
+		 */
+		public synchronized long getRequests() {
+			return requests;
+		}
+
+		/**
+		 * Number of requests which were a new attempt of a failed one
+		 */
+		public synchronized long getRetries() {
+			return retries;
+		}
+
+		/**
+		 * Number of requests without a response or with an error status
+		 */
+		public synchronized long getErrors() {
+			return errors;
+		}
+
+		/**
+		 * Number of requests by response status, -1 counting the requests
+		 * without a response
+		 */
+		public synchronized Map<Integer, Long> getStatusCounts() {
+			return new TreeMap<Integer, Long>(statusCounts);
+		}
+
+		public synchronized long getRequestBytes() {
+			return requestBytes;
+		}
+
+		public synchronized long getResponseBytes() {
+			return responseBytes;
+		}
+
+		public synchronized long getTotalLatencyMs() {
+			return totalLatencyMs;
+		}
+
+		public synchronized long getMaxLatencyMs() {
+			return maxLatencyMs;
+		}
+
+		/**
+		 * Returns the number of requests of each bucket of
+		 * {@link RequestMetrics#LATENCY_BUCKETS_MS}, followed by the number of
+		 * longer requests
+		 */
+		public synchronized long[] getLatencyHistogram() {
+			return latencyHistogram.clone();
+		}
+
+		/**
+		 * Returns an upper estimate of a percentile of the latencies: the
+		 * upper bound of the histogram bucket holding it, or the maximum
+		 * latency if lower
+		 *
+		 * @param percentile
+		 *            Between 0 and 100
+		 */
+		public synchronized long getLatencyPercentileMs(double percentile) {
+			long rank = Math.max(1, (long) Math.ceil(percentile / 100 * requests));
+			long count = 0;
+			for (int bucket = 0; bucket < LATENCY_BUCKETS_MS.length; bucket++) {
+				count += latencyHistogram[bucket];
+				if (count >= rank) {
+					return Math.min(LATENCY_BUCKETS_MS[bucket], maxLatencyMs);
+				}
+			}
+			return maxLatencyMs;
+		}
+
+		@Override
+		public synchronized String toString() {
+			return method + " " + endpoint + " : " + requests + " requests (" + retries + " retries, " + errors + " errors) in " + totalLatencyMs + "ms, p50 " + getLatencyPercentileMs(50) + "ms, p95 " + getLatencyPercentileMs(95) + "ms, max " + maxLatencyMs + "ms, " + requestBytes + " bytes sent, " + responseBytes + " bytes received";
+		}
+	}
+
+	private final ConcurrentMap<String, EndpointMetrics> endpoints = new ConcurrentHashMap<String, EndpointMetrics>();
+
+	@Override
+	public void requestCompleted(RequestRecord record) {
+		String key = record.method + " " + record.endpoint;
+		EndpointMetrics endpointMetrics = endpoints.get(key);
+		if (endpointMetrics == null) {
+			EndpointMetrics newEndpointMetrics = new EndpointMetrics(record.method, record.endpoint);
+			endpointMetrics = endpoints.putIfAbsent(key, newEndpointMetrics);
+			if (endpointMetrics == null) {
+				endpointMetrics = newEndpointMetrics;
+			}
+		}
+		endpointMetrics.add(record);
+	}
+
+	/**
+	 * Returns the figures of each endpoint, the one the most time was spent on
+	 * first
+	 */
+	public List<EndpointMetrics> getEndpoints() {
+		List<EndpointMetrics> endpointMetrics = new ArrayList<EndpointMetrics>(endpoints.values());
+		Collections.sort(endpointMetrics, new Comparator<EndpointMetrics>() {
+			@Override
+			public int compare(EndpointMetrics first, EndpointMetrics second) {
+				int comparison = Long.compare(second.getTotalLatencyMs(), first.getTotalLatencyMs());
+				return comparison != 0 ? comparison : (first.method + " " + first.endpoint).compareTo(second.method + " " + second.endpoint);
+			}
+		});
+		return endpointMetrics;
+	}
+
+	/**
+	 * Returns the number of requests sent to all the endpoints
+	 */
+	public long getRequests() {
+		long requests = 0;
+		for (EndpointMetrics endpointMetrics : endpoints.values()) {
+			requests += endpointMetrics.getRequests();
+		}
+		return requests;
+	}
+
+	/**
+	 * Writes the figures of each endpoint as a JSON document, creating the
+	 * directory of the file if needed
+	 */
+	public void writeJson(File file) throws IOException {
+		File directory = file.getAbsoluteFile().getParentFile();
+		if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Unable to create directory \"" + directory + "\"");
+		}
+		List<EndpointMetrics> endpointMetrics = getEndpoints();
+		long totalLatencyMs = 0;
+		for (EndpointMetrics endpoint : endpointMetrics) {
+			totalLatencyMs += endpoint.getTotalLatencyMs();
+		}
+		JsonGenerator generator = new JsonFactory().createJsonGenerator(file, JsonEncoding.UTF8);
+		try {
+			generator.useDefaultPrettyPrinter();
+			generator.writeStartObject();
+			generator.writeNumberField("requests", getRequests());
+			generator.writeNumberField("totalLatencyMs", totalLatencyMs);
+			generator.writeArrayFieldStart("latencyBucketsMs");
+			for (long bound : LATENCY_BUCKETS_MS) {
+				generator.writeNumber(bound);
+			}
+			generator.writeEndArray();
+			generator.writeArrayFieldStart("endpoints");
+			for (EndpointMetrics endpoint : endpointMetrics) {
+				generator.writeStartObject();
+				generator.writeStringField("method", endpoint.getMethod());
+				generator.writeStringField("endpoint", endpoint.getEndpoint());
+				generator.writeNumberField("requests", endpoint.getRequests());
+				generator.writeNumberField("retries", endpoint.getRetries());
+				generator.writeNumberField("errors", endpoint.getErrors());
+				generator.writeObjectFieldStart("statuses");
+				for (Map.Entry<Integer, Long> statusCount : endpoint.getStatusCounts().entrySet()) {
+					generator.writeNumberField(String.valueOf(statusCount.getKey()), statusCount.getValue());
+				}
+				generator.writeEndObject();
+				generator.writeNumberField("requestBytes", endpoint.getRequestBytes());
+				generator.writeNumberField("responseBytes", endpoint.getResponseBytes());
+				generator.writeNumberField("totalLatencyMs", endpoint.getTotalLatencyMs());
+				generator.writeNumberField("maxLatencyMs", endpoint.getMaxLatencyMs());
+				generator.writeNumberField("p50LatencyMs", endpoint.getLatencyPercentileMs(50));
+				generator.writeNumberField("p95LatencyMs", endpoint.getLatencyPercentileMs(95));
+				generator.writeNumberField("p99LatencyMs", endpoint.getLatencyPercentileMs(99));
+				generator.writeArrayFieldStart("latencyHistogram");
+				for (long count : endpoint.getLatencyHistogram()) {
+					generator.writeNumber(count);
+				}
+				generator.writeEndArray();
+				generator.writeEndObject();
+			}
+			generator.writeEndArray();
+			generator.writeEndObject();
+		} finally {
+			generator.close();
+		}
+	}
+}
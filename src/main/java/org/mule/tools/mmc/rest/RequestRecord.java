@@ -0,0 +1,73 @@
+package org.mule.tools.mmc.rest;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Figures of a request sent to the MMC, one per attempt
+ */
+public class RequestRecord {
+
+	/**
+	 * HTTP method
+	 */
+	public String method;
+
+	/**
+	 * Path of the request relative to the MMC URL, with the id of the
+	 * resource replaced by {id}, such as <code>deployments/{id}/deploy</code>
+	 */
+	public String endpoint;
+
+	/**
+	 * Status of the response, -1 if none was received
+	 */
+	public int status = -1;
+
+	/**
+	 * Time between the start of the request and the end of the reading of its
+	 * response
+	 */
+	public long latencyMs;
+
+	/**
+	 * Number of the attempt of the request, 1 for the first one
+	 */
+	public int attempt = 1;
+
+	/**
+	 * Number of bytes of the request body
+	 */
+	public long requestBytes;
+
+	/**
+	 * Number of bytes of the response body read, a listing whose reading
+	 * stopped at the element looked up is not read to the end
+	 */
+	public long responseBytes;
+
+	public RequestRecord() {
+	}
+
+	RequestRecord(TransportRequest request, int attempt) {
+		this.method = request.method;
+		StringBuilder endpoint = new StringBuilder();
+		for (int i = 0; i < request.path.size(); i++) {
+			if (i > 0) {
+				endpoint.append('/');
+			}
+			endpoint.append(i == 1 ? "{id}" : request.path.get(i));
+		}
+		this.endpoint = endpoint.toString();
+		this.attempt = attempt;
+		if (request.entity != null) {
+			this.requestBytes = request.entity.getBytes(StandardCharsets.UTF_8).length;
+		} else if (request.body != null) {
+			this.requestBytes = request.body.getContentLength();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return method + " " + endpoint + " : " + (status < 0 ? "no response" : String.valueOf(status)) + " in " + latencyMs + "ms (attempt " + attempt + ", " + requestBytes + " bytes sent, " + responseBytes + " bytes received)";
+	}
+}
@@ -0,0 +1,64 @@
+package org.mule.tools.mmc.rest;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts of the decisions taken by a {@link RetryPolicy}
+ */
+public class RetryMetrics {
+
+	final AtomicLong attempts = new AtomicLong();
+	final AtomicLong retries = new AtomicLong();
+	final AtomicLong recoveries = new AtomicLong();
+	final AtomicLong transientFailures = new AtomicLong();
+	final AtomicLong permanentFailures = new AtomicLong();
+	final AtomicLong exhausted = new AtomicLong();
+
+	/**
+	 * Number of requests sent, retries included
+	 */
+	public long getAttempts() {
+		return attempts.get();
+	}
+
+	/**
+	 * Number of requests sent again after a transient failure
+	 */
+	public long getRetries() {
+		return retries.get();
+	}
+
+	/**
+	 * Number of requests which succeeded after having been retried
+	 */
+	public long getRecoveries() {
+		return recoveries.get();
+	}
+
+	/**
+	 * Number of failures classified as transient
+	 */
+	public long getTransientFailures() {
+		return transientFailures.get();
+	}
+
+	/**
+	 * Number of failures classified as permanent, never retried
+	 */
+	public long getPermanentFailures() {
+		return permanentFailures.get();
+	}
+
+	/**
+	 * Number of requests given up after a transient failure because their
+	 * attempts or retry budget were spent
+	 */
+	public long getExhausted() {
+		return exhausted.get();
+	}
+
+	@Override
+	public String toString() {
+		return getAttempts() + " attempt(s), " + getRetries() + " retry(ies), " + getRecoveries() + " recovered, " + getTransientFailures() + " transient and " + getPermanentFailures() + " permanent failure(s), " + getExhausted() + " given up";
+	}
+}
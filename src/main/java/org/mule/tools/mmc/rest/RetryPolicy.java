@@ -0,0 +1,217 @@
+package org.mule.tools.mmc.rest;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.Random;
+
+import org.apache.cxf.transport.http.HTTPException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Decides whether and when a failed MMC request is attempted again.
+ *
+ * Only transient failures are retried: 5xx, 408 and 429 responses, timeouts,
+ * refused and reset connections. Other 4xx responses, such as 404 or 409,
+ * can't succeed on a new attempt and are reported at once. Attempts are spaced
+ * by an exponential backoff shortened by a random jitter, and no new attempt is
+ * started once the retry budget of the request is spent.
+ */
+public class RetryPolicy {
+	private static final Logger _logger = LoggerFactory.getLogger(RetryPolicy.class);
+
+	public static final int DEFAULT_MAX_ATTEMPTS = 3;
+	public static final long DEFAULT_INITIAL_BACKOFF_MS = 250;
+	public static final long DEFAULT_MAX_BACKOFF_MS = 4000;
+	public static final double DEFAULT_MULTIPLIER = 2;
+	public static final double DEFAULT_JITTER = 0.2;
+	public static final long DEFAULT_RETRY_BUDGET_MS = 15000;
+
+	/**
+	 * Request attempted by the policy
+	 */
+	interface Request<T> {
+		T execute() throws IOException;
+	}
+
+	/**
+	 * Maximum number of attempts of a request, the first one included
+	 */
+	public int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+
+	/**
+	 * Delay before the first retry
+	 */
+	public long initialBackoffMs = DEFAULT_INITIAL_BACKOFF_MS;
+
+	/**
+	 * Maximum delay between two attempts
+	 */
+	public long maxBackoffMs = DEFAULT_MAX_BACKOFF_MS;
+
+	/**
+	 * Factor applied to the delay after each retry
+	 */
+	public double multiplier = DEFAULT_MULTIPLIER;
+
+	/**
+	 * Part of each delay, between 0 and 1, which is randomly cut off
+	 */
+	public double jitter = DEFAULT_JITTER;
+
+	/**
+	 * Time after the first attempt of a request past which it is not retried
+	 * any more
+	 */
+	public long retryBudgetMs = DEFAULT_RETRY_BUDGET_MS;
+
+	private final RetryMetrics metrics = new RetryMetrics();
+	private final Random random = new Random();
+
+	/**
+	 * Returns a policy which never retries
+	 */
+	public static RetryPolicy noRetry() {
+		RetryPolicy retryPolicy = new RetryPolicy();
+		retryPolicy.maxAttempts = 1;
+		return retryPolicy;
+	}
+
+	/**
+	 * Returns the counts of the decisions taken by this policy
+	 */
+	public RetryMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Returns true if a request which failed with the given exception may
+	 * succeed if attempted again
+	 */
+	public boolean isTransient(Throwable failure) {
+		return isTransientFailure(failure);
+	}
+
+	/**
+	 * Returns true if the given exception is a transient failure: a 5xx, 408
+	 * or 429 response, a timeout, a refused or reset connection
+	 */
+	public static boolean isTransientFailure(Throwable failure) {
+		for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+			if (cause instanceof HTTPException) {
+				int statusCode = ((HTTPException) cause).getResponseCode();
+				return statusCode >= 500 || statusCode == 408 || statusCode == 429;
+			}
+			if (cause instanceof UnknownHostException) {
+				return false;
+			}
+			if (cause instanceof SocketTimeoutException || cause instanceof ConnectException || cause instanceof SocketException) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the delay before the given retry, starting at 1
+	 */
+	long getBackoffMs(int retry) {
+		double backoffMs = Math.min(initialBackoffMs * Math.pow(multiplier, retry - 1), maxBackoffMs);
+		double randomPart;
+		synchronized (random) {
+			randomPart = random.nextDouble();
+		}
+		return Math.max(0, Math.round(backoffMs * (1 - jitter * randomPart)));
+	}
+
+	/**
+	 * Executes a request, attempting it again while it fails with a transient
+	 * error and the number of attempts and the retry budget allow it
+	 *
+	 * @param description
+	 *            Description of the request, for the logs
+	 */
+	<T> T execute(String description, Request<T> request) throws IOException {
+		return execute(description, request, Deadline.NONE);
+	}
+
+	/**
+	 * Same as {@link #execute(String, Request)}, without starting an attempt
+	 * or waiting to retry past the deadline
+	 */
+	<T> T execute(String description, Request<T> request, Deadline deadline) throws IOException {
+		long startTime = System.currentTimeMillis();
+		int attempt = 1;
+		while (true) {
+			deadline.check(description);
+			recordAttempt();
+			try {
+				T result = request.execute();
+				recordSuccess(attempt);
+				return result;
+			} catch (IOException e) {
+				_sleepBeforeRetry(description, e, attempt, startTime, deadline);
+			} catch (RuntimeException e) {
+				_sleepBeforeRetry(description, e, attempt, startTime, deadline);
+			}
+			attempt++;
+		}
+	}
+
+	void recordAttempt() {
+		metrics.attempts.incrementAndGet();
+	}
+
+	void recordSuccess(int attempt) {
+		if (attempt > 1) {
+			metrics.recoveries.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Decides what to do after a failed attempt and records the decision
+	 *
+	 * @param attempt
+	 *            Number of the failed attempt, starting at 1
+	 * @param startTime
+	 *            Time of the first attempt
+	 * @return The delay before the next attempt, or -1 if the request must
+	 *         not be attempted again
+	 */
+	long getRetryDelayMs(String description, Throwable failure, int attempt, long startTime, Deadline deadline) {
+		if (!isTransient(failure)) {
+			metrics.permanentFailures.incrementAndGet();
+			return -1;
+		}
+		metrics.transientFailures.incrementAndGet();
+		long backoffMs = getBackoffMs(attempt);
+		long elapsedMs = System.currentTimeMillis() - startTime;
+		if (attempt >= maxAttempts || elapsedMs + backoffMs > retryBudgetMs || backoffMs >= deadline.getRemainingMs()) {
+			metrics.exhausted.incrementAndGet();
+			_logger.warn(description + " failed after " + attempt + " attempt(s) in " + elapsedMs + "ms: " + failure);
+			return -1;
+		}
+		metrics.retries.incrementAndGet();
+		_logger.info(description + " failed (" + failure + "), retrying in " + backoffMs + "ms...");
+		return backoffMs;
+	}
+
+	private <E extends Exception> void _sleepBeforeRetry(String description, E failure, int attempt, long startTime, Deadline deadline) throws E, IOException {
+		long retryDelayMs = getRetryDelayMs(description, failure, attempt, startTime, deadline);
+		if (retryDelayMs < 0) {
+			throw failure;
+		}
+		try {
+			Thread.sleep(retryDelayMs);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			InterruptedIOException interruptedException = new InterruptedIOException("Interrupted while waiting to retry " + description);
+			interruptedException.initCause(failure);
+			throw interruptedException;
+		}
+	}
+}
@@ -0,0 +1,81 @@
+package org.mule.tools.mmc.rest;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces identical concurrent requests: while a request is in flight, the
+ * callers asking for the same key wait for it and share its result, or its
+ * failure, instead of sending their own. Once the request is over, the next
+ * caller sends a new one: results are not cached.
+ */
+class SingleFlight {
+
+	private final ConcurrentMap<String, CompletableFuture<Object>> flights = new ConcurrentHashMap<String, CompletableFuture<Object>>();
+	private final AtomicLong coalescedRequests = new AtomicLong();
+
+	/**
+	 * Executes a request, or waits for the identical one in flight
+	 *
+	 * @param key
+	 *            Identifies the request and everything its result depends on
+	 */
+	@SuppressWarnings("unchecked")
+	<T> T execute(String key, RetryPolicy.Request<T> request) throws IOException {
+		CompletableFuture<Object> flight = new CompletableFuture<Object>();
+		CompletableFuture<Object> inFlight = flights.putIfAbsent(key, flight);
+		if (inFlight != null) {
+			coalescedRequests.incrementAndGet();
+			return (T) _await(key, inFlight);
+		}
+		try {
+			T result = request.execute();
+			flight.complete(result);
+			return result;
+		} catch (IOException | RuntimeException | Error e) {
+			flight.completeExceptionally(e);
+			throw e;
+		} finally {
+			flights.remove(key, flight);
+		}
+	}
+
+	/**
+	 * Lets the following callers send new requests instead of joining those
+	 * in flight, whose results may predate a change
+	 */
+	void forget() {
+		flights.clear();
+	}
+
+	/**
+	 * Returns the number of requests which were not sent because an identical
+	 * one was in flight
+	 */
+	long getCoalescedRequests() {
+		return coalescedRequests.get();
+	}
+
+	private static Object _await(String key, CompletableFuture<Object> flight) throws IOException {
+		try {
+			return flight.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for " + key);
+		} catch (ExecutionException e) {
+			// The failure of the request in flight is the failure of all its callers
+			Throwable failure = e.getCause();
+			if (failure instanceof IOException) {
+				throw (IOException) failure;
+			} else if (failure instanceof RuntimeException) {
+				throw (RuntimeException) failure;
+			}
+			throw (Error) failure;
+		}
+	}
+}
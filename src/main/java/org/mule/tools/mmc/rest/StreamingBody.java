@@ -0,0 +1,25 @@
+package org.mule.tools.mmc.rest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Body of a request written straight to the connection, without being held in
+ * memory
+ */
+public interface StreamingBody {
+
+	String getContentType();
+
+	/**
+	 * Returns the length of the body, or -1 if it is not known before it is
+	 * written
+	 */
+	long getContentLength();
+
+	/**
+	 * Writes the body, the output stream is not closed
+	 */
+	void writeTo(OutputStream outputStream) throws IOException;
+
+}
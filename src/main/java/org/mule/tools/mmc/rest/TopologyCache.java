@@ -0,0 +1,176 @@
+package org.mule.tools.mmc.rest;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Name to id cache of the server groups, servers and clusters known by the
+ * MMC.
+ *
+ * Each kind of resource is loaded from a single listing of the MMC and kept
+ * for {@link #getTtlMs()} ms, so resolving several names (or the same name
+ * several times) during a build costs one request per kind at most.
+ */
+public class TopologyCache {
+
+	public static final long DEFAULT_TTL_MS = 60000;
+
+	/**
+	 * Kind of resources held by the cache
+	 */
+	public enum TopologyKind {
+		SERVER_GROUP("serverGroups"), SERVER("servers"), CLUSTER("clusters");
+
+		/**
+		 * Path of the MMC listing of this kind of resources
+		 */
+		public final String path;
+
+		private TopologyKind(String path) {
+			this.path = path;
+		}
+	}
+
+	/**
+	 * Loads a snapshot from the MMC
+	 */
+	interface Loader {
+		Snapshot load(TopologyKind kind) throws IOException;
+	}
+
+	private final Map<TopologyKind, Snapshot> snapshots = new EnumMap<TopologyKind, Snapshot>(TopologyKind.class);
+	// Not monitors, a virtual thread blocked on a monitor holds its carrier
+	private final Map<TopologyKind, ReentrantLock> loadLocks = new EnumMap<TopologyKind, ReentrantLock>(TopologyKind.class);
+	private volatile long ttlMs;
+
+	public TopologyCache() {
+		this(DEFAULT_TTL_MS);
+	}
+
+	/**
+	 * @param ttlMs
+	 *            Time during which a snapshot is used before being loaded
+	 *            again
+	 */
+	public TopologyCache(long ttlMs) {
+		this.ttlMs = ttlMs;
+		for (TopologyKind kind : TopologyKind.values()) {
+			loadLocks.put(kind, new ReentrantLock());
+		}
+	}
+
+	public long getTtlMs() {
+		return ttlMs;
+	}
+
+	public void setTtlMs(long ttlMs) {
+		this.ttlMs = ttlMs;
+	}
+
+	/**
+	 * Forgets all the snapshots, the next resolutions will reload them
+	 */
+	public synchronized void invalidate() {
+		snapshots.clear();
+	}
+
+	/**
+	 * Forgets the snapshot of the given kind of resources
+	 */
+	public synchronized void invalidate(TopologyKind kind) {
+		snapshots.remove(kind);
+	}
+
+	/**
+	 * Returns the snapshot of the given kind, loading it with the loader if
+	 * there is none or if it has expired. Concurrent callers wait for a single
+	 * load.
+	 */
+	Snapshot snapshot(TopologyKind kind, Loader loader) throws IOException {
+		Snapshot snapshot = _getFresh(kind);
+		if (snapshot != null) {
+			return snapshot;
+		}
+		ReentrantLock loadLock = loadLocks.get(kind);
+		loadLock.lock();
+		try {
+			snapshot = _getFresh(kind);
+			if (snapshot == null) {
+				snapshot = loader.load(kind);
+				put(kind, snapshot);
+			}
+			return snapshot;
+		} finally {
+			loadLock.unlock();
+		}
+	}
+
+	synchronized void put(TopologyKind kind, Snapshot snapshot) {
+		snapshots.put(kind, snapshot);
+	}
+
+	private synchronized Snapshot _getFresh(TopologyKind kind) {
+		Snapshot snapshot = snapshots.get(kind);
+		if (snapshot != null && System.currentTimeMillis() - snapshot.loadTime >= ttlMs) {
+			snapshots.remove(kind);
+			return null;
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Immutable view of one MMC listing
+	 */
+	static class Snapshot {
+		final long loadTime;
+		private final Map<String, String> idsByName = new HashMap<String, String>();
+		private final Map<String, Set<String>> serverIdsByGroupName = new HashMap<String, Set<String>>();
+
+		Snapshot() {
+			this.loadTime = System.currentTimeMillis();
+		}
+
+		/**
+		 * Registers a resource, the first resource registered with a name wins
+		 */
+		void addResource(String name, String id) {
+			if (name != null && !idsByName.containsKey(name)) {
+				idsByName.put(name, id);
+			}
+		}
+
+		/**
+		 * Registers the membership of a server to a group
+		 */
+		void addServerToGroup(String groupName, String serverId) {
+			Set<String> serverIds = serverIdsByGroupName.get(groupName);
+			if (serverIds == null) {
+				serverIds = new TreeSet<String>();
+				serverIdsByGroupName.put(groupName, serverIds);
+			}
+			serverIds.add(serverId);
+		}
+
+		/**
+		 * Returns the id of the resource with the given name or null if not
+		 * found
+		 */
+		String getId(String name) {
+			return idsByName.get(name);
+		}
+
+		/**
+		 * Returns the ids of the servers belonging to the given group
+		 */
+		Set<String> getServerIdsInGroup(String groupName) {
+			Set<String> serverIds = serverIdsByGroupName.get(groupName);
+			return serverIds == null ? Collections.<String> emptySet() : serverIds;
+		}
+	}
+}
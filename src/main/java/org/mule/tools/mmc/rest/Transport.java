@@ -0,0 +1,33 @@
+package org.mule.tools.mmc.rest;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * HTTP client through which a {@link MuleRest} session talks to the MMC. It
+ * sends the requests with the credentials of the session and keeps the
+ * connections open from one request to the other.
+ * 
+ * Two implementations are available: {@link CxfTransport}, used by default,
+ * and {@link JdkHttpTransport}, lighter, built on the HTTP client of the JDK.
+ */
+public interface Transport extends Closeable {
+
+	/**
+	 * Sends a request and returns its response, whatever its status. The
+	 * response must be closed once read, so that its connection can be used
+	 * by another request.
+	 * 
+	 * @param deadline
+	 *            Bounds the wait for a free connection and the connection and
+	 *            receive timeouts
+	 */
+	TransportResponse send(TransportRequest request, Deadline deadline) throws IOException;
+
+	/**
+	 * Closes the connections kept open
+	 */
+	@Override
+	void close();
+
+}
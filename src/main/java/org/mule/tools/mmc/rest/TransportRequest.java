@@ -0,0 +1,57 @@
+package org.mule.tools.mmc.rest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Request sent to the MMC through a {@link Transport}
+ */
+public class TransportRequest {
+
+	/**
+	 * HTTP method
+	 */
+	public String method;
+
+	/**
+	 * Segments of the path, relative to the MMC URL, not encoded
+	 */
+	public List<String> path = new ArrayList<String>();
+
+	/**
+	 * Query parameters, in order, not encoded
+	 */
+	public Map<String, String> query = new LinkedHashMap<String, String>();
+
+	/**
+	 * Text body, null if the request has none or a streamed body
+	 */
+	public String entity;
+
+	/**
+	 * Content type of the text body
+	 */
+	public String contentType;
+
+	/**
+	 * Streamed body, null if the request has none or a text body
+	 */
+	public StreamingBody body;
+
+	public TransportRequest(String method, String... path) {
+		this.method = method;
+		this.path.addAll(Arrays.asList(path));
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder(method).append(' ');
+		for (String segment : path) {
+			sb.append('/').append(segment);
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,51 @@
+package org.mule.tools.mmc.rest;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Response of the MMC received through a {@link Transport}. Closing it closes
+ * the body and lets the connection be used by another request.
+ */
+public class TransportResponse implements Closeable {
+
+	/**
+	 * HTTP status code
+	 */
+	public final int status;
+
+	/**
+	 * Body of the response, empty if there is none
+	 */
+	public final InputStream body;
+
+	private boolean closed;
+
+	public TransportResponse(int status, InputStream body) {
+		this.status = status;
+		this.body = body == null ? new ByteArrayInputStream(new byte[0]) : body;
+	}
+
+	@Override
+	public void close() throws IOException {
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+		}
+		try {
+			body.close();
+		} finally {
+			released();
+		}
+	}
+
+	/**
+	 * Called once when the response is closed, to give back the connection
+	 */
+	protected void released() {
+	}
+}
@@ -0,0 +1,35 @@
+package org.mule.tools.mmc.rest;
+
+/**
+ * Figures of an application upload to the repository
+ */
+public class UploadStatistics {
+
+	/**
+	 * Number of bytes sent, multipart envelope included
+	 */
+	public long bytesSent;
+
+	/**
+	 * Time spent sending the request body
+	 */
+	public long uploadTimeMs;
+
+	/**
+	 * Time between the start of the request and the first byte of the
+	 * response
+	 */
+	public long timeToFirstByteMs;
+
+	/**
+	 * Average upload throughput in bytes per second
+	 */
+	public long getBytesPerSecond() {
+		return uploadTimeMs <= 0 ? bytesSent * 1000 : bytesSent * 1000 / uploadTimeMs;
+	}
+
+	@Override
+	public String toString() {
+		return bytesSent + " bytes sent in " + uploadTimeMs + "ms (" + getBytesPerSecond() / 1024 + " KB/s), first response byte after " + timeToFirstByteMs + "ms";
+	}
+}
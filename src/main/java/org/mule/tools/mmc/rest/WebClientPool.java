@@ -0,0 +1,178 @@
+package org.mule.tools.mmc.rest;
+
+import java.io.Closeable;
+import java.io.InterruptedIOException;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.cxf.jaxrs.client.WebClient;
+import org.apache.cxf.transport.http.HTTPConduit;
+import org.apache.cxf.transports.http.configuration.ConnectionType;
+import org.apache.cxf.transports.http.configuration.HTTPClientPolicy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Pool of long-lived {@link WebClient}s sharing the credentials and the
+ * connection settings of a {@link MuleRest} session, saving the creation of a
+ * client and its conduit for each request.
+ *
+ * The pool holds client objects, not connections: the sockets are kept alive
+ * and reused by the keep-alive cache of the JDK, which keeps at most 5 idle
+ * connections per host unless the JVM is started with a higher
+ * -Dhttp.maxConnections, and closes them after its own timeout. A client is
+ * used by one thread at a time, so at most
+ * {@link ConnectionSettings#maxConcurrentRequests} clients, and connections,
+ * are in use at the same time. Clients left unused for more than
+ * {@link ConnectionSettings#idleClientTimeoutMs} are closed.
+ */
+class WebClientPool implements Closeable {
+	private static final Logger _logger = LoggerFactory.getLogger(WebClientPool.class);
+
+	private final URL mmcUrl;
+	private final String username;
+	private final String password;
+	private final ConnectionSettings settings;
+	private final Semaphore permits;
+
+	/**
+	 * Idle clients, most recently released first
+	 */
+	private final Deque<PooledClient> idleClients = new ArrayDeque<PooledClient>();
+	private boolean closed;
+
+	WebClientPool(URL mmcUrl, String username, String password, ConnectionSettings settings) {
+		this.mmcUrl = mmcUrl;
+		this.username = username;
+		this.password = password;
+		this.settings = settings;
+		this.permits = new Semaphore(Math.max(1, settings.maxConcurrentRequests), true);
+	}
+
+	/**
+	 * Returns a client pointing to the MMC base URL, waiting for one to be
+	 * released if {@link ConnectionSettings#maxConcurrentRequests} clients are
+	 * already in use. The client must be given back with
+	 * {@link #release(WebClient)}.
+	 */
+	WebClient borrow() throws InterruptedIOException {
+		return borrow(Deadline.NONE);
+	}
+
+	/**
+	 * Same as {@link #borrow()}, without waiting past the deadline. The
+	 * timeouts of the returned client are shortened to the time left.
+	 */
+	WebClient borrow(Deadline deadline) throws InterruptedIOException {
+		try {
+			if (!deadline.isBounded()) {
+				permits.acquire();
+			} else if (!permits.tryAcquire(deadline.getRemainingMs(), TimeUnit.MILLISECONDS)) {
+				throw new DeadlineExceededException("Deadline exceeded while waiting for a connection to the MMC");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for a connection to the MMC");
+		}
+		try {
+			WebClient webClient = _borrowAcquired();
+			HTTPClientPolicy policy = WebClient.getConfig(webClient).getHttpConduit().getClient();
+			policy.setConnectionTimeout(deadline.clamp(settings.connectTimeoutMs));
+			policy.setReceiveTimeout(deadline.clamp(settings.receiveTimeoutMs));
+			return webClient;
+		} catch (Throwable t) {
+			// Errors included, a lost permit would block every later request
+			permits.release();
+			throw t;
+		}
+	}
+
+	private WebClient _borrowAcquired() {
+		PooledClient pooledClient;
+		synchronized (this) {
+			if (closed) {
+				throw new IllegalStateException("MMC session is closed");
+			}
+			_evictIdleClients();
+			pooledClient = idleClients.pollFirst();
+		}
+		if (pooledClient != null) {
+			return pooledClient.webClient;
+		}
+		return _createWebClient();
+	}
+
+	/**
+	 * Gives back a client obtained from {@link #borrow()} so that its
+	 * connection can be reused by the next request
+	 */
+	void release(WebClient webClient) {
+		try {
+			webClient.reset();
+			boolean closeClient;
+			synchronized (this) {
+				closeClient = closed;
+				if (!closed) {
+					idleClients.addFirst(new PooledClient(webClient, System.currentTimeMillis()));
+				}
+			}
+			if (closeClient) {
+				webClient.close();
+			}
+		} finally {
+			permits.release();
+		}
+	}
+
+	/**
+	 * Closes all idle clients. Clients still in use are closed when they are
+	 * released.
+	 */
+	@Override
+	public void close() {
+		synchronized (this) {
+			closed = true;
+			for (PooledClient pooledClient : idleClients) {
+				pooledClient.webClient.close();
+			}
+			idleClients.clear();
+		}
+	}
+
+	private void _evictIdleClients() {
+		long now = System.currentTimeMillis();
+		Iterator<PooledClient> oldestFirst = idleClients.descendingIterator();
+		while (oldestFirst.hasNext()) {
+			PooledClient pooledClient = oldestFirst.next();
+			if (now - pooledClient.releaseTime < settings.idleClientTimeoutMs) {
+				break;
+			}
+			_logger.trace("Closing idle MMC client");
+			oldestFirst.remove();
+			pooledClient.webClient.close();
+		}
+	}
+
+	private WebClient _createWebClient() {
+		_logger.trace("Creating MMC client");
+		WebClient webClient = WebClient.create(mmcUrl.toString(), username, password, null);
+		HTTPConduit conduit = WebClient.getConfig(webClient).getHttpConduit();
+		HTTPClientPolicy policy = conduit.getClient();
+		policy.setConnection(ConnectionType.KEEP_ALIVE);
+		return webClient;
+	}
+
+	private static class PooledClient {
+		final WebClient webClient;
+		final long releaseTime;
+
+		PooledClient(WebClient webClient, long releaseTime) {
+			this.webClient = webClient;
+			this.releaseTime = releaseTime;
+		}
+	}
+}
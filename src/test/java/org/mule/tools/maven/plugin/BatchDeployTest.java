@@ -0,0 +1,126 @@
+package org.mule.tools.maven.plugin;
+
+import static org.mockito.Mockito.*;
+
+import java.io.File;
+import java.net.URL;
+import java.util.Collections;
+
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mule.tools.mmc.rest.DeploymentState;
+import org.mule.tools.mmc.rest.DeploymentStatus;
+import org.mule.tools.mmc.rest.MuleRest;
+
+public class BatchDeployTest {
+
+	private static final String MOCKED_DEPLOYMENT_ID = "1234";
+	private static final String TARGET_DEPLOYMENT_SERVER = "Development";
+
+	private BatchDeploy batchDeploy;
+
+	private MuleRest mockMuleRest;
+
+	private File _tempDirectory;
+	private File _muleAppFile1;
+	private File _muleAppFile2;
+
+	@Before
+	public void setup() throws Exception {
+		batchDeploy = spy(new BatchDeploy());
+
+		_tempDirectory = File.createTempFile("BatchDeployUT", "");
+		if (_tempDirectory.exists()) {
+			_tempDirectory.delete();
+		}
+		_tempDirectory.mkdir();
+
+		_muleAppFile1 = new File(_tempDirectory, "my_mule_app-1.0.zip");
+		_muleAppFile1.createNewFile();
+		_muleAppFile2 = new File(_tempDirectory, "other_mule_app-2.0-SNAPSHOT.zip");
+		_muleAppFile2.createNewFile();
+
+		mockMuleRest = mock(MuleRest.class);
+		when(batchDeploy._createMuleRest(anyString(), anyString(), any(URL.class))).thenReturn(mockMuleRest);
+		when(mockMuleRest.restfullyUploadRepository("my_mule_app", "1.0", _muleAppFile1)).thenReturn("7959");
+		when(mockMuleRest.restfullyUploadRepository("other_mule_app", "2.0-SNAPSHOT", _muleAppFile2)).thenReturn("7960");
+		when(mockMuleRest.restfullyCreateDeployment(anyString(), anyString(), anyString())).thenReturn(MOCKED_DEPLOYMENT_ID);
+		DeploymentState deploymentState = new DeploymentState();
+		deploymentState.status = DeploymentStatus.DEPLOYED;
+		when(mockMuleRest.restfullyGetDeploymentState(anyString())).thenReturn(deploymentState);
+		when(mockMuleRest.restfullyGetDeploymentStates(anyCollectionOf(String.class))).thenReturn(Collections.singletonMap(MOCKED_DEPLOYMENT_ID, deploymentState));
+		DeployTest.stubDeploymentPlans(mockMuleRest);
+
+		batchDeploy.setLog(new SystemStreamLog());
+		batchDeploy.muleAppFiles = _tempDirectory.getAbsolutePath();
+		batchDeploy.mmcApiUrl = "http://localhost:8080/mmc/api";
+		batchDeploy.mmcUsername = "muleuser1";
+		batchDeploy.mmcPassword = "pwd1234";
+		batchDeploy.targetDeploymentServer = TARGET_DEPLOYMENT_SERVER;
+	}
+
+	@After
+	public void cleanup() throws Exception {
+		_muleAppFile1.delete();
+		_muleAppFile2.delete();
+		_tempDirectory.delete();
+	}
+
+	@Test
+	public void testNominal() throws Exception {
+		batchDeploy.execute();
+
+		verify(batchDeploy, times(1))._createMuleRest(anyString(), anyString(), any(URL.class));
+		verify(mockMuleRest).restfullyCreateDeployment(TARGET_DEPLOYMENT_SERVER, "my_mule_app", "7959");
+		verify(mockMuleRest).restfullyCreateDeployment(TARGET_DEPLOYMENT_SERVER, "other_mule_app", "7960");
+		verify(mockMuleRest, times(2)).restfullyDeployDeploymentById(MOCKED_DEPLOYMENT_ID);
+		verify(mockMuleRest).close();
+	}
+
+	@Test
+	public void testFilePattern() throws Exception {
+		batchDeploy.muleAppFiles = _tempDirectory.getAbsolutePath() + File.separatorChar + "other*.zip";
+		batchDeploy.execute();
+
+		verify(mockMuleRest, never()).restfullyUploadRepository(eq("my_mule_app"), anyString(), any(File.class));
+		verify(mockMuleRest).restfullyCreateDeployment(TARGET_DEPLOYMENT_SERVER, "other_mule_app", "7960");
+	}
+
+	@Test
+	public void testFailureOfOneArchive() throws Exception {
+		when(mockMuleRest.restfullyCreateDeployment(TARGET_DEPLOYMENT_SERVER, "my_mule_app", "7959")).thenThrow(new IllegalStateException("MMC error"));
+
+		try {
+			batchDeploy.execute();
+			Assert.fail("Exception should have been thrown");
+		} catch (MojoFailureException e) {
+			Assert.assertTrue(e.getMessage().contains("1 of 2 archives"));
+		}
+		verify(mockMuleRest).restfullyCreateDeployment(TARGET_DEPLOYMENT_SERVER, "other_mule_app", "7960");
+	}
+
+	@Test
+	public void testArchiveWithoutVersion() throws Exception {
+		File muleAppFile = new File(_tempDirectory, "unversioned_mule_app.zip");
+		muleAppFile.createNewFile();
+		try {
+			batchDeploy.execute();
+			Assert.fail("Exception should have been thrown");
+		} catch (MojoFailureException e) {
+			Assert.assertTrue(e.getMessage().contains("unversioned_mule_app.zip"));
+		} finally {
+			muleAppFile.delete();
+		}
+		verify(mockMuleRest, never()).restfullyUploadRepository(anyString(), anyString(), any(File.class));
+	}
+
+	@Test(expected = MojoFailureException.class)
+	public void testNoArchive() throws Exception {
+		batchDeploy.muleAppFiles = _tempDirectory.getAbsolutePath() + File.separatorChar + "none*.zip";
+		batchDeploy.execute();
+	}
+}
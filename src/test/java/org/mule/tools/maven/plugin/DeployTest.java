@@ -3,7 +3,15 @@ package org.mule.tools.maven.plugin;
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
-
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang.StringUtils;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugin.logging.Log;
@@ -13,9 +21,12 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.mule.tools.maven.plugin.Deploy;
+import org.mule.tools.mmc.rest.DeploymentPlan;
 import org.mule.tools.mmc.rest.DeploymentState;
 import org.mule.tools.mmc.rest.DeploymentStatus;
 import org.mule.tools.mmc.rest.MuleRest;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import static org.mockito.Mockito.*;
 
@@ -86,6 +97,35 @@ public class DeployTest {
 		deploymentState.status = DeploymentStatus.DEPLOYED;
 
 		when(mockMuleRest.restfullyGetDeploymentState(anyString())).thenReturn(deploymentState);
+		when(mockMuleRest.restfullyGetDeploymentStates(anyCollectionOf(String.class))).thenReturn(Collections.singletonMap(MOCKED_DEPLOYMENT_ID, deploymentState));
+		stubDeploymentPlans(mockMuleRest);
+	}
+
+	/**
+	 * Makes the deployments prepared then created go through the stubs of the
+	 * one-call creation, the targets of a deployment holding several being
+	 * joined with commas
+	 */
+	static void stubDeploymentPlans(final MuleRest mockMuleRest) throws Exception {
+		when(mockMuleRest.restfullyPrepareDeployment(anyListOf(String.class), anyString())).thenAnswer(new DeploymentPlanAnswer());
+		when(mockMuleRest.restfullyCreateDeployment(any(DeploymentPlan.class), anyString())).thenAnswer(new Answer<String>() {
+			@Override
+			public String answer(InvocationOnMock invocation) throws Throwable {
+				DeploymentPlan deploymentPlan = (DeploymentPlan) invocation.getArguments()[0];
+				return mockMuleRest.restfullyCreateDeployment(StringUtils.join(deploymentPlan.targetServerNames, ","), deploymentPlan.name, (String) invocation.getArguments()[1]);
+			}
+		});
+	}
+
+	static class DeploymentPlanAnswer implements Answer<DeploymentPlan> {
+		@Override
+		@SuppressWarnings("unchecked")
+		public DeploymentPlan answer(InvocationOnMock invocation) throws Throwable {
+			DeploymentPlan deploymentPlan = new DeploymentPlan();
+			deploymentPlan.targetServerNames.addAll((List<String>) invocation.getArguments()[0]);
+			deploymentPlan.name = (String) invocation.getArguments()[1];
+			return deploymentPlan;
+		}
 	}
 
 	@Test
@@ -155,4 +195,190 @@ public class DeployTest {
 		verify(mockMuleRest).restfullyCreateDeployment(TARGET_DEPLOYMENT_SERVER, expectedDeploymentName, MOCKED_VERSION_ID);
 	}
 
-}
\ No newline at end of file
+	@Test
+	public void testMultipleTargetsInOneDeployment() throws Exception {
+		deploy.targetDeploymentServers = "Staging, Production";
+		deploy.execute();
+
+		verify(mockMuleRest).restfullyUploadRepository(ARTIFACT_ID, VERSION, _muleAppFile);
+		verify(mockMuleRest).restfullyPrepareDeployment(Arrays.asList(TARGET_DEPLOYMENT_SERVER, "Staging", "Production"), ARTIFACT_ID);
+		verify(mockMuleRest).restfullyCreateDeployment(TARGET_DEPLOYMENT_SERVER + ",Staging,Production", ARTIFACT_ID, MOCKED_VERSION_ID);
+		verify(mockMuleRest).restfullyDeployDeploymentById(MOCKED_DEPLOYMENT_ID);
+		verify(mockMuleRest).restfullyGetDeploymentState(MOCKED_DEPLOYMENT_ID);
+	}
+
+	@Test
+	public void testMultipleTargets() throws Exception {
+		deploy.targetDeploymentServers = "Staging, Production";
+		deploy.deploymentPerTarget = true;
+		deploy.execute();
+
+		verify(mockMuleRest).restfullyUploadRepository(ARTIFACT_ID, VERSION, _muleAppFile);
+		verify(mockMuleRest).restfullyCreateDeployment(TARGET_DEPLOYMENT_SERVER, ARTIFACT_ID + "-" + TARGET_DEPLOYMENT_SERVER, MOCKED_VERSION_ID);
+		verify(mockMuleRest).restfullyCreateDeployment("Staging", ARTIFACT_ID + "-Staging", MOCKED_VERSION_ID);
+		verify(mockMuleRest).restfullyCreateDeployment("Production", ARTIFACT_ID + "-Production", MOCKED_VERSION_ID);
+		verify(mockMuleRest, times(3)).restfullyDeployDeploymentById(MOCKED_DEPLOYMENT_ID);
+		// The deployments are tracked together
+		verify(mockMuleRest, never()).restfullyGetDeploymentState(anyString());
+		verify(mockMuleRest, atLeastOnce()).restfullyGetDeploymentStates(anyCollectionOf(String.class));
+	}
+
+	@Test
+	public void testTargetsPreparedDuringUpload() throws Exception {
+		deploy.targetDeploymentServers = "Staging";
+		deploy.deploymentPerTarget = true;
+		final CountDownLatch prepared = new CountDownLatch(2);
+		when(mockMuleRest.restfullyPrepareDeployment(anyListOf(String.class), anyString())).thenAnswer(new DeploymentPlanAnswer() {
+			@Override
+			public DeploymentPlan answer(InvocationOnMock invocation) throws Throwable {
+				prepared.countDown();
+				return super.answer(invocation);
+			}
+		});
+		when(mockMuleRest.restfullyUploadRepository(anyString(), anyString(), any(File.class))).thenAnswer(new Answer<String>() {
+			@Override
+			public String answer(InvocationOnMock invocation) throws Throwable {
+				// The upload only completes if the targets are prepared meanwhile
+				Assert.assertTrue(prepared.await(5, TimeUnit.SECONDS));
+				return MOCKED_VERSION_ID;
+			}
+		});
+		deploy.execute();
+
+		verify(mockMuleRest).restfullyCreateDeployment("Staging", ARTIFACT_ID + "-Staging", MOCKED_VERSION_ID);
+		verify(mockMuleRest, times(2)).restfullyDeployDeploymentById(MOCKED_DEPLOYMENT_ID);
+	}
+
+	@Test
+	public void testMultipleTargetsOnVirtualThreads() throws Exception {
+		deploy.targetDeploymentServers = "Staging, Production";
+		deploy.deploymentPerTarget = true;
+		deploy.maxParallelDeployments = 1;
+		deploy.virtualThreads = true;
+		final Set<String> threadNames = Collections.synchronizedSet(new HashSet<String>());
+		when(mockMuleRest.restfullyCreateDeployment(anyString(), anyString(), anyString())).thenAnswer(new Answer<String>() {
+			@Override
+			public String answer(InvocationOnMock invocation) throws Throwable {
+				threadNames.add(Thread.currentThread().toString());
+				return MOCKED_DEPLOYMENT_ID;
+			}
+		});
+		deploy.execute();
+
+		verify(mockMuleRest, times(3)).restfullyDeployDeploymentById(MOCKED_DEPLOYMENT_ID);
+		if (VirtualThreads.isSupported()) {
+			Assert.assertEquals(3, threadNames.size());
+		} else {
+			// The platform pool has one thread for the targets and one for the upload
+			Assert.assertTrue(threadNames.size() <= 2);
+		}
+	}
+
+	@Test
+	public void testMultipleTargetsPolledOneByOne() throws Exception {
+		deploy.targetDeploymentServers = "Staging, Production";
+		deploy.deploymentPerTarget = true;
+		deploy.watchDeployments = false;
+		deploy.execute();
+
+		verify(mockMuleRest, times(3)).restfullyGetDeploymentState(MOCKED_DEPLOYMENT_ID);
+		verify(mockMuleRest, never()).restfullyGetDeploymentStates(anyCollectionOf(String.class));
+	}
+
+	@Test
+	public void testMultipleTargetsWithFailure() throws Exception {
+		deploy.targetDeploymentServers = "Staging,Production";
+		deploy.deploymentPerTarget = true;
+		when(mockMuleRest.restfullyCreateDeployment(eq("Staging"), anyString(), anyString())).thenThrow(new IllegalArgumentException("No group, server or cluster named \"Staging\" found"));
+
+		try {
+			deploy.execute();
+			Assert.fail("Exception should have been thrown");
+		} catch (MojoFailureException e) {
+			Assert.assertTrue(e.getMessage().contains("1 of 3 targets"));
+		}
+		verify(mockMuleRest).restfullyCreateDeployment("Production", ARTIFACT_ID + "-Production", MOCKED_VERSION_ID);
+		verify(mockMuleRest, times(2)).restfullyDeployDeploymentById(MOCKED_DEPLOYMENT_ID);
+	}
+
+
+	@Test
+	public void testPollsUntilDeployed() throws Exception {
+		DeploymentState inProgress = new DeploymentState();
+		inProgress.status = DeploymentStatus.IN_PROGRESS;
+		DeploymentState deployed = new DeploymentState();
+		deployed.status = DeploymentStatus.DEPLOYED;
+		when(mockMuleRest.restfullyGetDeploymentState(MOCKED_DEPLOYMENT_ID)).thenReturn(inProgress, inProgress, deployed);
+		deploy.deploymentTimeoutMs = 10000;
+		deploy.deploymentPollInitialDelayMs = 1;
+		deploy.deploymentPollMaxDelayMs = 10;
+
+		deploy.execute();
+
+		verify(mockMuleRest, times(3)).restfullyGetDeploymentState(MOCKED_DEPLOYMENT_ID);
+	}
+
+	@Test
+	public void testPollingEndsOnceReconciled() throws Exception {
+		DeploymentState inProgress = new DeploymentState();
+		inProgress.status = DeploymentStatus.IN_PROGRESS;
+		DeploymentState reconciled = new DeploymentState();
+		reconciled.status = DeploymentStatus.IN_PROGRESS;
+		reconciled.reconciled = true;
+		when(mockMuleRest.restfullyGetDeploymentState(MOCKED_DEPLOYMENT_ID)).thenReturn(inProgress, reconciled, inProgress);
+		deploy.deploymentTimeoutMs = 10000;
+		deploy.deploymentPollInitialDelayMs = 1;
+		deploy.deploymentPollMaxDelayMs = 10;
+
+		deploy.execute();
+
+		verify(mockMuleRest, times(2)).restfullyGetDeploymentState(MOCKED_DEPLOYMENT_ID);
+	}
+
+	@Test
+	public void testPollingTimeout() throws Exception {
+		DeploymentState inProgress = new DeploymentState();
+		inProgress.status = DeploymentStatus.IN_PROGRESS;
+		when(mockMuleRest.restfullyGetDeploymentState(MOCKED_DEPLOYMENT_ID)).thenReturn(inProgress);
+		deploy.deploymentTimeoutMs = 50;
+		deploy.deploymentPollInitialDelayMs = 20;
+		deploy.deploymentPollMaxDelayMs = 1000;
+
+		long startTime = System.currentTimeMillis();
+		try {
+			deploy.execute();
+			Assert.fail("Exception should have been thrown");
+		} catch (MojoFailureException e) {
+			Assert.assertTrue(e.getMessage().contains("Timeout"));
+		}
+		// Delays are clamped to the timeout rather than growing past it
+		Assert.assertTrue(System.currentTimeMillis() - startTime < 1000);
+	}
+
+	@Test
+	public void testExecutionTimeoutBoundsPolling() throws Exception {
+		DeploymentState inProgress = new DeploymentState();
+		inProgress.status = DeploymentStatus.IN_PROGRESS;
+		when(mockMuleRest.restfullyGetDeploymentState(MOCKED_DEPLOYMENT_ID)).thenReturn(inProgress);
+		deploy.deploymentTimeoutMs = 60000;
+		deploy.executionTimeoutMs = 100;
+
+		long startTime = System.currentTimeMillis();
+		try {
+			deploy.execute();
+			Assert.fail("Exception should have been thrown");
+		} catch (MojoFailureException e) {
+			Assert.assertTrue(e.getMessage().contains("Timeout"));
+		}
+		Assert.assertTrue(System.currentTimeMillis() - startTime < 5000);
+	}
+
+	@Test(expected = MojoFailureException.class)
+	public void testUnknownPolling() throws Exception {
+		DeploymentState inProgress = new DeploymentState();
+		inProgress.status = DeploymentStatus.IN_PROGRESS;
+		when(mockMuleRest.restfullyGetDeploymentState(MOCKED_DEPLOYMENT_ID)).thenReturn(inProgress);
+		deploy.deploymentPolling = "sometimes";
+		deploy.execute();
+	}
+}
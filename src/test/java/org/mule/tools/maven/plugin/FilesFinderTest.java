@@ -2,6 +2,7 @@ package org.mule.tools.maven.plugin;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.util.Arrays;
 
 import org.junit.After;
 import org.junit.Assert;
@@ -97,4 +98,41 @@ public class FilesFinderTest {
 	public void FindSearchCurrentDirectoryIfNoPathSpecified() throws Exception {
 		Assert.assertEquals(_testingFileInCurrentDir, FileFinder.find("MyUnitTestFile*.txt"));
 	}
+
+	@Test
+	public void FindAllFilesMatchingPattern() throws Exception {
+		_tempDir.mkdir();
+
+		File expectedFile1 = new File(_tempDir, "MyFile1.zip");
+		expectedFile1.createNewFile();
+		File expectedFile2 = new File(_tempDir, "MyFile2.zip");
+		expectedFile2.createNewFile();
+		new File(_tempDir, "AnotherFile.zip").createNewFile();
+
+		String pattern = _tempDir.getAbsolutePath() + File.separatorChar + "MyFile*.zip";
+
+		Assert.assertEquals(Arrays.asList(expectedFile1, expectedFile2), FileFinder.findAll(pattern, ".zip"));
+	}
+
+	@Test
+	public void FindAllFilesOfDirectory() throws Exception {
+		_tempDir.mkdir();
+
+		File expectedFile1 = new File(_tempDir, "AnotherFile.zip");
+		expectedFile1.createNewFile();
+		File expectedFile2 = new File(_tempDir, "MyFile1.zip");
+		expectedFile2.createNewFile();
+		new File(_tempDir, "MyFile2.txt").createNewFile();
+
+		Assert.assertEquals(Arrays.asList(expectedFile1, expectedFile2), FileFinder.findAll(_tempDir.getAbsolutePath(), ".zip"));
+	}
+
+	@Test(expected = FileNotFoundException.class)
+	public void FindAllThrowsIfDirectoryHasNoMatchingFile() throws Exception {
+		_tempDir.mkdir();
+
+		new File(_tempDir, "MyFile1.txt").createNewFile();
+
+		FileFinder.findAll(_tempDir.getAbsolutePath(), ".zip");
+	}
 }
@@ -0,0 +1,120 @@
+package org.mule.tools.maven.plugin;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class StepSchedulerTest {
+
+	private ExecutorService executorService;
+	private StepScheduler stepScheduler;
+
+	@Before
+	public void setup() {
+		executorService = Executors.newFixedThreadPool(2);
+		stepScheduler = new StepScheduler(executorService);
+	}
+
+	@After
+	public void cleanup() {
+		executorService.shutdownNow();
+	}
+
+	private static <T> StepScheduler.Task<T> returning(final T value) {
+		return new StepScheduler.Task<T>() {
+			@Override
+			public T run() {
+				return value;
+			}
+		};
+	}
+
+	private static <T> StepScheduler.Task<T> throwing(final RuntimeException failure) {
+		return new StepScheduler.Task<T>() {
+			@Override
+			public T run() {
+				throw failure;
+			}
+		};
+	}
+
+	@Test
+	public void testIndependentStepsRunInParallel() throws Exception {
+		final CountDownLatch bothStarted = new CountDownLatch(2);
+		StepScheduler.Task<String> task = new StepScheduler.Task<String>() {
+			@Override
+			public String run() throws Exception {
+				bothStarted.countDown();
+				// Only returns if the other step runs at the same time
+				return bothStarted.await(5, TimeUnit.SECONDS) ? "done" : "alone";
+			}
+		};
+		StepScheduler.Step<String> first = stepScheduler.add("first", task);
+		StepScheduler.Step<String> second = stepScheduler.add("second", task);
+		stepScheduler.awaitAll();
+
+		Assert.assertEquals("done", first.get());
+		Assert.assertEquals("done", second.get());
+	}
+
+	@Test
+	public void testStepRunsAfterItsDependencies() throws Exception {
+		final StepScheduler.Step<Integer> first = stepScheduler.add("first", returning(1));
+		final StepScheduler.Step<Integer> second = stepScheduler.add("second", returning(2));
+		StepScheduler.Step<Integer> sum = stepScheduler.add("sum", new StepScheduler.Task<Integer>() {
+			@Override
+			public Integer run() {
+				return first.get() + second.get();
+			}
+		}, first, second);
+		stepScheduler.awaitAll();
+
+		Assert.assertEquals(Integer.valueOf(3), sum.get());
+		Assert.assertEquals(StepScheduler.StepState.SUCCEEDED, sum.getState());
+	}
+
+	@Test
+	public void testFailureSkipsDependentSteps() throws Exception {
+		final IllegalStateException failure = new IllegalStateException("Upload failed");
+		StepScheduler.Step<String> upload = stepScheduler.add("upload", StepSchedulerTest.<String> throwing(failure));
+		StepScheduler.Step<String> lookup = stepScheduler.add("lookup", returning("id"));
+		StepScheduler.Step<String> creation = stepScheduler.add("creation", returning("created"), upload, lookup);
+		StepScheduler.Step<String> deployment = stepScheduler.add("deployment", returning("deployed"), creation);
+		stepScheduler.awaitAll();
+
+		Assert.assertEquals(StepScheduler.StepState.FAILED, upload.getState());
+		Assert.assertEquals(StepScheduler.StepState.SUCCEEDED, lookup.getState());
+		Assert.assertEquals(StepScheduler.StepState.SKIPPED, creation.getState());
+		Assert.assertEquals(StepScheduler.StepState.SKIPPED, deployment.getState());
+		Assert.assertSame(failure, deployment.getFailure());
+		Assert.assertNull(lookup.getFailure());
+	}
+
+	@Test
+	public void testTimings() throws Exception {
+		StepScheduler.Step<String> slow = stepScheduler.add("slow", new StepScheduler.Task<String>() {
+			@Override
+			public String run() throws Exception {
+				Thread.sleep(50);
+				return null;
+			}
+		});
+		stepScheduler.add("failing", throwing(new IllegalStateException()));
+		stepScheduler.add("after", returning(null), stepScheduler.getSteps().get(1));
+		stepScheduler.awaitAll();
+
+		Assert.assertTrue(slow.getDurationMs() >= 50);
+		List<String> timings = stepScheduler.getTimings();
+		Assert.assertEquals(3, timings.size());
+		Assert.assertTrue(timings.get(0), timings.get(0).matches("> slow : \\d+ms \\(started at \\+\\d+ms\\)"));
+		Assert.assertTrue(timings.get(1), timings.get(1).endsWith(", failed)"));
+		Assert.assertEquals("> after : skipped", timings.get(2));
+	}
+}
@@ -0,0 +1,82 @@
+package org.mule.tools.mmc.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ArchiveFingerprintsTest {
+
+	private static final String MMC_URL = "http://localhost:8080/mmc/api";
+
+	private File _tempDirectory;
+	private File _storeFile;
+
+	@Before
+	public void setup() throws Exception {
+		_tempDirectory = File.createTempFile("ArchiveFingerprintsUT", "");
+		_tempDirectory.delete();
+		_storeFile = new File(_tempDirectory, "sub/fingerprints.properties");
+	}
+
+	@After
+	public void cleanup() {
+		_storeFile.delete();
+		_storeFile.getParentFile().delete();
+		_tempDirectory.delete();
+	}
+
+	@Test
+	public void testSha256() throws Exception {
+		File file = File.createTempFile("ArchiveFingerprintsUT", ".zip");
+		try {
+			FileOutputStream fileOutputStream = new FileOutputStream(file);
+			fileOutputStream.write("abc".getBytes("UTF-8"));
+			fileOutputStream.close();
+			assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", ArchiveFingerprints.sha256(file));
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testRecordIsPersisted() throws Exception {
+		ArchiveFingerprints archiveFingerprints = new ArchiveFingerprints(_storeFile);
+		assertNull(archiveFingerprints.findVersionId(MMC_URL, "My_Mule_App", "1234"));
+		archiveFingerprints.record(MMC_URL, "My_Mule_App", "1234", "local$1");
+
+		ArchiveFingerprints reloadedArchiveFingerprints = new ArchiveFingerprints(_storeFile);
+		assertEquals("local$1", reloadedArchiveFingerprints.findVersionId(MMC_URL, "My_Mule_App", "1234"));
+		assertNull(reloadedArchiveFingerprints.findVersionId("http://other:8080/mmc/api", "My_Mule_App", "1234"));
+		assertNull(reloadedArchiveFingerprints.findVersionId(MMC_URL, "Other_App", "1234"));
+	}
+
+	@Test
+	public void testForget() throws Exception {
+		ArchiveFingerprints archiveFingerprints = new ArchiveFingerprints(_storeFile);
+		archiveFingerprints.record(MMC_URL, "My_Mule_App", "1234", "local$1");
+		archiveFingerprints.record(MMC_URL, "My_Mule_App", "5678", "local$2");
+		archiveFingerprints.forget("local$1");
+
+		ArchiveFingerprints reloadedArchiveFingerprints = new ArchiveFingerprints(_storeFile);
+		assertNull(reloadedArchiveFingerprints.findVersionId(MMC_URL, "My_Mule_App", "1234"));
+		assertEquals("local$2", reloadedArchiveFingerprints.findVersionId(MMC_URL, "My_Mule_App", "5678"));
+	}
+
+	@Test
+	public void testConcurrentRecordsAreKept() throws Exception {
+		ArchiveFingerprints archiveFingerprints = new ArchiveFingerprints(_storeFile);
+		ArchiveFingerprints otherArchiveFingerprints = new ArchiveFingerprints(_storeFile);
+		archiveFingerprints.record(MMC_URL, "My_Mule_App", "1234", "local$1");
+		otherArchiveFingerprints.record(MMC_URL, "Other_App", "5678", "local$2");
+
+		ArchiveFingerprints reloadedArchiveFingerprints = new ArchiveFingerprints(_storeFile);
+		assertEquals("local$1", reloadedArchiveFingerprints.findVersionId(MMC_URL, "My_Mule_App", "1234"));
+		assertEquals("local$2", reloadedArchiveFingerprints.findVersionId(MMC_URL, "Other_App", "5678"));
+	}
+}
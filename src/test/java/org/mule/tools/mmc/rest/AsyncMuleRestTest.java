@@ -0,0 +1,194 @@
+package org.mule.tools.mmc.rest;
+
+import static org.mockito.Mockito.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.cxf.transport.http.HTTPException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentMatcher;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class AsyncMuleRestTest {
+
+	private MuleRest muleRest;
+	private AsyncMuleRest asyncMuleRest;
+	private URL url;
+
+	@Before
+	public void setup() throws Exception {
+		url = new URL("http://localhost/mmc");
+		muleRest = mock(MuleRest.class);
+		when(muleRest.getDeadline()).thenReturn(Deadline.NONE);
+		asyncMuleRest = new AsyncMuleRest(muleRest, 2);
+		RetryPolicy retryPolicy = new RetryPolicy();
+		retryPolicy.initialBackoffMs = 1;
+		asyncMuleRest.setRetryPolicy(retryPolicy);
+		asyncMuleRest.setPollingStrategy(PollingStrategy.fixed(5));
+	}
+
+	@After
+	public void cleanup() {
+		asyncMuleRest.close();
+	}
+
+	private static DeploymentState state(String id, DeploymentStatus status) {
+		DeploymentState deploymentState = new DeploymentState();
+		deploymentState.id = id;
+		deploymentState.status = status;
+		return deploymentState;
+	}
+
+	@Test
+	public void testRequestsAreNotRetriedByTheSession() {
+		verify(muleRest).setRetryPolicy(argThat(new ArgumentMatcher<RetryPolicy>() {
+			@Override
+			public boolean matches(Object retryPolicy) {
+				return ((RetryPolicy) retryPolicy).maxAttempts == 1;
+			}
+		}));
+	}
+
+	@Test
+	public void testTransientErrorIsRetriedFromTimer() throws Exception {
+		doThrow(new HTTPException(503, "", url)).doNothing().when(muleRest).restfullyDeployDeploymentById("d1");
+
+		asyncMuleRest.deployDeploymentById("d1").get(5, TimeUnit.SECONDS);
+
+		verify(muleRest, times(2)).restfullyDeployDeploymentById("d1");
+		Assert.assertEquals(1, asyncMuleRest.getRetryPolicy().getMetrics().getRetries());
+		Assert.assertEquals(1, asyncMuleRest.getRetryPolicy().getMetrics().getRecoveries());
+	}
+
+	@Test
+	public void testPermanentErrorFailsFuture() throws Exception {
+		doThrow(new HTTPException(404, "", url)).when(muleRest).restfullyDeleteDeploymentById("d1");
+
+		try {
+			asyncMuleRest.deleteDeploymentById("d1").get(5, TimeUnit.SECONDS);
+			Assert.fail("Exception should have been thrown");
+		} catch (ExecutionException e) {
+			Assert.assertEquals(404, ((HTTPException) e.getCause()).getResponseCode());
+		}
+		verify(muleRest, times(1)).restfullyDeleteDeploymentById("d1");
+	}
+
+	@Test
+	public void testUploadIsNotRetried() throws Exception {
+		File file = new File("app.zip");
+		when(muleRest.restfullyUploadRepository("app", "1.0", file)).thenThrow(new HTTPException(503, "", url));
+
+		try {
+			asyncMuleRest.uploadRepository("app", "1.0", file).get(5, TimeUnit.SECONDS);
+			Assert.fail("Exception should have been thrown");
+		} catch (ExecutionException e) {
+			Assert.assertTrue(e.getCause() instanceof HTTPException);
+		}
+		verify(muleRest, times(1)).restfullyUploadRepository("app", "1.0", file);
+	}
+
+	@Test
+	public void testRequestsBeyondThreadsAreQueued() throws Exception {
+		final CountDownLatch release = new CountDownLatch(1);
+		when(muleRest.restfullyGetDeploymentState(anyString())).thenAnswer(new Answer<DeploymentState>() {
+			@Override
+			public DeploymentState answer(InvocationOnMock invocation) throws Throwable {
+				release.await(5, TimeUnit.SECONDS);
+				return state((String) invocation.getArguments()[0], DeploymentStatus.DEPLOYED);
+			}
+		});
+
+		CompletableFuture<?>[] states = new CompletableFuture<?>[10];
+		for (int i = 0; i < states.length; i++) {
+			states[i] = asyncMuleRest.getDeploymentState("d" + i);
+		}
+		Thread.sleep(100);
+		verify(muleRest, times(2)).restfullyGetDeploymentState(anyString());
+
+		release.countDown();
+		CompletableFuture.allOf(states).get(5, TimeUnit.SECONDS);
+		verify(muleRest, times(10)).restfullyGetDeploymentState(anyString());
+	}
+
+	@Test
+	public void testDeployApplication() throws Exception {
+		File file = new File("app.zip");
+		when(muleRest.restfullyGetApplicationId("app", "1.0")).thenReturn(null);
+		when(muleRest.restfullyUploadRepository("app", "1.0", file)).thenReturn("v1");
+		DeploymentPlan deploymentPlan = new DeploymentPlan();
+		when(muleRest.restfullyPrepareDeployment("server", "app")).thenReturn(deploymentPlan);
+		when(muleRest.restfullyCreateDeployment(deploymentPlan, "v1")).thenReturn("d1");
+		when(muleRest.restfullyGetDeploymentStates(anyCollectionOf(String.class))).thenReturn(
+				Collections.singletonMap("d1", state("d1", DeploymentStatus.IN_PROGRESS))).thenReturn(
+				Collections.singletonMap("d1", state("d1", DeploymentStatus.DEPLOYED)));
+
+		DeploymentState deploymentState = asyncMuleRest.deployApplication("app", "1.0", file, "server", "app", 5000).get(5, TimeUnit.SECONDS);
+
+		Assert.assertEquals(DeploymentStatus.DEPLOYED, deploymentState.status);
+		verify(muleRest).restfullyDeployDeploymentById("d1");
+	}
+
+	@Test
+	public void testAlreadyDeployedApplication() throws Exception {
+		when(muleRest.restfullyGetApplicationId("app", "1.0")).thenReturn("v1");
+		DeploymentPlan deploymentPlan = new DeploymentPlan();
+		when(muleRest.restfullyPrepareDeployment("server", "app")).thenReturn(deploymentPlan);
+		when(muleRest.restfullyCreateDeployment(deploymentPlan, "v1")).thenReturn(null);
+
+		Assert.assertNull(asyncMuleRest.deployApplication("app", "1.0", new File("app.zip"), "server", "app", 5000).get(5, TimeUnit.SECONDS));
+		verify(muleRest, never()).restfullyUploadRepository(anyString(), anyString(), any(File.class));
+		verify(muleRest, never()).restfullyDeployDeploymentById(anyString());
+	}
+
+	@Test
+	public void testOnlyDeploymentLookupsAreRetried() throws Exception {
+		DeploymentPlan deploymentPlan = new DeploymentPlan();
+		deploymentPlan.name = "app";
+		when(muleRest.restfullyPrepareDeployment("server", "app")).thenThrow(new HTTPException(503, "", url)).thenReturn(deploymentPlan);
+		when(muleRest.restfullyCreateDeployment(deploymentPlan, "v1")).thenThrow(new HTTPException(503, "", url));
+
+		try {
+			asyncMuleRest.createDeployment("server", "app", "v1").get(5, TimeUnit.SECONDS);
+			Assert.fail("Exception should have been thrown");
+		} catch (ExecutionException e) {
+			Assert.assertTrue(e.getCause() instanceof HTTPException);
+		}
+		verify(muleRest, times(2)).restfullyPrepareDeployment("server", "app");
+		verify(muleRest, times(1)).restfullyCreateDeployment(deploymentPlan, "v1");
+	}
+
+	@Test
+	public void testAwaitDeploymentTimeout() throws Exception {
+		when(muleRest.restfullyGetDeploymentStates(anyCollectionOf(String.class))).thenReturn(Collections.singletonMap("d1", state("d1", DeploymentStatus.IN_PROGRESS)));
+
+		try {
+			asyncMuleRest.awaitDeployment("d1", 50).get(5, TimeUnit.SECONDS);
+			Assert.fail("Exception should have been thrown");
+		} catch (ExecutionException e) {
+			Assert.assertTrue(e.getCause() instanceof TimeoutException);
+		}
+	}
+
+	@Test
+	public void testClosedSessionFailsRequests() throws Exception {
+		asyncMuleRest.close();
+		try {
+			asyncMuleRest.getDeploymentState("d1").get(5, TimeUnit.SECONDS);
+			Assert.fail("Exception should have been thrown");
+		} catch (ExecutionException e) {
+			Assert.assertTrue(e.getCause() instanceof IOException);
+		}
+	}
+}
@@ -0,0 +1,129 @@
+package org.mule.tools.mmc.rest;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.cxf.transport.http.HTTPException;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CircuitBreakerTest {
+
+	private final AtomicInteger calls = new AtomicInteger();
+
+	private RetryPolicy.Request<String> failing(final IOException failure) {
+		return new RetryPolicy.Request<String>() {
+			@Override
+			public String execute() throws IOException {
+				calls.incrementAndGet();
+				throw failure;
+			}
+		};
+	}
+
+	private RetryPolicy.Request<String> succeeding(final long durationMs) {
+		return new RetryPolicy.Request<String>() {
+			@Override
+			public String execute() throws IOException {
+				calls.incrementAndGet();
+				try {
+					Thread.sleep(durationMs);
+				} catch (InterruptedException e) {
+					throw new IOException(e);
+				}
+				return "ok";
+			}
+		};
+	}
+
+	private static void executeQuietly(CircuitBreaker circuitBreaker, RetryPolicy.Request<String> request) {
+		try {
+			circuitBreaker.execute(request);
+		} catch (IOException e) {
+		}
+	}
+
+	@Test
+	public void testOpensAfterConsecutiveFailures() throws Exception {
+		CircuitBreaker circuitBreaker = new CircuitBreaker("MMC", 3, 0, 60000);
+		for (int i = 0; i < 3; i++) {
+			executeQuietly(circuitBreaker, failing(new SocketTimeoutException("Read timed out")));
+		}
+		Assert.assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+		try {
+			circuitBreaker.execute(succeeding(0));
+			Assert.fail("Exception should have been thrown");
+		} catch (CircuitBreakerOpenException e) {
+			Assert.assertTrue(e.getMessage().contains("Read timed out"));
+		}
+		Assert.assertEquals(3, calls.get());
+		Assert.assertEquals(1, circuitBreaker.getShortCircuitedCalls());
+	}
+
+	@Test
+	public void testSuccessResetsFailureCount() throws Exception {
+		CircuitBreaker circuitBreaker = new CircuitBreaker("MMC", 3, 0, 60000);
+		executeQuietly(circuitBreaker, failing(new SocketTimeoutException()));
+		executeQuietly(circuitBreaker, failing(new SocketTimeoutException()));
+		circuitBreaker.execute(succeeding(0));
+		executeQuietly(circuitBreaker, failing(new SocketTimeoutException()));
+		executeQuietly(circuitBreaker, failing(new SocketTimeoutException()));
+		Assert.assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+	}
+
+	@Test
+	public void testClientErrorsDoNotOpen() throws Exception {
+		CircuitBreaker circuitBreaker = new CircuitBreaker("MMC", 2, 0, 60000);
+		URL url = new URL("http://localhost/mmc");
+		for (int i = 0; i < 5; i++) {
+			executeQuietly(circuitBreaker, failing(new HTTPException(404, "Not found", url)));
+		}
+		Assert.assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+	}
+
+	@Test
+	public void testSlowCallsOpen() throws Exception {
+		CircuitBreaker circuitBreaker = new CircuitBreaker("MMC", 2, 5, 60000);
+		circuitBreaker.execute(succeeding(20));
+		circuitBreaker.execute(succeeding(20));
+		Assert.assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+	}
+
+	@Test
+	public void testSlowCallsNotCountedDoNotOpen() throws Exception {
+		CircuitBreaker circuitBreaker = new CircuitBreaker("MMC", 1, 5, 60000);
+		circuitBreaker.execute(succeeding(20), false);
+		circuitBreaker.execute(succeeding(20), false);
+		Assert.assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+	}
+
+	@Test
+	public void testHalfOpenProbe() throws Exception {
+		CircuitBreaker circuitBreaker = new CircuitBreaker("MMC", 1, 0, 20);
+		executeQuietly(circuitBreaker, failing(new SocketTimeoutException()));
+		Assert.assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+		Thread.sleep(40);
+		// A failed probe opens the breaker again
+		executeQuietly(circuitBreaker, failing(new SocketTimeoutException()));
+		Assert.assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+		Assert.assertEquals(2, calls.get());
+
+		Thread.sleep(40);
+		Assert.assertEquals("ok", circuitBreaker.execute(succeeding(0)));
+		Assert.assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+	}
+
+	@Test
+	public void testDisabled() throws Exception {
+		CircuitBreaker circuitBreaker = CircuitBreaker.disabled("MMC");
+		for (int i = 0; i < 10; i++) {
+			executeQuietly(circuitBreaker, failing(new SocketTimeoutException()));
+		}
+		Assert.assertEquals(10, calls.get());
+		Assert.assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+	}
+}
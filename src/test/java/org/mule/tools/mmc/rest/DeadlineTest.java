@@ -0,0 +1,40 @@
+package org.mule.tools.mmc.rest;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DeadlineTest {
+
+	@Test
+	public void testNone() throws Exception {
+		Assert.assertSame(Deadline.NONE, Deadline.after(0));
+		Assert.assertFalse(Deadline.NONE.isBounded());
+		Assert.assertFalse(Deadline.NONE.isExpired());
+		Assert.assertEquals(30000, Deadline.NONE.clamp(30000));
+		Deadline.NONE.check("anything");
+	}
+
+	@Test
+	public void testClamp() {
+		Deadline deadline = Deadline.after(10000);
+		Assert.assertTrue(deadline.isBounded());
+		Assert.assertEquals(500, deadline.clamp(500));
+		Assert.assertTrue(deadline.clamp(1000000) <= 10000);
+	}
+
+	@Test
+	public void testExpired() throws Exception {
+		Deadline deadline = Deadline.after(1);
+		Thread.sleep(5);
+		Assert.assertTrue(deadline.isExpired());
+		Assert.assertEquals(0, deadline.getRemainingMs());
+		// Never 0, which would mean no timeout
+		Assert.assertEquals(1, deadline.clamp(30000));
+		try {
+			deadline.check("the next request");
+			Assert.fail("Exception should have been thrown");
+		} catch (DeadlineExceededException e) {
+			Assert.assertTrue(e.getMessage().contains("the next request"));
+		}
+	}
+}
@@ -0,0 +1,176 @@
+package org.mule.tools.mmc.rest;
+
+import static org.mockito.Mockito.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DeploymentWatcherTest {
+
+	private MuleRest muleRest;
+	private DeploymentWatcher deploymentWatcher;
+
+	@Before
+	public void setup() {
+		muleRest = mock(MuleRest.class);
+		deploymentWatcher = new DeploymentWatcher(muleRest, PollingStrategy.fixed(5));
+	}
+
+	@After
+	public void cleanup() {
+		deploymentWatcher.close();
+	}
+
+	private static DeploymentState state(String id, DeploymentStatus status) {
+		DeploymentState deploymentState = new DeploymentState();
+		deploymentState.id = id;
+		deploymentState.status = status;
+		return deploymentState;
+	}
+
+	private static Map<String, DeploymentState> states(DeploymentState... deploymentStates) {
+		Map<String, DeploymentState> states = new HashMap<String, DeploymentState>();
+		for (DeploymentState deploymentState : deploymentStates) {
+			states.put(deploymentState.id, deploymentState);
+		}
+		return states;
+	}
+
+	@Test
+	public void testOneListingTracksAllDeployments() throws Exception {
+		when(muleRest.restfullyGetDeploymentStates(anyCollectionOf(String.class))).thenReturn(
+				states(state("d1", DeploymentStatus.IN_PROGRESS), state("d2", DeploymentStatus.IN_PROGRESS), state("d3", DeploymentStatus.IN_PROGRESS))).thenReturn(
+				states(state("d1", DeploymentStatus.DEPLOYED), state("d2", DeploymentStatus.IN_PROGRESS), state("d3", DeploymentStatus.FAILED))).thenReturn(
+				states(state("d1", DeploymentStatus.DEPLOYED), state("d2", DeploymentStatus.DEPLOYED), state("d3", DeploymentStatus.FAILED)));
+		final List<String> changes = Collections.synchronizedList(new ArrayList<String>());
+		deploymentWatcher.addListener(new DeploymentWatcher.Listener() {
+			@Override
+			public void statusChanged(DeploymentState deploymentState) {
+				changes.add(deploymentState.id + ":" + deploymentState.status);
+			}
+		});
+
+		Future<DeploymentState> d1, d2, d3;
+		synchronized (deploymentWatcher) {
+			d1 = deploymentWatcher.watch("d1");
+			d2 = deploymentWatcher.watch("d2");
+			d3 = deploymentWatcher.watch("d3");
+		}
+
+		Assert.assertEquals(DeploymentStatus.DEPLOYED, d1.get(5, TimeUnit.SECONDS).status);
+		Assert.assertEquals(DeploymentStatus.DEPLOYED, d2.get(5, TimeUnit.SECONDS).status);
+		Assert.assertEquals(DeploymentStatus.FAILED, d3.get(5, TimeUnit.SECONDS).status);
+		verify(muleRest, times(3)).restfullyGetDeploymentStates(anyCollectionOf(String.class));
+		verify(muleRest, never()).restfullyGetDeploymentState(anyString());
+		Assert.assertEquals(0, deploymentWatcher.getPendingCount());
+		Assert.assertTrue(changes.contains("d1:IN_PROGRESS"));
+		Assert.assertTrue(changes.contains("d1:DEPLOYED"));
+		Assert.assertTrue(changes.contains("d3:FAILED"));
+		Assert.assertEquals(6, changes.size());
+	}
+
+	@Test
+	public void testReconciledDeploymentEndsTheWait() throws Exception {
+		DeploymentState reconciled = state("d1", DeploymentStatus.IN_PROGRESS);
+		reconciled.reconciled = true;
+		when(muleRest.restfullyGetDeploymentStates(anyCollectionOf(String.class))).thenReturn(states(state("d1", DeploymentStatus.IN_PROGRESS))).thenReturn(states(reconciled));
+		DeploymentWatcher backoffWatcher = new DeploymentWatcher(muleRest, PollingStrategy.backoff(1, 10, 2, 0));
+		try {
+			Assert.assertTrue(backoffWatcher.watch("d1").get(5, TimeUnit.SECONDS).reconciled);
+			verify(muleRest, times(2)).restfullyGetDeploymentStates(anyCollectionOf(String.class));
+			Assert.assertEquals(0, backoffWatcher.getPendingCount());
+		} finally {
+			backoffWatcher.close();
+		}
+	}
+
+	@Test
+	public void testCancelOnlyAffectsItsCaller() throws Exception {
+		when(muleRest.restfullyGetDeploymentStates(anyCollectionOf(String.class))).thenReturn(states(state("d1", DeploymentStatus.IN_PROGRESS))).thenReturn(states(state("d1", DeploymentStatus.IN_PROGRESS))).thenReturn(states(state("d1", DeploymentStatus.DEPLOYED)));
+
+		Future<DeploymentState> first, second;
+		synchronized (deploymentWatcher) {
+			first = deploymentWatcher.watch("d1");
+			second = deploymentWatcher.watch("d1");
+		}
+		first.cancel(false);
+
+		Assert.assertEquals(DeploymentStatus.DEPLOYED, second.get(5, TimeUnit.SECONDS).status);
+		Assert.assertTrue(first.isCancelled());
+	}
+
+	@Test
+	public void testCancelledDeploymentIsNotWatched() throws Exception {
+		when(muleRest.restfullyGetDeploymentStates(anyCollectionOf(String.class))).thenReturn(states(state("d1", DeploymentStatus.IN_PROGRESS)));
+
+		Future<DeploymentState> d1;
+		synchronized (deploymentWatcher) {
+			d1 = deploymentWatcher.watch("d1");
+			d1.cancel(false);
+		}
+
+		long timeout = System.currentTimeMillis() + 5000;
+		while (deploymentWatcher.getPendingCount() > 0 && System.currentTimeMillis() < timeout) {
+			Thread.sleep(5);
+		}
+		Assert.assertEquals(0, deploymentWatcher.getPendingCount());
+	}
+
+	@Test
+	public void testMissingDeploymentFails() throws Exception {
+		when(muleRest.restfullyGetDeploymentStates(anyCollectionOf(String.class))).thenReturn(states());
+
+		try {
+			deploymentWatcher.watch("d1").get(5, TimeUnit.SECONDS);
+			Assert.fail("Exception should have been thrown");
+		} catch (ExecutionException e) {
+			Assert.assertTrue(e.getCause() instanceof IOException);
+		}
+	}
+
+	@Test
+	public void testTransientListingFailureIsRetried() throws Exception {
+		when(muleRest.restfullyGetDeploymentStates(anyCollectionOf(String.class))).thenThrow(new IOException("Connection reset")).thenReturn(states(state("d1", DeploymentStatus.DEPLOYED)));
+
+		Assert.assertEquals(DeploymentStatus.DEPLOYED, deploymentWatcher.watch("d1").get(5, TimeUnit.SECONDS).status);
+	}
+
+	@Test
+	public void testRepeatedListingFailuresFailPendingDeployments() throws Exception {
+		when(muleRest.restfullyGetDeploymentStates(anyCollectionOf(String.class))).thenThrow(new IOException("Connection refused"));
+
+		try {
+			deploymentWatcher.watch("d1").get(5, TimeUnit.SECONDS);
+			Assert.fail("Exception should have been thrown");
+		} catch (ExecutionException e) {
+			Assert.assertEquals("Connection refused", e.getCause().getMessage());
+		}
+		verify(muleRest, times(DeploymentWatcher.MAX_CONSECUTIVE_FAILURES)).restfullyGetDeploymentStates(anyCollectionOf(String.class));
+	}
+
+	@Test
+	public void testCloseFailsPendingDeployments() throws Exception {
+		when(muleRest.restfullyGetDeploymentStates(anyCollectionOf(String.class))).thenReturn(states(state("d1", DeploymentStatus.IN_PROGRESS)));
+		Future<DeploymentState> d1 = deploymentWatcher.watch("d1");
+
+		deploymentWatcher.close();
+		try {
+			d1.get(5, TimeUnit.SECONDS);
+			Assert.fail("Exception should have been thrown");
+		} catch (ExecutionException e) {
+			Assert.assertTrue(e.getCause() instanceof IOException);
+		}
+	}
+}
@@ -0,0 +1,182 @@
+package org.mule.tools.mmc.rest;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.verify;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.URL;
+
+import org.apache.cxf.helpers.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mule.tck.junit4.rule.DynamicPort;
+
+import com.github.tomakehurst.wiremock.junit.WireMockClassRule;
+
+public class JdkHttpTransportTest {
+
+	@ClassRule
+	public static DynamicPort port = new DynamicPort("wiremock.port");
+
+	@ClassRule
+	public static WireMockClassRule wireMockRule = new WireMockClassRule(port.getNumber());
+
+	@Rule
+	public WireMockClassRule instanceRule = wireMockRule;
+
+	private ConnectionSettings settings;
+	private JdkHttpTransport transport;
+
+	@Before
+	public void setup() throws Exception {
+		settings = new ConnectionSettings();
+		transport = new JdkHttpTransport(new URL("http://localhost:" + port.getNumber() + "/mmc/api/"), "admin", "admin", settings);
+	}
+
+	@After
+	public void cleanup() {
+		transport.close();
+	}
+
+	private String read(TransportRequest request) throws IOException {
+		TransportResponse response = transport.send(request, Deadline.NONE);
+		try {
+			return response.status + " " + IOUtils.toString(response.body);
+		} finally {
+			response.close();
+		}
+	}
+
+	@Test
+	public void testGet() throws Exception {
+		stubFor(get(urlEqualTo("/mmc/api/deployments/local%24d1?name=my%20app")).willReturn(aResponse().withStatus(200).withBody("{}")));
+
+		TransportRequest request = new TransportRequest("GET", "deployments", "local$d1");
+		request.query.put("name", "my app");
+		assertEquals("200 {}", read(request));
+		verify(getRequestedFor(urlEqualTo("/mmc/api/deployments/local%24d1?name=my%20app")).withHeader("Authorization", equalTo("Basic YWRtaW46YWRtaW4=")).withHeader("Accept", equalTo("application/json")));
+	}
+
+	@Test
+	public void testUnsuccessfulResponseIsReturned() throws Exception {
+		stubFor(get(urlEqualTo("/mmc/api/deployments/d1")).willReturn(aResponse().withStatus(404).withBody("Not found")));
+
+		assertEquals("404 Not found", read(new TransportRequest("GET", "deployments", "d1")));
+	}
+
+	@Test
+	public void testPostEntity() throws Exception {
+		stubFor(post(urlEqualTo("/mmc/api/deployments")).willReturn(aResponse().withStatus(201).withBody("{\"id\": \"d1\"}")));
+
+		TransportRequest request = new TransportRequest("POST", "deployments");
+		request.entity = "{\"name\": \"app\"}";
+		request.contentType = "application/json";
+		assertEquals("201 {\"id\": \"d1\"}", read(request));
+		verify(postRequestedFor(urlEqualTo("/mmc/api/deployments")).withHeader("Content-Type", equalTo("application/json")).withHeader("Content-Length", equalTo("15")).withRequestBody(equalTo("{\"name\": \"app\"}")));
+
+		// Without a body
+		stubFor(post(urlEqualTo("/mmc/api/deployments/d1/deploy")).willReturn(aResponse().withStatus(200)));
+		assertEquals("200 ", read(new TransportRequest("POST", "deployments", "d1", "deploy")));
+		verify(postRequestedFor(urlEqualTo("/mmc/api/deployments/d1/deploy")).withHeader("Content-Length", equalTo("0")));
+	}
+
+	@Test
+	public void testPostStreamingBody() throws Exception {
+		stubFor(post(urlEqualTo("/mmc/api/repository")).willReturn(aResponse().withStatus(200).withBody("{}")));
+
+		TransportRequest request = new TransportRequest("POST", "repository");
+		request.body = new StreamingBody() {
+			@Override
+			public String getContentType() {
+				return "application/octet-stream";
+			}
+
+			@Override
+			public long getContentLength() {
+				return 4;
+			}
+
+			@Override
+			public void writeTo(OutputStream outputStream) throws IOException {
+				outputStream.write("da".getBytes("UTF-8"));
+				outputStream.write("ta".getBytes("UTF-8"));
+			}
+		};
+		assertEquals("200 {}", read(request));
+		verify(postRequestedFor(urlEqualTo("/mmc/api/repository")).withHeader("Content-Length", equalTo("4")).withHeader("Content-Type", equalTo("application/octet-stream")).withRequestBody(equalTo("data")));
+	}
+
+	@Test
+	public void testConnectionsAreLimited() throws Exception {
+		settings.maxConcurrentRequests = 1;
+		transport = new JdkHttpTransport(new URL("http://localhost:" + port.getNumber() + "/mmc/api"), "admin", "admin", settings);
+		stubFor(get(urlEqualTo("/mmc/api/servers")).willReturn(aResponse().withStatus(200).withBody("{}")));
+
+		TransportResponse response = transport.send(new TransportRequest("GET", "servers"), Deadline.NONE);
+		try {
+			transport.send(new TransportRequest("GET", "servers"), Deadline.after(100));
+			fail("Exception should have been thrown");
+		} catch (DeadlineExceededException e) {
+			// Expected
+		}
+		response.close();
+		read(new TransportRequest("GET", "servers"));
+	}
+
+	@Test(timeout = 30000)
+	public void testDeadlineBoundsStalledUpload() throws Exception {
+		// Accepts the connection but never reads the body
+		ServerSocket stalledServer = new ServerSocket(0);
+		try {
+			JdkHttpTransport stalledTransport = new JdkHttpTransport(new URL("http://localhost:" + stalledServer.getLocalPort() + "/mmc/api"), "admin", "admin", settings);
+			final long contentLength = 256L * 1024 * 1024;
+			TransportRequest request = new TransportRequest("POST", "repository");
+			request.body = new StreamingBody() {
+				@Override
+				public String getContentType() {
+					return "application/octet-stream";
+				}
+
+				@Override
+				public long getContentLength() {
+					return contentLength;
+				}
+
+				@Override
+				public void writeTo(OutputStream outputStream) throws IOException {
+					byte[] buffer = new byte[64 * 1024];
+					for (long written = 0; written < contentLength; written += buffer.length) {
+						outputStream.write(buffer);
+					}
+				}
+			};
+			long startTime = System.currentTimeMillis();
+			try {
+				stalledTransport.send(request, Deadline.after(300));
+				fail("Exception should have been thrown");
+			} catch (DeadlineExceededException e) {
+				// Expected
+			} finally {
+				stalledTransport.close();
+			}
+			assertTrue(System.currentTimeMillis() - startTime < 5000);
+		} finally {
+			stalledServer.close();
+		}
+	}
+}
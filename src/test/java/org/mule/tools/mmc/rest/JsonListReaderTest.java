@@ -0,0 +1,75 @@
+package org.mule.tools.mmc.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+import org.junit.Test;
+
+public class JsonListReaderTest {
+
+	private static InputStream json(String json) throws IOException {
+		return new ByteArrayInputStream(json.replace('\'', '"').getBytes("UTF-8"));
+	}
+
+	@Test
+	public void testFindFirst() throws Exception {
+		JsonNode node = JsonListReader.findFirst(json("{'total':3,'data':[{'name':'a','id':'1'},{'applications':['x'],'id':'2','name':'b'},{'name':'b','id':'3'}]}"), "name", "b");
+		assertEquals("2", node.path("id").getTextValue());
+		assertEquals("x", node.path("applications").get(0).getTextValue());
+	}
+
+	@Test
+	public void testFindFirstNotFound() throws Exception {
+		assertNull(JsonListReader.findFirst(json("{'total':1,'data':[{'name':'a','id':'1'}]}"), "name", "b"));
+		assertNull(JsonListReader.findFirst(json("{'total':0}"), "name", "b"));
+		assertNull(JsonListReader.findFirst(json(""), "name", "b"));
+	}
+
+	@Test
+	public void testReadingStopsAtMatch() throws Exception {
+		// Anything after the match is not even parsed
+		JsonNode node = JsonListReader.findFirst(json("{'data':[{'name':'a','id':'1'},{'name':'b','id':'2'}, this is not json"), "name", "b");
+		assertEquals("2", node.path("id").getTextValue());
+	}
+
+	@Test
+	public void testUnrelatedFieldsAreSkipped() throws Exception {
+		final List<String> names = new ArrayList<String>();
+		JsonListReader.read(json("{'links':[{'data':[{'name':'no'}]}],'data':[{'name':'a','nested':{'name':'no'}},'noise',{'name':null}],'total':2}"), new JsonListReader.ElementHandler() {
+			@Override
+			public boolean handle(JsonParser parser) throws IOException {
+				while (parser.nextToken() == JsonToken.FIELD_NAME) {
+					if ("name".equals(parser.getCurrentName())) {
+						names.add(JsonListReader.nextTextValue(parser));
+					} else {
+						parser.nextToken();
+						parser.skipChildren();
+					}
+				}
+				return true;
+			}
+		});
+		assertEquals(2, names.size());
+		assertEquals("a", names.get(0));
+		assertNull(names.get(1));
+	}
+
+	@Test
+	public void testReadPage() throws Exception {
+		JsonListReader.Page page = JsonListReader.readPage(json("{'data':[{'name':'a'},'noise',{'name':'b'}],'links':[{'rel':'next'}],'total':5}"));
+		assertEquals(5, page.total);
+		assertEquals(2, page.elements.size());
+		assertEquals("b", page.elements.get(1).path("name").getTextValue());
+
+		assertEquals(-1, JsonListReader.readPage(json("{'data':[]}")).total);
+	}
+}
@@ -11,6 +11,7 @@ import static com.github.tomakehurst.wiremock.client.WireMock.post;
 import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.put;
 import static com.github.tomakehurst.wiremock.client.WireMock.putRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.resetAllRequests;
 import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlMatching;
@@ -19,6 +20,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
@@ -34,12 +36,25 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.cxf.helpers.IOUtils;
+import org.apache.cxf.transport.http.HTTPException;
+import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.ClassRule;
 import org.junit.Rule;
@@ -50,6 +65,7 @@ import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerationException;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.github.tomakehurst.wiremock.junit.WireMockClassRule;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
 
 public class MuleRestTest {
 
@@ -73,6 +89,12 @@ public class MuleRestTest {
 		muleRest = new MuleRest(new URL("http://localhost:"+port.getNumber()), "admin", "admin");
 	}
 
+	@Before
+	public void invalidateCaches() {
+		muleRest.getTopologyCache().invalidate();
+		muleRest.getRepositoryCatalog().invalidate();
+	}
+
 	private String generateDeploymentIdJson(String name, String id) throws IOException {
 		StringWriter stringWriter = new StringWriter();
 		JsonFactory jsonFactory = new JsonFactory();
@@ -499,6 +521,342 @@ public class MuleRestTest {
 		verifyGetDeploymentIdByName();
 	}
 
+	@Test
+	public void testTransientErrorIsRetried() throws IOException {
+		String deploymentId = UUID.randomUUID().toString();
+		String scenario = "deploy-" + deploymentId;
+		stubFor(post(urlEqualTo("/deployments/" + deploymentId + "/deploy")).inScenario(scenario).whenScenarioStateIs(Scenario.STARTED).willReturn(aResponse().withStatus(503)).willSetStateTo("recovered"));
+		stubFor(post(urlEqualTo("/deployments/" + deploymentId + "/deploy")).inScenario(scenario).whenScenarioStateIs("recovered").willReturn(aResponse().withStatus(200)));
+
+		RetryPolicy retryPolicy = new RetryPolicy();
+		retryPolicy.initialBackoffMs = 1;
+		RetryPolicy defaultRetryPolicy = muleRest.getRetryPolicy();
+		muleRest.setRetryPolicy(retryPolicy);
+		try {
+			muleRest.restfullyDeployDeploymentById(deploymentId);
+		} finally {
+			muleRest.setRetryPolicy(defaultRetryPolicy);
+		}
+
+		verify(2, postRequestedFor(urlEqualTo("/deployments/" + deploymentId + "/deploy")));
+		assertEquals(1, retryPolicy.getMetrics().getRetries());
+		assertEquals(1, retryPolicy.getMetrics().getRecoveries());
+	}
+
+	@Test
+	public void testPermanentErrorIsNotRetried() throws IOException {
+		String deploymentId = UUID.randomUUID().toString();
+		stubFor(delete(urlEqualTo("/deployments/" + deploymentId)).willReturn(aResponse().withStatus(404)));
+
+		try {
+			muleRest.restfullyDeleteDeploymentById(deploymentId);
+			fail("Exception should have been thrown");
+		} catch (HTTPException e) {
+			assertEquals(404, e.getResponseCode());
+		}
+		verify(1, deleteRequestedFor(urlEqualTo("/deployments/" + deploymentId)));
+	}
+
+	@Test
+	public void testUnhealthyMmcIsShortCircuited() throws IOException {
+		stubFor(get(urlEqualTo("/servers")).willReturn(aResponse().withStatus(503)));
+
+		RetryPolicy defaultRetryPolicy = muleRest.getRetryPolicy();
+		CircuitBreaker defaultCircuitBreaker = muleRest.getCircuitBreaker();
+		muleRest.setRetryPolicy(RetryPolicy.noRetry());
+		muleRest.setCircuitBreaker(new CircuitBreaker("MMC", 2, 0, 60000));
+		resetAllRequests();
+		try {
+			for (int i = 0; i < 3; i++) {
+				try {
+					muleRest.restfullyGetServerId(UUID.randomUUID().toString());
+					fail("Exception should have been thrown");
+				} catch (IOException e) {
+					assertEquals(i >= 2, e instanceof CircuitBreakerOpenException);
+				}
+			}
+		} finally {
+			muleRest.setRetryPolicy(defaultRetryPolicy);
+			muleRest.setCircuitBreaker(defaultCircuitBreaker);
+		}
+		verify(2, getRequestedFor(urlEqualTo("/servers")));
+	}
+
+	@Test
+	public void testDeadlineShortensReceiveTimeout() throws IOException {
+		String deploymentId = UUID.randomUUID().toString();
+		stubFor(get(urlEqualTo("/deployments/" + deploymentId)).willReturn(aResponse().withStatus(200).withFixedDelay(5000).withBody("{}")));
+
+		muleRest.setDeadline(Deadline.after(300));
+		long startTime = System.currentTimeMillis();
+		try {
+			muleRest.restfullyGetDeploymentState(deploymentId);
+			fail("Exception should have been thrown");
+		} catch (Exception e) {
+			assertTrue(System.currentTimeMillis() - startTime < 3000);
+		} finally {
+			muleRest.setDeadline(Deadline.NONE);
+		}
+	}
+
+	@Test
+	public void testNoRequestPastDeadline() throws Exception {
+		Deadline deadline = Deadline.after(1);
+		Thread.sleep(5);
+		muleRest.setDeadline(deadline);
+		resetAllRequests();
+		try {
+			muleRest.restfullyDeployDeploymentById(UUID.randomUUID().toString());
+			fail("Exception should have been thrown");
+		} catch (DeadlineExceededException e) {
+		} finally {
+			muleRest.setDeadline(Deadline.NONE);
+		}
+		verify(0, postRequestedFor(urlMatching("/deployments/.*")));
+	}
+
+	@Test
+	public void testPrefetchedInventoryServesLookups() throws Exception {
+		String groupId = UUID.randomUUID().toString();
+		String deploymentId = UUID.randomUUID().toString();
+		stubGetServerGroups("Prefetched Group", groupId);
+		stubGetServers("Prefetched Server", "Prefetched Group", UUID.randomUUID().toString());
+		stubGetClusters("Prefetched Cluster", UUID.randomUUID().toString());
+		stubGetDeploymentByName("Prefetched Deployment", deploymentId, APPLICATION_VERSION_ID, new Date());
+		stubFor(get(urlEqualTo("/repository")).willReturn(aResponse().withStatus(200).withHeader("Content-Type", "application/json").withBody(generateApplicationsJson("Prefetched App", "1.0"))));
+
+		MuleRest prefetchingMuleRest = new MuleRest(new URL("http://localhost:" + port.getNumber()), "admin", "admin");
+		try {
+			resetAllRequests();
+			CompletableFuture<Void> prefetch = prefetchingMuleRest.prefetchInventory();
+
+			// Served from the listings, waiting for them if needed
+			DeploymentPlan deploymentPlan = prefetchingMuleRest.restfullyPrepareDeployment("Prefetched Group", "Prefetched Deployment");
+			assertEquals(Collections.singletonList(groupId), deploymentPlan.serverOrGroupIds);
+			assertEquals(deploymentId, deploymentPlan.deployment.path("id").getTextValue());
+			assertNull(prefetchingMuleRest.restfullyGetDeploymentByName("Other Deployment", groupId, null));
+			assertEquals(APPLICATION_VERSION_ID, prefetchingMuleRest.restfullyGetApplicationId("Prefetched App", "1.0"));
+			assertNull(prefetchingMuleRest.restfullyGetClusterId("Unknown Cluster"));
+			prefetch.get(5, TimeUnit.SECONDS);
+
+			verify(1, getRequestedFor(urlEqualTo("/serverGroups")));
+			verify(1, getRequestedFor(urlEqualTo("/servers")));
+			verify(1, getRequestedFor(urlEqualTo("/clusters")));
+			verify(1, getRequestedFor(urlEqualTo("/deployments")));
+			verify(1, getRequestedFor(urlEqualTo("/repository")));
+
+			// A change made through the session discards the prefetched deployments
+			stubFor(post(urlEqualTo("/deployments/" + deploymentId + "/deploy")).willReturn(aResponse().withStatus(200)));
+			prefetchingMuleRest.restfullyDeployDeploymentById(deploymentId);
+			prefetchingMuleRest.restfullyGetDeploymentByName("Prefetched Deployment", groupId, null);
+			verify(2, getRequestedFor(urlEqualTo("/deployments")));
+		} finally {
+			prefetchingMuleRest.close();
+		}
+	}
+
+	@Test
+	public void testDeploymentLookupsAreFilteredByTheMmc() throws Exception {
+		String groupId = UUID.randomUUID().toString();
+		stubFor(get(urlEqualTo("/deployments?serverId=" + groupId + "&name=filtered-app")).willReturn(aResponse().withStatus(200).withHeader("Content-Type", "application/json").withBody(generateDeploymentIdJson("filtered-app", "d1"))));
+		stubFor(get(urlEqualTo("/deployments?name=filtered-app")).willReturn(aResponse().withStatus(200).withHeader("Content-Type", "application/json").withBody(generateDeploymentIdJson("filtered-app", "d1"))));
+
+		MuleRest filteringMuleRest = new MuleRest(new URL("http://localhost:" + port.getNumber()), "admin", "admin");
+		try {
+			resetAllRequests();
+			assertEquals("d1", filteringMuleRest.restfullyGetDeploymentIdByName("filtered-app", groupId, null));
+			assertEquals("d1", filteringMuleRest.restfullyGetDeploymentByName("filtered-app", groupId, null).path("id").getTextValue());
+			verify(1, getRequestedFor(urlEqualTo("/deployments?serverId=" + groupId + "&name=filtered-app")));
+			verify(1, getRequestedFor(urlEqualTo("/deployments?name=filtered-app")));
+			verify(0, getRequestedFor(urlEqualTo("/deployments")));
+		} finally {
+			filteringMuleRest.close();
+		}
+	}
+
+	@Test
+	public void testRejectedFiltersFallBackToFullListings() throws Exception {
+		stubFor(get(urlEqualTo("/deployments?name=unfiltered-app")).willReturn(aResponse().withStatus(400)));
+		stubFor(get(urlEqualTo("/deployments")).willReturn(aResponse().withStatus(200).withHeader("Content-Type", "application/json").withBody("{\"total\": 2, \"data\": [{\"id\": \"d1\", \"name\": \"other-app\"}, {\"id\": \"d2\", \"name\": \"unfiltered-app\"}]}")));
+
+		MuleRest filteringMuleRest = new MuleRest(new URL("http://localhost:" + port.getNumber()), "admin", "admin");
+		try {
+			resetAllRequests();
+			assertEquals("d2", filteringMuleRest.restfullyGetDeploymentByName("unfiltered-app", null, null).path("id").getTextValue());
+			// Filters are not sent any more once rejected
+			assertEquals("d2", filteringMuleRest.restfullyGetDeploymentIdByName("unfiltered-app", null, null));
+			verify(1, getRequestedFor(urlEqualTo("/deployments?name=unfiltered-app")));
+			verify(2, getRequestedFor(urlEqualTo("/deployments")));
+		} finally {
+			filteringMuleRest.close();
+		}
+	}
+
+	@Test
+	public void testIterateDeploymentsByPage() throws Exception {
+		stubFor(get(urlEqualTo("/deployments?offset=0&limit=2")).willReturn(aResponse().withStatus(200).withHeader("Content-Type", "application/json").withBody("{\"total\": 5, \"data\": [{\"id\": \"d1\"}, {\"id\": \"d2\"}]}")));
+		stubFor(get(urlEqualTo("/deployments?offset=2&limit=2")).willReturn(aResponse().withStatus(200).withHeader("Content-Type", "application/json").withBody("{\"total\": 5, \"data\": [{\"id\": \"d3\"}, {\"id\": \"d4\"}]}")));
+
+		MuleRest pagingMuleRest = new MuleRest(new URL("http://localhost:" + port.getNumber()), "admin", "admin");
+		try {
+			pagingMuleRest.setPageSize(2);
+			resetAllRequests();
+			PageIterator deployments = pagingMuleRest.restfullyIterateDeployments();
+			List<String> ids = new ArrayList<String>();
+			while (deployments.hasNext()) {
+				String id = deployments.next().path("id").getTextValue();
+				ids.add(id);
+				if ("d3".equals(id)) {
+					break;
+				}
+			}
+			assertEquals("[d1, d2, d3]", ids.toString());
+			verify(2, getRequestedFor(urlMatching("/deployments.*")));
+		} finally {
+			pagingMuleRest.close();
+		}
+	}
+
+	@Test
+	public void testIterateWithoutPagination() throws Exception {
+		stubFor(get(urlEqualTo("/servers")).willReturn(aResponse().withStatus(200).withHeader("Content-Type", "application/json").withBody("{\"total\": 3, \"data\": [{\"id\": \"s1\"}, {\"id\": \"s2\"}, {\"id\": \"s3\"}]}")));
+
+		MuleRest pagingMuleRest = new MuleRest(new URL("http://localhost:" + port.getNumber()), "admin", "admin");
+		try {
+			pagingMuleRest.setPageSize(3);
+			resetAllRequests();
+			// Not stubbed, the paginated request is answered with a 404
+			PageIterator servers = pagingMuleRest.restfullyIterateServers();
+			int count = 0;
+			while (servers.hasNext()) {
+				servers.next();
+				count++;
+			}
+			assertEquals(3, count);
+			assertEquals(1, servers.getPagesRead());
+			verify(1, getRequestedFor(urlEqualTo("/servers?offset=0&limit=3")));
+			verify(1, getRequestedFor(urlEqualTo("/servers")));
+		} finally {
+			pagingMuleRest.close();
+		}
+	}
+
+	@Test
+	public void testJdkTransport() throws Exception {
+		stubFor(get(urlEqualTo("/deployments?name=jdk-app")).willReturn(aResponse().withStatus(200).withHeader("Content-Type", "application/json").withBody(generateDeploymentIdJson("jdk-app", "jdk-deployment"))));
+		stubFor(post(urlEqualTo("/deployments/jdk-deployment/deploy")).willReturn(aResponse().withStatus(200)));
+
+		URL mmcUrl = new URL("http://localhost:" + port.getNumber());
+		MuleRest jdkMuleRest = new MuleRest(mmcUrl, new JdkHttpTransport(mmcUrl, "admin", "admin", new ConnectionSettings()));
+		try {
+			resetAllRequests();
+			String deploymentId = jdkMuleRest.restfullyGetDeploymentIdByName("jdk-app", null, null);
+			assertEquals("jdk-deployment", deploymentId);
+			jdkMuleRest.restfullyDeployDeploymentById(deploymentId);
+			try {
+				jdkMuleRest.restfullyGetDeploymentState("unknown-deployment");
+				fail("Exception should have been thrown");
+			} catch (HTTPException e) {
+				assertEquals(404, e.getResponseCode());
+			}
+			verify(postRequestedFor(urlEqualTo("/deployments/jdk-deployment/deploy")).withHeader("Authorization", equalTo("Basic YWRtaW46YWRtaW4=")));
+		} finally {
+			jdkMuleRest.close();
+		}
+	}
+
+	@Test
+	public void testRequestsAreRecorded() throws IOException {
+		String deploymentId = UUID.randomUUID().toString();
+		String scenario = "recorded-deploy-" + deploymentId;
+		stubFor(post(urlEqualTo("/deployments/" + deploymentId + "/deploy")).inScenario(scenario).whenScenarioStateIs(Scenario.STARTED).willReturn(aResponse().withStatus(503)).willSetStateTo("recovered"));
+		stubFor(post(urlEqualTo("/deployments/" + deploymentId + "/deploy")).inScenario(scenario).whenScenarioStateIs("recovered").willReturn(aResponse().withStatus(200).withBody("done")));
+
+		RetryPolicy retryPolicy = new RetryPolicy();
+		retryPolicy.initialBackoffMs = 1;
+		RetryPolicy defaultRetryPolicy = muleRest.getRetryPolicy();
+		RequestMetrics requestMetrics = new RequestMetrics();
+		muleRest.setRetryPolicy(retryPolicy);
+		muleRest.setRequestListener(requestMetrics);
+		try {
+			muleRest.restfullyDeployDeploymentById(deploymentId);
+		} finally {
+			muleRest.setRetryPolicy(defaultRetryPolicy);
+			muleRest.setRequestListener(null);
+		}
+
+		assertEquals(1, requestMetrics.getEndpoints().size());
+		RequestMetrics.EndpointMetrics endpointMetrics = requestMetrics.getEndpoints().get(0);
+		assertEquals("POST", endpointMetrics.getMethod());
+		assertEquals("deployments/{id}/deploy", endpointMetrics.getEndpoint());
+		assertEquals(2, endpointMetrics.getRequests());
+		assertEquals(1, endpointMetrics.getRetries());
+		assertEquals(1, endpointMetrics.getErrors());
+		assertEquals(Long.valueOf(1), endpointMetrics.getStatusCounts().get(503));
+		assertEquals(Long.valueOf(1), endpointMetrics.getStatusCounts().get(200));
+		assertEquals(4, endpointMetrics.getResponseBytes());
+	}
+
+	@Test
+	public void testRestfullyGetDeploymentStates() throws IOException {
+		String body = "{\"total\": 3, \"data\": ["
+				+ "{\"id\": \"d1\", \"name\": \"app1\", \"status\": \"IN_PROGRESS\", \"reconciled\": false, \"applications\": [\"v1\"]},"
+				+ "{\"id\": \"d2\", \"name\": \"app2\", \"status\": \"deployed\", \"reconciled\": true},"
+				+ "{\"id\": \"d3\", \"name\": \"app3\"}]}";
+		stubFor(get(urlEqualTo("/deployments")).willReturn(aResponse().withStatus(200).withHeader("Content-Type", "application/json").withBody(body)));
+
+		Map<String, DeploymentState> deploymentStates = muleRest.restfullyGetDeploymentStates();
+		assertEquals(2, deploymentStates.size());
+		assertEquals(DeploymentStatus.IN_PROGRESS, deploymentStates.get("d1").status);
+		assertEquals("app1", deploymentStates.get("d1").name);
+		assertEquals(DeploymentStatus.DEPLOYED, deploymentStates.get("d2").status);
+		assertTrue(deploymentStates.get("d2").reconciled);
+	}
+
+	@Test
+	public void testRestfullyGetDeploymentStatesWithUnknownStatus() throws IOException {
+		String body = "{\"total\": 3, \"data\": ["
+				+ "{\"id\": \"d1\", \"name\": \"app1\", \"status\": \"DEPLOYED\"},"
+				+ "{\"id\": \"d2\", \"name\": \"app2\", \"status\": \"PAUSED\"},"
+				+ "{\"id\": \"d3\", \"name\": \"app3\", \"status\": null}]}";
+		stubFor(get(urlEqualTo("/deployments")).willReturn(aResponse().withStatus(200).withHeader("Content-Type", "application/json").withBody(body)));
+
+		Map<String, DeploymentState> deploymentStates = muleRest.restfullyGetDeploymentStates(Arrays.asList("d1", "d4"));
+		assertEquals(1, deploymentStates.size());
+		assertEquals(DeploymentStatus.DEPLOYED, deploymentStates.get("d1").status);
+
+		deploymentStates = muleRest.restfullyGetDeploymentStates();
+		assertEquals(2, deploymentStates.size());
+		assertEquals(DeploymentStatus.UNKNOWN, deploymentStates.get("d2").status);
+	}
+
+	@Test
+	public void testConcurrentDeploymentListingsAreCoalesced() throws Exception {
+		stubFor(get(urlEqualTo("/deployments")).willReturn(aResponse().withStatus(200).withHeader("Content-Type", "application/json").withFixedDelay(500).withBody("{\"total\": 1, \"data\": [{\"id\": \"d1\", \"name\": \"app1\", \"status\": \"DEPLOYED\"}]}")));
+		resetAllRequests();
+		long coalescedRequests = muleRest.getCoalescedRequests();
+
+		ExecutorService executorService = Executors.newFixedThreadPool(3);
+		try {
+			List<Future<Map<String, DeploymentState>>> results = new ArrayList<Future<Map<String, DeploymentState>>>();
+			for (int i = 0; i < 3; i++) {
+				results.add(executorService.submit(new Callable<Map<String, DeploymentState>>() {
+					@Override
+					public Map<String, DeploymentState> call() throws Exception {
+						return muleRest.restfullyGetDeploymentStates();
+					}
+				}));
+			}
+			for (Future<Map<String, DeploymentState>> result : results) {
+				assertEquals(DeploymentStatus.DEPLOYED, result.get(5, TimeUnit.SECONDS).get("d1").status);
+			}
+		} finally {
+			executorService.shutdownNow();
+		}
+		verify(1, getRequestedFor(urlEqualTo("/deployments")));
+		assertEquals(coalescedRequests + 2, muleRest.getCoalescedRequests());
+	}
+
 	@Test
 	public void testRestfullyGetServerGroupId() throws IOException {
 		String name = UUID.randomUUID().toString();
@@ -539,6 +897,71 @@ public class MuleRestTest {
 		assertNull(muleRest.restfullyGetApplicationId("wrong application name", version));
 	}
 
+	@Test
+	public void testRepositoryCatalogFollowsUploadsAndDeletes() throws Exception {
+		String applicationName = "My_Catalog_App";
+		String version = "1.0";
+		String uploadedVersion = "2.0";
+		String uploadedVersionId = UUID.randomUUID().toString();
+		resetAllRequests();
+
+		stubFor(get(urlEqualTo("/repository")).willReturn(aResponse().withStatus(200).withHeader("Content-Type", "application/json").withBody(generateApplicationsJson(applicationName, version))));
+		stubFor(post(urlEqualTo("/repository")).willReturn(aResponse().withStatus(200).withHeader("Content-Type", "application/json").withBody(generateUploadedPackageJson(uploadedVersionId, UUID.randomUUID().toString()))));
+		stubFor(delete(urlEqualTo("/repository/" + APPLICATION_VERSION_ID)).willReturn(aResponse().withStatus(200)));
+
+		assertNull(muleRest.restfullyGetApplicationId(applicationName, uploadedVersion));
+		assertEquals(uploadedVersionId, muleRest.restfullyUploadRepository(applicationName, uploadedVersion, File.createTempFile("prefix", "suffix")));
+		assertEquals(uploadedVersionId, muleRest.restfullyGetApplicationId(applicationName, uploadedVersion));
+
+		muleRest.restfullyDeleteApplicationById(APPLICATION_VERSION_ID);
+		assertNull(muleRest.restfullyGetApplicationId(applicationName, version));
+
+		verify(1, getRequestedFor(urlEqualTo("/repository")));
+	}
+
+	@Test
+	public void testStaleCatalogVersionIsNotDeletedTwice() throws Exception {
+		String applicationName = "My_Stale_App";
+		String version = "1.0-SNAPSHOT";
+		String uploadedVersionId = UUID.randomUUID().toString();
+		resetAllRequests();
+
+		stubFor(get(urlEqualTo("/repository")).willReturn(aResponse().withStatus(200).withHeader("Content-Type", "application/json").withBody(generateApplicationsJson(applicationName, version))));
+		stubFor(post(urlEqualTo("/repository")).willReturn(aResponse().withStatus(200).withHeader("Content-Type", "application/json").withBody(generateUploadedPackageJson(uploadedVersionId, UUID.randomUUID().toString()))));
+		// Deleted by another client after the catalog was loaded
+		stubFor(delete(urlEqualTo("/repository/" + APPLICATION_VERSION_ID)).willReturn(aResponse().withStatus(404)));
+
+		assertEquals(APPLICATION_VERSION_ID, muleRest.restfullyGetApplicationId(applicationName, version));
+		assertEquals(uploadedVersionId, muleRest.restfullyUploadRepository(applicationName, version, File.createTempFile("prefix", "suffix")));
+
+		verify(1, deleteRequestedFor(urlEqualTo("/repository/" + APPLICATION_VERSION_ID)));
+		assertFalse(muleRest.getRepositoryCatalog().isLoaded());
+	}
+
+	@Test
+	public void testIdenticalArchiveIsNotUploadedTwice() throws Exception {
+		String applicationName = "My_Mule_App";
+		File file = File.createTempFile("prefix", "suffix");
+		File fingerprintsFile = File.createTempFile("fingerprints", ".properties");
+		MuleRest fingerprintingMuleRest = new MuleRest(new URL("http://localhost:" + port.getNumber()), "admin", "admin");
+		try {
+			fingerprintingMuleRest.setArchiveFingerprints(new ArchiveFingerprints(fingerprintsFile));
+			resetAllRequests();
+
+			stubFor(get(urlEqualTo("/repository")).willReturn(aResponse().withStatus(200).withHeader("Content-Type", "application/json").withBody(generateApplicationsJson(applicationName, "1"))));
+			stubFor(post(urlEqualTo("/repository")).willReturn(aResponse().withStatus(200).withHeader("Content-Type", "application/json").withBody(generateUploadedPackageJson(APPLICATION_VERSION_ID, UUID.randomUUID().toString()))));
+
+			assertEquals(APPLICATION_VERSION_ID, fingerprintingMuleRest.restfullyUploadRepository(applicationName, "1", file));
+			assertEquals(APPLICATION_VERSION_ID, fingerprintingMuleRest.restfullyUploadRepository(applicationName, "2", file));
+
+			verify(1, postRequestedFor(urlEqualTo("/repository")));
+		} finally {
+			fingerprintingMuleRest.close();
+			fingerprintsFile.delete();
+			file.delete();
+		}
+	}
+
 	@Test
 	public void testRestfullyDeleteApplicationById() throws Exception {
 		stubFor(delete(urlEqualTo("/repository/" + APPLICATION_VERSION_ID)).willReturn(aResponse().withStatus(200).withHeader("Authorization", "Basic YWRtaW46YWRtaW4=")));
@@ -567,6 +990,23 @@ public class MuleRestTest {
 				.withRequestBody(containing("Content-Type: application/octet-stream\r\nContent-Transfer-Encoding: binary\r\nContent-ID: <file>\r\nContent-Disposition: form-data; name=\"file\"; filename=\"" + file.getName() + "\"\r\n" + fileContent + "\r\n")));
 	}
 
+	@Test
+	public void testSlowUploadLeavesCircuitBreakerClosed() throws Exception {
+		stubFor(post(urlEqualTo("/repository")).willReturn(aResponse().withStatus(200).withHeader("Content-Type", "application/json").withFixedDelay(200).withBody(generateUploadedPackageJson(APPLICATION_VERSION_ID, UUID.randomUUID().toString()))));
+
+		CircuitBreaker defaultCircuitBreaker = muleRest.getCircuitBreaker();
+		CircuitBreaker circuitBreaker = new CircuitBreaker("MMC", 1, 50, 60000);
+		muleRest.setCircuitBreaker(circuitBreaker);
+		File file = File.createTempFile("prefix", "suffix");
+		try {
+			assertEquals(APPLICATION_VERSION_ID, muleRest.restfullyUploadRepository("My_Mule_App", "1.0", file));
+			assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+		} finally {
+			muleRest.setCircuitBreaker(defaultCircuitBreaker);
+			file.delete();
+		}
+	}
+
 	@Test
 	public void testRestfullyDeleteApplication() throws Exception {
 		String applicationName = "My_Mule_App";
@@ -595,6 +1035,27 @@ public class MuleRestTest {
 		org.mockito.Mockito.verify(muleRestSpy, never()).restfullyDeleteApplicationById(anyString());
 	}
 
+	@Test
+	public void testRestfullyDeleteApplicationRetriesTheLookupOnce() throws Exception {
+		stubFor(get(urlEqualTo("/repository")).willReturn(aResponse().withStatus(503)));
+		resetAllRequests();
+
+		RetryPolicy retryPolicy = new RetryPolicy();
+		retryPolicy.initialBackoffMs = 1;
+		RetryPolicy defaultRetryPolicy = muleRest.getRetryPolicy();
+		muleRest.setRetryPolicy(retryPolicy);
+		try {
+			muleRest.restfullyDeleteApplication("My_Mule_App", "1.0-SNAPSHOT");
+			fail("Expected the repository listing to fail");
+		} catch (HTTPException e) {
+			assertEquals(503, e.getResponseCode());
+		} finally {
+			muleRest.setRetryPolicy(defaultRetryPolicy);
+		}
+
+		verify(retryPolicy.maxAttempts, getRequestedFor(urlEqualTo("/repository")));
+	}
+
 	@Test
 	public void testIsSnapshotVersion() {
 		assertTrue(muleRest.isSnapshotVersion("1.0-SNAPSHOT"));
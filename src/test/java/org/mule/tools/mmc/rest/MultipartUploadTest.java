@@ -0,0 +1,88 @@
+package org.mule.tools.mmc.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MultipartUploadTest {
+
+	private File _file;
+
+	@Before
+	public void setup() throws Exception {
+		_file = File.createTempFile("MultipartUploadTest", ".zip");
+		byte[] content = new byte[3 * MultipartUpload.BUFFER_SIZE + 17];
+		new Random(42).nextBytes(content);
+		FileOutputStream fileOutputStream = new FileOutputStream(_file);
+		fileOutputStream.write(content);
+		fileOutputStream.close();
+	}
+
+	@After
+	public void cleanup() {
+		_file.delete();
+	}
+
+	@Test
+	public void testContentLengthMatchesBody() throws Exception {
+		MultipartUpload multipartUpload = new MultipartUpload("boundary");
+		multipartUpload.addFilePart("file", _file);
+		multipartUpload.addTextPart("name", "My_Mule_App");
+		multipartUpload.addTextPart("version", "1.0-é");
+
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		multipartUpload.writeTo(outputStream, null);
+
+		assertEquals(multipartUpload.getContentLength(), outputStream.size());
+		assertEquals("multipart/form-data; boundary=\"boundary\"", multipartUpload.getContentType());
+	}
+
+	@Test
+	public void testBodyFormat() throws Exception {
+		MultipartUpload multipartUpload = new MultipartUpload("boundary");
+		multipartUpload.addTextPart("name", "My_Mule_App");
+
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		multipartUpload.writeTo(outputStream, null);
+
+		assertEquals("--boundary\r\nContent-Type: text/plain\r\nContent-Transfer-Encoding: binary\r\nContent-ID: <name>\r\nContent-Disposition: form-data; name=\"name\"\r\n\r\nMy_Mule_App\r\n--boundary--", outputStream.toString("UTF-8"));
+	}
+
+	@Test
+	public void testProgressIsReported() throws Exception {
+		MultipartUpload multipartUpload = new MultipartUpload();
+		multipartUpload.addFilePart("file", _file);
+		final long[] lastReport = new long[2];
+		final int[] reports = new int[1];
+
+		multipartUpload.writeTo(new ByteArrayOutputStream(), new MultipartUpload.ProgressListener() {
+			@Override
+			public void bytesWritten(long totalBytesWritten, long contentLength) {
+				assertTrue(totalBytesWritten >= lastReport[0]);
+				lastReport[0] = totalBytesWritten;
+				lastReport[1] = contentLength;
+				reports[0]++;
+			}
+		});
+
+		assertEquals(multipartUpload.getContentLength(), lastReport[0]);
+		assertEquals(multipartUpload.getContentLength(), lastReport[1]);
+		assertTrue(reports[0] > 1);
+	}
+
+	@Test(expected = IOException.class)
+	public void testMissingFile() throws Exception {
+		MultipartUpload multipartUpload = new MultipartUpload();
+		multipartUpload.addFilePart("file", new File(_file.getPath() + ".missing"));
+		multipartUpload.writeTo(new ByteArrayOutputStream(), null);
+	}
+}
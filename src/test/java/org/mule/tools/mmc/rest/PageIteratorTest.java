@@ -0,0 +1,116 @@
+package org.mule.tools.mmc.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.codehaus.jackson.node.JsonNodeFactory;
+import org.junit.Test;
+
+public class PageIteratorTest {
+
+	/**
+	 * Serves pages of a list of numbered elements
+	 */
+	private static class NumberedList implements PageIterator.PageLoader {
+		final int size;
+		final boolean paginated;
+		final boolean total;
+		boolean ignoresOffset;
+		final List<String> requests = new ArrayList<String>();
+
+		NumberedList(int size, boolean paginated, boolean total) {
+			this.size = size;
+			this.paginated = paginated;
+			this.total = total;
+		}
+
+		@Override
+		public JsonListReader.Page load(int offset, int limit) throws IOException {
+			requests.add(offset + "+" + limit);
+			JsonListReader.Page page = new JsonListReader.Page();
+			int start = paginated && !ignoresOffset ? offset : 0;
+			int end = paginated ? Math.min(size, start + limit) : size;
+			for (int i = start; i < end; i++) {
+				page.elements.add(JsonNodeFactory.instance.numberNode(i));
+			}
+			page.total = total ? size : -1;
+			return page;
+		}
+	}
+
+	private static List<Integer> readAll(PageIterator pageIterator) throws IOException {
+		List<Integer> elements = new ArrayList<Integer>();
+		while (pageIterator.hasNext()) {
+			elements.add(pageIterator.next().getIntValue());
+		}
+		return elements;
+	}
+
+	@Test
+	public void testPagesAreRequestedAsConsumed() throws Exception {
+		NumberedList numberedList = new NumberedList(5, true, true);
+		PageIterator pageIterator = new PageIterator(numberedList, 2);
+
+		assertEquals(0, pageIterator.next().getIntValue());
+		assertEquals(1, pageIterator.next().getIntValue());
+		assertEquals(1, numberedList.requests.size());
+		assertEquals(2, pageIterator.next().getIntValue());
+		assertEquals(2, numberedList.requests.size());
+		assertEquals(3, pageIterator.next().getIntValue());
+		assertEquals(4, pageIterator.next().getIntValue());
+		assertFalse(pageIterator.hasNext());
+		assertEquals("[0+2, 2+2, 4+2]", numberedList.requests.toString());
+		assertEquals(3, pageIterator.getPagesRead());
+	}
+
+	@Test
+	public void testTotalAvoidsRequestingAnEmptyPage() throws Exception {
+		NumberedList numberedList = new NumberedList(4, true, true);
+		assertEquals(4, readAll(new PageIterator(numberedList, 2)).size());
+		assertEquals(2, numberedList.requests.size());
+
+		NumberedList withoutTotal = new NumberedList(4, true, false);
+		assertEquals(4, readAll(new PageIterator(withoutTotal, 2)).size());
+		assertEquals("[0+2, 2+2, 4+2]", withoutTotal.requests.toString());
+	}
+
+	@Test
+	public void testUnpaginatedListIsTheOnlyPage() throws Exception {
+		NumberedList numberedList = new NumberedList(5, false, false);
+		assertEquals(5, readAll(new PageIterator(numberedList, 2)).size());
+		assertEquals(1, numberedList.requests.size());
+	}
+
+	@Test
+	public void testRepeatedPageEndsTheList() throws Exception {
+		NumberedList numberedList = new NumberedList(5, true, false);
+		numberedList.ignoresOffset = true;
+		assertEquals("[0, 1]", readAll(new PageIterator(numberedList, 2)).toString());
+		assertEquals("[0+2, 2+2]", numberedList.requests.toString());
+	}
+
+	@Test
+	public void testEmptyList() throws Exception {
+		NumberedList numberedList = new NumberedList(0, true, true);
+		PageIterator pageIterator = new PageIterator(numberedList, 2);
+		assertFalse(pageIterator.hasNext());
+		assertFalse(pageIterator.hasNext());
+		assertEquals(1, numberedList.requests.size());
+	}
+
+	@Test
+	public void testStoppingEarlyRequestsNoMorePages() throws Exception {
+		NumberedList numberedList = new NumberedList(1000, true, true);
+		PageIterator pageIterator = new PageIterator(numberedList, 10);
+		while (pageIterator.hasNext()) {
+			if (pageIterator.next().getIntValue() == 15) {
+				break;
+			}
+		}
+		assertEquals(2, numberedList.requests.size());
+	}
+}
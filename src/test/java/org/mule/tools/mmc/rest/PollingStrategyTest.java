@@ -0,0 +1,56 @@
+package org.mule.tools.mmc.rest;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PollingStrategyTest {
+
+	@Test
+	public void testFixed() {
+		PollingStrategy pollingStrategy = PollingStrategy.fixed(500);
+		Assert.assertEquals(500, pollingStrategy.getDelayMs(1, new DeploymentState()));
+		Assert.assertEquals(500, pollingStrategy.getDelayMs(10, new DeploymentState()));
+	}
+
+	@Test
+	public void testBackoffWithoutJitter() {
+		PollingStrategy pollingStrategy = new PollingStrategy.Backoff(100, 1000, 2, 0, new Random(1));
+		DeploymentState inProgress = new DeploymentState();
+		Assert.assertEquals(100, pollingStrategy.getDelayMs(1, inProgress));
+		Assert.assertEquals(200, pollingStrategy.getDelayMs(2, inProgress));
+		Assert.assertEquals(400, pollingStrategy.getDelayMs(3, inProgress));
+		Assert.assertEquals(800, pollingStrategy.getDelayMs(4, inProgress));
+		Assert.assertEquals(1000, pollingStrategy.getDelayMs(5, inProgress));
+		Assert.assertEquals(1000, pollingStrategy.getDelayMs(100, inProgress));
+	}
+
+	@Test
+	public void testBackoffJitterOnlyShortensDelays() {
+		PollingStrategy pollingStrategy = new PollingStrategy.Backoff(100, 1000, 2, 0.5, new Random(1));
+		DeploymentState inProgress = new DeploymentState();
+		for (int probe = 1; probe < 50; probe++) {
+			long expectedMaxDelayMs = Math.min(1000, 100L << Math.min(probe - 1, 20));
+			long delayMs = pollingStrategy.getDelayMs(probe, inProgress);
+			Assert.assertTrue(delayMs <= expectedMaxDelayMs);
+			Assert.assertTrue(delayMs >= expectedMaxDelayMs / 2);
+		}
+	}
+
+	@Test
+	public void testBackoffSettlesOnceReconciled() {
+		PollingStrategy pollingStrategy = new PollingStrategy.Backoff(100, 1000, 2, 0, new Random(1));
+		DeploymentState reconciled = new DeploymentState();
+		reconciled.status = DeploymentStatus.IN_PROGRESS;
+		reconciled.reconciled = true;
+		Assert.assertTrue(pollingStrategy.isSettled(reconciled));
+		Assert.assertFalse(pollingStrategy.isSettled(new DeploymentState()));
+		Assert.assertFalse(PollingStrategy.fixed(100).isSettled(reconciled));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testBackoffRejectsMaxDelayLowerThanInitialDelay() {
+		PollingStrategy.backoff(1000, 100, 2, 0);
+	}
+}
@@ -0,0 +1,92 @@
+package org.mule.tools.mmc.rest;
+
+import java.io.File;
+
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RequestMetricsTest {
+
+	private static RequestRecord record(String method, String endpoint, int status, long latencyMs, int attempt) {
+		RequestRecord record = new RequestRecord();
+		record.method = method;
+		record.endpoint = endpoint;
+		record.status = status;
+		record.latencyMs = latencyMs;
+		record.attempt = attempt;
+		record.requestBytes = 10;
+		record.responseBytes = 100;
+		return record;
+	}
+
+	@Test
+	public void testRecordOfTransportRequest() {
+		TransportRequest request = new TransportRequest("PUT", "deployments", "local$1234", "add");
+		request.entity = "{\"name\":\"é\"}";
+		RequestRecord record = new RequestRecord(request, 2);
+		Assert.assertEquals("PUT", record.method);
+		Assert.assertEquals("deployments/{id}/add", record.endpoint);
+		Assert.assertEquals(2, record.attempt);
+		Assert.assertEquals(13, record.requestBytes);
+	}
+
+	@Test
+	public void testAggregationByEndpoint() {
+		RequestMetrics requestMetrics = new RequestMetrics();
+		for (int i = 1; i <= 100; i++) {
+			requestMetrics.requestCompleted(record("GET", "deployments/{id}", 200, i, 1));
+		}
+		requestMetrics.requestCompleted(record("POST", "repository", 503, 2000, 1));
+		requestMetrics.requestCompleted(record("POST", "repository", -1, 4000, 2));
+
+		Assert.assertEquals(102, requestMetrics.getRequests());
+		// The endpoint taking the most time comes first
+		RequestMetrics.EndpointMetrics upload = requestMetrics.getEndpoints().get(0);
+		Assert.assertEquals("repository", upload.getEndpoint());
+		Assert.assertEquals(2, upload.getErrors());
+		Assert.assertEquals(1, upload.getRetries());
+		Assert.assertEquals(Long.valueOf(1), upload.getStatusCounts().get(-1));
+
+		RequestMetrics.EndpointMetrics polling = requestMetrics.getEndpoints().get(1);
+		Assert.assertEquals(5050, polling.getTotalLatencyMs());
+		Assert.assertEquals(100, polling.getMaxLatencyMs());
+		Assert.assertEquals(10000, polling.getResponseBytes());
+		Assert.assertEquals(50, polling.getLatencyPercentileMs(50));
+		Assert.assertEquals(100, polling.getLatencyPercentileMs(95));
+		long[] histogram = polling.getLatencyHistogram();
+		Assert.assertEquals(5, histogram[0]);
+		Assert.assertEquals(5, histogram[1]);
+		Assert.assertEquals(50, histogram[4]);
+		Assert.assertEquals(0, histogram[histogram.length - 1]);
+	}
+
+	@Test
+	public void testWriteJson() throws Exception {
+		RequestMetrics requestMetrics = new RequestMetrics();
+		requestMetrics.requestCompleted(record("GET", "servers", 200, 40, 1));
+		requestMetrics.requestCompleted(record("GET", "servers", 200, 60000, 1));
+		File directory = File.createTempFile("RequestMetricsTest", "");
+		directory.delete();
+		File file = new File(directory, "target/mmc-request-metrics.json");
+		try {
+			requestMetrics.writeJson(file);
+
+			JsonNode summary = new ObjectMapper().readTree(file);
+			Assert.assertEquals(2, summary.path("requests").getLongValue());
+			Assert.assertEquals(60040, summary.path("totalLatencyMs").getLongValue());
+			JsonNode servers = summary.path("endpoints").get(0);
+			Assert.assertEquals("GET", servers.path("method").getTextValue());
+			Assert.assertEquals("servers", servers.path("endpoint").getTextValue());
+			Assert.assertEquals(2, servers.path("statuses").path("200").getLongValue());
+			Assert.assertEquals(60000, servers.path("p99LatencyMs").getLongValue());
+			Assert.assertEquals(RequestMetrics.LATENCY_BUCKETS_MS.length + 1, servers.path("latencyHistogram").size());
+			Assert.assertEquals(1, servers.path("latencyHistogram").get(RequestMetrics.LATENCY_BUCKETS_MS.length).getLongValue());
+		} finally {
+			file.delete();
+			file.getParentFile().delete();
+			directory.delete();
+		}
+	}
+}
@@ -0,0 +1,182 @@
+package org.mule.tools.mmc.rest;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.net.UnknownHostException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.cxf.transport.http.HTTPException;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RetryPolicyTest {
+
+	private RetryPolicy retryPolicy;
+	private URL url;
+
+	@Before
+	public void setup() throws Exception {
+		retryPolicy = new RetryPolicy();
+		retryPolicy.initialBackoffMs = 1;
+		retryPolicy.maxBackoffMs = 2;
+		url = new URL("http://localhost:8080/mmc");
+	}
+
+	@Test
+	public void testClassification() {
+		Assert.assertTrue(retryPolicy.isTransient(new HTTPException(500, "", url)));
+		Assert.assertTrue(retryPolicy.isTransient(new HTTPException(503, "", url)));
+		Assert.assertTrue(retryPolicy.isTransient(new HTTPException(429, "", url)));
+		Assert.assertTrue(retryPolicy.isTransient(new SocketTimeoutException("Read timed out")));
+		Assert.assertTrue(retryPolicy.isTransient(new ConnectException("Connection refused")));
+		Assert.assertTrue(retryPolicy.isTransient(new SocketException("Connection reset")));
+		Assert.assertTrue(retryPolicy.isTransient(new RuntimeException(new SocketTimeoutException("Read timed out"))));
+
+		Assert.assertFalse(retryPolicy.isTransient(new HTTPException(404, "", url)));
+		Assert.assertFalse(retryPolicy.isTransient(new HTTPException(409, "", url)));
+		Assert.assertFalse(retryPolicy.isTransient(new HTTPException(401, "", url)));
+		Assert.assertFalse(retryPolicy.isTransient(new UnknownHostException("mmc")));
+		Assert.assertFalse(retryPolicy.isTransient(new IllegalArgumentException()));
+	}
+
+	@Test
+	public void testBackoffGrowsUpToMax() {
+		retryPolicy.initialBackoffMs = 100;
+		retryPolicy.maxBackoffMs = 300;
+		retryPolicy.jitter = 0;
+		Assert.assertEquals(100, retryPolicy.getBackoffMs(1));
+		Assert.assertEquals(200, retryPolicy.getBackoffMs(2));
+		Assert.assertEquals(300, retryPolicy.getBackoffMs(3));
+		Assert.assertEquals(300, retryPolicy.getBackoffMs(10));
+	}
+
+	@Test
+	public void testTransientFailureIsRetried() throws IOException {
+		final AtomicInteger calls = new AtomicInteger();
+		String result = retryPolicy.execute("test", new RetryPolicy.Request<String>() {
+			@Override
+			public String execute() throws IOException {
+				if (calls.incrementAndGet() < 3) {
+					throw new HTTPException(503, "Service unavailable", url);
+				}
+				return "ok";
+			}
+		});
+
+		Assert.assertEquals("ok", result);
+		Assert.assertEquals(3, calls.get());
+		Assert.assertEquals(3, retryPolicy.getMetrics().getAttempts());
+		Assert.assertEquals(2, retryPolicy.getMetrics().getRetries());
+		Assert.assertEquals(1, retryPolicy.getMetrics().getRecoveries());
+	}
+
+	@Test
+	public void testPermanentFailureIsNotRetried() {
+		final AtomicInteger calls = new AtomicInteger();
+		try {
+			retryPolicy.execute("test", new RetryPolicy.Request<String>() {
+				@Override
+				public String execute() throws IOException {
+					calls.incrementAndGet();
+					throw new HTTPException(404, "Not found", url);
+				}
+			});
+			Assert.fail("Exception should have been thrown");
+		} catch (IOException e) {
+			Assert.assertEquals(404, ((HTTPException) e).getResponseCode());
+		}
+		Assert.assertEquals(1, calls.get());
+		Assert.assertEquals(1, retryPolicy.getMetrics().getPermanentFailures());
+		Assert.assertEquals(0, retryPolicy.getMetrics().getRetries());
+	}
+
+	@Test
+	public void testAttemptsAreLimited() {
+		final AtomicInteger calls = new AtomicInteger();
+		try {
+			retryPolicy.execute("test", new RetryPolicy.Request<String>() {
+				@Override
+				public String execute() throws IOException {
+					calls.incrementAndGet();
+					throw new SocketTimeoutException("Read timed out");
+				}
+			});
+			Assert.fail("Exception should have been thrown");
+		} catch (IOException e) {
+			Assert.assertTrue(e instanceof SocketTimeoutException);
+		}
+		Assert.assertEquals(RetryPolicy.DEFAULT_MAX_ATTEMPTS, calls.get());
+		Assert.assertEquals(1, retryPolicy.getMetrics().getExhausted());
+	}
+
+	@Test
+	public void testRetryBudgetIsRespected() {
+		retryPolicy.maxAttempts = 100;
+		retryPolicy.initialBackoffMs = 1000;
+		retryPolicy.maxBackoffMs = 1000;
+		retryPolicy.jitter = 0;
+		retryPolicy.retryBudgetMs = 500;
+		final AtomicInteger calls = new AtomicInteger();
+		try {
+			retryPolicy.execute("test", new RetryPolicy.Request<String>() {
+				@Override
+				public String execute() throws IOException {
+					calls.incrementAndGet();
+					throw new HTTPException(500, "Error", url);
+				}
+			});
+			Assert.fail("Exception should have been thrown");
+		} catch (IOException e) {
+			Assert.assertEquals(500, ((HTTPException) e).getResponseCode());
+		}
+		// The first backoff alone would exceed the budget
+		Assert.assertEquals(1, calls.get());
+	}
+
+	@Test
+	public void testDeadlineStopsRetries() {
+		retryPolicy.maxAttempts = 100;
+		retryPolicy.initialBackoffMs = 1000;
+		retryPolicy.maxBackoffMs = 1000;
+		retryPolicy.jitter = 0;
+		final AtomicInteger calls = new AtomicInteger();
+		long startTime = System.currentTimeMillis();
+		try {
+			retryPolicy.execute("test", new RetryPolicy.Request<String>() {
+				@Override
+				public String execute() throws IOException {
+					calls.incrementAndGet();
+					throw new HTTPException(503, "Unavailable", url);
+				}
+			}, Deadline.after(200));
+			Assert.fail("Exception should have been thrown");
+		} catch (IOException e) {
+			Assert.assertEquals(503, ((HTTPException) e).getResponseCode());
+		}
+		// No sleep past the deadline
+		Assert.assertEquals(1, calls.get());
+		Assert.assertTrue(System.currentTimeMillis() - startTime < 1000);
+	}
+
+	@Test
+	public void testNoRetry() {
+		RetryPolicy noRetry = RetryPolicy.noRetry();
+		final AtomicInteger calls = new AtomicInteger();
+		try {
+			noRetry.execute("test", new RetryPolicy.Request<String>() {
+				@Override
+				public String execute() throws IOException {
+					calls.incrementAndGet();
+					throw new HTTPException(500, "Error", url);
+				}
+			});
+			Assert.fail("Exception should have been thrown");
+		} catch (IOException e) {
+		}
+		Assert.assertEquals(1, calls.get());
+	}
+}
@@ -0,0 +1,114 @@
+package org.mule.tools.mmc.rest;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SingleFlightTest {
+
+	private SingleFlight singleFlight;
+	private ExecutorService executorService;
+
+	@Before
+	public void setup() {
+		singleFlight = new SingleFlight();
+		executorService = Executors.newCachedThreadPool();
+	}
+
+	@After
+	public void cleanup() {
+		executorService.shutdownNow();
+	}
+
+	/**
+	 * Starts callers of the given key, the request blocking until they have
+	 * all called
+	 */
+	private List<Future<String>> call(final String key, int callerCount, final AtomicInteger executions, final IOException failure) throws InterruptedException {
+		final CountDownLatch allCalled = new CountDownLatch(callerCount);
+		final CountDownLatch release = new CountDownLatch(1);
+		List<Future<String>> results = new ArrayList<Future<String>>();
+		for (int i = 0; i < callerCount; i++) {
+			results.add(executorService.submit(new Callable<String>() {
+				@Override
+				public String call() throws Exception {
+					allCalled.countDown();
+					return singleFlight.execute(key, new RetryPolicy.Request<String>() {
+						@Override
+						public String execute() throws IOException {
+							executions.incrementAndGet();
+							try {
+								release.await(5, TimeUnit.SECONDS);
+							} catch (InterruptedException e) {
+								throw new IOException(e);
+							}
+							if (failure != null) {
+								throw failure;
+							}
+							return key + " result";
+						}
+					});
+				}
+			}));
+		}
+		allCalled.await(5, TimeUnit.SECONDS);
+		// Let the callers reach the flight before it lands
+		Thread.sleep(100);
+		release.countDown();
+		return results;
+	}
+
+	@Test
+	public void testConcurrentIdenticalRequestsAreCoalesced() throws Exception {
+		AtomicInteger executions = new AtomicInteger();
+		List<Future<String>> results = call("servers", 5, executions, null);
+		for (Future<String> result : results) {
+			Assert.assertEquals("servers result", result.get(5, TimeUnit.SECONDS));
+		}
+		Assert.assertEquals(1, executions.get());
+		Assert.assertEquals(4, singleFlight.getCoalescedRequests());
+	}
+
+	@Test
+	public void testFailureIsShared() throws Exception {
+		AtomicInteger executions = new AtomicInteger();
+		IOException failure = new IOException("MMC unavailable");
+		List<Future<String>> results = call("servers", 3, executions, failure);
+		for (Future<String> result : results) {
+			try {
+				result.get(5, TimeUnit.SECONDS);
+				Assert.fail("Exception should have been thrown");
+			} catch (ExecutionException e) {
+				Assert.assertSame(failure, e.getCause());
+			}
+		}
+		Assert.assertEquals(1, executions.get());
+	}
+
+	@Test
+	public void testResultsAreNotCached() throws Exception {
+		final AtomicInteger executions = new AtomicInteger();
+		RetryPolicy.Request<Integer> request = new RetryPolicy.Request<Integer>() {
+			@Override
+			public Integer execute() {
+				return executions.incrementAndGet();
+			}
+		};
+		Assert.assertEquals(Integer.valueOf(1), singleFlight.execute("servers", request));
+		Assert.assertEquals(Integer.valueOf(2), singleFlight.execute("servers", request));
+		Assert.assertEquals(0, singleFlight.getCoalescedRequests());
+	}
+}
@@ -0,0 +1,70 @@
+package org.mule.tools.mmc.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.Test;
+import org.mule.tools.mmc.rest.TopologyCache.TopologyKind;
+
+public class TopologyCacheTest {
+
+	private static class CountingLoader implements TopologyCache.Loader {
+		int loads;
+
+		@Override
+		public TopologyCache.Snapshot load(TopologyKind kind) throws IOException {
+			loads++;
+			TopologyCache.Snapshot snapshot = new TopologyCache.Snapshot();
+			snapshot.addResource(kind.path + "-name", kind.path + "-id-" + loads);
+			snapshot.addServerToGroup("Development", "server-1");
+			return snapshot;
+		}
+	}
+
+	@Test
+	public void testSnapshotIsLoadedOnce() throws Exception {
+		TopologyCache cache = new TopologyCache();
+		CountingLoader loader = new CountingLoader();
+
+		assertEquals("servers-id-1", cache.snapshot(TopologyKind.SERVER, loader).getId("servers-name"));
+		assertNull(cache.snapshot(TopologyKind.SERVER, loader).getId("unknown"));
+		assertTrue(cache.snapshot(TopologyKind.SERVER, loader).getServerIdsInGroup("Development").contains("server-1"));
+		assertEquals(1, loader.loads);
+
+		cache.snapshot(TopologyKind.CLUSTER, loader);
+		assertEquals(2, loader.loads);
+	}
+
+	@Test
+	public void testExpiredSnapshotIsReloaded() throws Exception {
+		TopologyCache cache = new TopologyCache(0);
+		CountingLoader loader = new CountingLoader();
+
+		cache.snapshot(TopologyKind.SERVER_GROUP, loader);
+		assertEquals("serverGroups-id-2", cache.snapshot(TopologyKind.SERVER_GROUP, loader).getId("serverGroups-name"));
+	}
+
+	@Test
+	public void testInvalidate() throws Exception {
+		TopologyCache cache = new TopologyCache();
+		CountingLoader loader = new CountingLoader();
+
+		cache.snapshot(TopologyKind.SERVER, loader);
+		cache.invalidate(TopologyKind.SERVER);
+		cache.snapshot(TopologyKind.SERVER, loader);
+		cache.invalidate();
+		cache.snapshot(TopologyKind.SERVER, loader);
+		assertEquals(3, loader.loads);
+	}
+
+	@Test
+	public void testFirstResourceWithNameWins() {
+		TopologyCache.Snapshot snapshot = new TopologyCache.Snapshot();
+		snapshot.addResource("Development", "1");
+		snapshot.addResource("Development", "2");
+		assertEquals("1", snapshot.getId("Development"));
+	}
+}
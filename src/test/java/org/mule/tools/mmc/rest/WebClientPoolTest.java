@@ -0,0 +1,82 @@
+package org.mule.tools.mmc.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+import java.net.URL;
+
+import org.apache.cxf.jaxrs.client.WebClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class WebClientPoolTest {
+
+	private ConnectionSettings settings;
+	private WebClientPool pool;
+
+	@Before
+	public void setup() throws Exception {
+		settings = new ConnectionSettings();
+		pool = new WebClientPool(new URL("http://localhost:8080/mmc/api"), "admin", "admin", settings);
+	}
+
+	@After
+	public void cleanup() {
+		pool.close();
+	}
+
+	@Test
+	public void testReleasedClientIsReused() throws Exception {
+		WebClient webClient = pool.borrow();
+		webClient.path("deployments");
+		pool.release(webClient);
+
+		WebClient reusedWebClient = pool.borrow();
+		assertSame(webClient, reusedWebClient);
+		assertEquals("http://localhost:8080/mmc/api", reusedWebClient.getCurrentURI().toString());
+		pool.release(reusedWebClient);
+	}
+
+	@Test
+	public void testClientsInUseAreNotShared() throws Exception {
+		WebClient webClient1 = pool.borrow();
+		WebClient webClient2 = pool.borrow();
+		assertNotSame(webClient1, webClient2);
+		pool.release(webClient1);
+		pool.release(webClient2);
+	}
+
+	@Test
+	public void testIdleClientIsEvicted() throws Exception {
+		settings.idleClientTimeoutMs = 0;
+		WebClient webClient = pool.borrow();
+		pool.release(webClient);
+
+		WebClient newWebClient = pool.borrow();
+		assertNotSame(webClient, newWebClient);
+		pool.release(newWebClient);
+	}
+
+	@Test
+	public void testPermitIsReturnedWhenResetFails() throws Exception {
+		settings.maxConcurrentRequests = 1;
+		pool.close();
+		pool = new WebClientPool(new URL("http://localhost:8080/mmc/api"), "admin", "admin", settings);
+		pool.borrow();
+		WebClient failingWebClient = mock(WebClient.class);
+		doThrow(new AssertionError("reset")).when(failingWebClient).reset();
+		try {
+			pool.release(failingWebClient);
+			fail("Expected the error of the reset");
+		} catch (AssertionError e) {
+			assertEquals("reset", e.getMessage());
+		}
+
+		pool.release(pool.borrow(Deadline.after(1000)));
+	}
+}
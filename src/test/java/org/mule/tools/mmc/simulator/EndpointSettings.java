@@ -0,0 +1,38 @@
+package org.mule.tools.mmc.simulator;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Behaviour of an endpoint of the simulated MMC, such as /deployments, and
+ * what it has served
+ */
+public class EndpointSettings {
+
+	/**
+	 * Time taken to answer a request
+	 */
+	public volatile Latency latency = Latency.NONE;
+
+	/**
+	 * Share of the requests, between 0 and 1, answered with a 503 response
+	 * instead of being served
+	 */
+	public volatile double failureRate;
+
+	final AtomicLong requests = new AtomicLong();
+	final AtomicLong injectedFailures = new AtomicLong();
+
+	/**
+	 * Returns the number of requests received, injected failures included
+	 */
+	public long getRequests() {
+		return requests.get();
+	}
+
+	/**
+	 * Returns the number of requests answered with an injected failure
+	 */
+	public long getInjectedFailures() {
+		return injectedFailures.get();
+	}
+}
@@ -0,0 +1,70 @@
+package org.mule.tools.mmc.simulator;
+
+import java.util.Random;
+
+/**
+ * Distribution of the time taken by the simulated MMC to answer a request or
+ * to complete a deployment
+ */
+public abstract class Latency {
+
+	public static final Latency NONE = fixed(0);
+
+	/**
+	 * Returns the next delay drawn from the distribution
+	 */
+	public abstract long nextDelayMs(Random random);
+
+	public static Latency fixed(final long delayMs) {
+		return new Latency() {
+			@Override
+			public long nextDelayMs(Random random) {
+				return delayMs;
+			}
+
+			@Override
+			public String toString() {
+				return delayMs + "ms";
+			}
+		};
+	}
+
+	/**
+	 * Delays evenly spread between the bounds, both included
+	 */
+	public static Latency uniform(final long minDelayMs, final long maxDelayMs) {
+		return new Latency() {
+			@Override
+			public long nextDelayMs(Random random) {
+				return minDelayMs + (long) (random.nextDouble() * (maxDelayMs - minDelayMs + 1));
+			}
+
+			@Override
+			public String toString() {
+				return minDelayMs + "-" + maxDelayMs + "ms";
+			}
+		};
+	}
+
+	/**
+	 * Delays around the median with a long tail, as usually measured on a
+	 * loaded server
+	 * 
+	 * @param sigma
+	 *            Spread of the distribution, 0.5 puts the 99th percentile at
+	 *            about three times the median
+	 */
+	public static Latency logNormal(final long medianDelayMs, final double sigma) {
+		return new Latency() {
+			@Override
+			public long nextDelayMs(Random random) {
+				return Math.round(medianDelayMs * Math.exp(sigma * random.nextGaussian()));
+			}
+
+			@Override
+			public String toString() {
+				return "log-normal " + medianDelayMs + "ms, sigma " + sigma;
+			}
+		};
+	}
+}
@@ -0,0 +1,753 @@
+package org.mule.tools.mmc.simulator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.UUID;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.node.ArrayNode;
+import org.codehaus.jackson.node.ObjectNode;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Stateful MMC served on a local port, to measure the behaviour of the plugin
+ * against a console of any size without a real one.
+ *
+ * It implements the parts of the MMC REST API used by the plugin:
+ * <code>/repository</code>, <code>/deployments</code>, <code>/servers</code>,
+ * <code>/serverGroups</code> and <code>/clusters</code>. Uploaded applications
+ * and created deployments are kept, deployments go from IN_PROGRESS to
+ * DEPLOYED (or FAILED) once their deployment duration has elapsed, and the
+ * optimistic locking of the deployments on their lastModified stamp is
+ * enforced.
+ *
+ * The latency and the failure rate of each endpoint can be set, see
+ * {@link #endpoint(String)}. All random draws come from a generator seeded at
+ * construction, so a run with the same seed and the same requests is
+ * repeatable.
+ */
+public class MmcSimulator implements Closeable {
+	public static final String REPOSITORY = "repository";
+	public static final String DEPLOYMENTS = "deployments";
+	public static final String SERVERS = "servers";
+	public static final String SERVER_GROUPS = "serverGroups";
+	public static final String CLUSTERS = "clusters";
+
+	private static final String BASE_PATH = "/mmc/api";
+	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+	private static final Pattern TEXT_PART = Pattern.compile("Content-Disposition: form-data; name=\"([^\"]+)\"\r\n\r\n(.*?)\r\n--", Pattern.DOTALL);
+	private static final AtomicInteger SIMULATOR_COUNT = new AtomicInteger();
+
+	/**
+	 * Credentials expected in the Basic authorization of the requests
+	 */
+	public volatile String username = "admin";
+	public volatile String password = "admin";
+
+	/**
+	 * If false, deployment listings filtered by name are rejected with a 400
+	 * response, as by an older MMC
+	 */
+	public volatile boolean supportsFilters = true;
+
+	/**
+	 * If false, paginated listings are rejected with a 400 response, as by an
+	 * older MMC
+	 */
+	public volatile boolean supportsPagination = true;
+
+	/**
+	 * If true, paginated listings honour the limit but ignore the offset and
+	 * give no total, always answering with the first page
+	 */
+	public volatile boolean ignoresOffset;
+
+	/**
+	 * Time taken by a deployment to go from IN_PROGRESS to DEPLOYED
+	 */
+	public volatile Latency deploymentDuration = Latency.NONE;
+
+	/**
+	 * Share of the deployments, between 0 and 1, ending FAILED
+	 */
+	public volatile double deploymentFailureRate;
+
+	private final Random random;
+	private final Map<String, EndpointSettings> endpoints = new HashMap<String, EndpointSettings>();
+	private final ConcurrentMap<String, RouteStatistics> routeStatistics = new ConcurrentHashMap<String, RouteStatistics>();
+	private HttpServer server;
+	private ExecutorService executorService;
+
+	// Inventory, guarded by this
+	private final Map<String, Application> applications = new LinkedHashMap<String, Application>();
+	private final Map<String, Resource> serverGroups = new LinkedHashMap<String, Resource>();
+	private final Map<String, Resource> servers = new LinkedHashMap<String, Resource>();
+	private final Map<String, Resource> clusters = new LinkedHashMap<String, Resource>();
+	private final Map<String, Deployment> deployments = new LinkedHashMap<String, Deployment>();
+	private long lastModifiedCounter;
+
+	public MmcSimulator() {
+		this(0);
+	}
+
+	/**
+	 * @param seed
+	 *            Seed of the random draws: ids, latencies, failures
+	 */
+	public MmcSimulator(long seed) {
+		this.random = new Random(seed);
+		for (String endpoint : Arrays.asList(REPOSITORY, DEPLOYMENTS, SERVERS, SERVER_GROUPS, CLUSTERS)) {
+			endpoints.put(endpoint, new EndpointSettings());
+		}
+	}
+
+	/**
+	 * Starts serving on a free local port
+	 */
+	public void start() throws IOException {
+		final int simulatorNumber = SIMULATOR_COUNT.incrementAndGet();
+		executorService = Executors.newCachedThreadPool(new ThreadFactory() {
+			private final AtomicInteger threadCount = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "mmc-simulator-" + simulatorNumber + "-" + threadCount.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext(BASE_PATH, new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				_handle(exchange);
+			}
+		});
+		server.setExecutor(executorService);
+		server.start();
+	}
+
+	/**
+	 * Returns the URL of the MMC API, to give to the plugin
+	 */
+	public URL getUrl() throws IOException {
+		return new URL("http://localhost:" + server.getAddress().getPort() + BASE_PATH);
+	}
+
+	@Override
+	public void close() {
+		if (server != null) {
+			server.stop(0);
+			executorService.shutdownNow();
+		}
+	}
+
+	/**
+	 * Returns the settings of an endpoint, one of {@link #REPOSITORY},
+	 * {@link #DEPLOYMENTS}, {@link #SERVERS}, {@link #SERVER_GROUPS} or
+	 * {@link #CLUSTERS}
+	 */
+	public EndpointSettings endpoint(String endpoint) {
+		EndpointSettings endpointSettings = endpoints.get(endpoint);
+		if (endpointSettings == null) {
+			throw new IllegalArgumentException("Unknown endpoint \"" + endpoint + "\"");
+		}
+		return endpointSettings;
+	}
+
+	/**
+	 * Returns what was served on each route since the last reset, by route
+	 * such as <code>GET /deployments/{id}</code> or
+	 * <code>PUT /deployments/{id}/add</code>
+	 */
+	public SortedMap<String, RouteStatistics> getRouteStatistics() {
+		return new TreeMap<String, RouteStatistics>(routeStatistics);
+	}
+
+	public void resetRouteStatistics() {
+		routeStatistics.clear();
+	}
+
+	/**
+	 * Fills the inventory with generated resources:
+	 * <ul>
+	 * <li>applications named app-0, app-1... with versions 1.0.0, 1.0.1...</li>
+	 * <li>server groups named group-0, group-1... each with servers named
+	 * server-0-0, server-0-1...</li>
+	 * <li>clusters named cluster-0, cluster-1...</li>
+	 * <li>DEPLOYED deployments named deployment-0, deployment-1... of the last
+	 * version of an application, spread over the server groups</li>
+	 * </ul>
+	 */
+	public synchronized void populate(int applicationCount, int versionsPerApplication, int serverGroupCount, int serversPerGroup, int clusterCount, int deploymentCount) {
+		List<String> lastVersionIds = new ArrayList<String>();
+		for (int i = 0; i < applicationCount; i++) {
+			String versionId = null;
+			for (int j = 0; j < versionsPerApplication; j++) {
+				versionId = addApplicationVersion("app-" + i, "1.0." + j);
+			}
+			if (versionId != null) {
+				lastVersionIds.add(versionId);
+			}
+		}
+		List<String> groupIds = new ArrayList<String>();
+		for (int i = 0; i < serverGroupCount; i++) {
+			String groupId = addServerGroup("group-" + i);
+			groupIds.add(groupId);
+			for (int j = 0; j < serversPerGroup; j++) {
+				addServer("server-" + i + "-" + j, groupId);
+			}
+		}
+		for (int i = 0; i < clusterCount; i++) {
+			addCluster("cluster-" + i);
+		}
+		if (deploymentCount > 0 && (lastVersionIds.isEmpty() || groupIds.isEmpty())) {
+			throw new IllegalArgumentException("Deployments need applications and server groups");
+		}
+		for (int i = 0; i < deploymentCount; i++) {
+			Deployment deployment = _addDeployment("deployment-" + i, lastVersionIds.get(i % lastVersionIds.size()));
+			deployment.serverIds.add(groupIds.get(i % groupIds.size()));
+			deployment.status = "DEPLOYED";
+			deployment.reconciled = true;
+		}
+	}
+
+	/**
+	 * Adds a version of an application to the repository and returns its id
+	 */
+	public synchronized String addApplicationVersion(String name, String version) {
+		Application application = applications.get(name);
+		if (application == null) {
+			application = new Application(_newId(), name);
+			applications.put(name, application);
+		}
+		String versionId = _newId();
+		application.versionIds.put(version, versionId);
+		return versionId;
+	}
+
+	public synchronized String addServerGroup(String name) {
+		return _addResource(serverGroups, name).id;
+	}
+
+	public synchronized String addServer(String name, String... groupIds) {
+		Resource server = _addResource(servers, name);
+		server.groupIds.addAll(Arrays.asList(groupIds));
+		return server.id;
+	}
+
+	public synchronized String addCluster(String name) {
+		return _addResource(clusters, name).id;
+	}
+
+	public synchronized int getApplicationVersionCount() {
+		int count = 0;
+		for (Application application : applications.values()) {
+			count += application.versionIds.size();
+		}
+		return count;
+	}
+
+	public synchronized int getDeploymentCount() {
+		return deployments.size();
+	}
+
+	/**
+	 * Returns the status of the deployment with the given name, null if there
+	 * is none
+	 */
+	public synchronized String getDeploymentStatus(String name) {
+		for (Deployment deployment : deployments.values()) {
+			if (deployment.name.equals(name)) {
+				_refresh(deployment);
+				return deployment.status;
+			}
+		}
+		return null;
+	}
+
+	private void _handle(HttpExchange exchange) throws IOException {
+		long startTime = System.currentTimeMillis();
+		RouteStatistics statistics = null;
+		try {
+			List<String> segments = new ArrayList<String>();
+			for (String segment : exchange.getRequestURI().getRawPath().substring(BASE_PATH.length()).split("/")) {
+				if (!segment.isEmpty()) {
+					segments.add(URLDecoder.decode(segment, "UTF-8"));
+				}
+			}
+			EndpointSettings endpointSettings = segments.isEmpty() ? null : endpoints.get(segments.get(0));
+			if (endpointSettings == null) {
+				_send(exchange, new Response(404, "Unknown resource"));
+				return;
+			}
+			endpointSettings.requests.incrementAndGet();
+			statistics = _getRouteStatistics(exchange.getRequestMethod(), segments);
+			statistics.requests.incrementAndGet();
+			long delayMs;
+			boolean failure;
+			synchronized (random) {
+				delayMs = endpointSettings.latency.nextDelayMs(random);
+				failure = random.nextDouble() < endpointSettings.failureRate;
+			}
+			if (delayMs > 0) {
+				Thread.sleep(delayMs);
+			}
+			byte[] body = _readFully(exchange.getRequestBody());
+			if (!_isAuthorized(exchange)) {
+				_send(exchange, new Response(401, "Unauthorized"));
+			} else if (failure) {
+				endpointSettings.injectedFailures.incrementAndGet();
+				_send(exchange, new Response(503, "Simulated failure"));
+			} else {
+				_send(exchange, _route(exchange.getRequestMethod(), segments, _parseQuery(exchange.getRequestURI().getRawQuery()), body));
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		} catch (RuntimeException e) {
+			_send(exchange, new Response(500, String.valueOf(e)));
+		} finally {
+			exchange.close();
+			if (statistics != null) {
+				statistics.totalTimeMs.addAndGet(System.currentTimeMillis() - startTime);
+			}
+		}
+	}
+
+	private RouteStatistics _getRouteStatistics(String method, List<String> segments) {
+		StringBuilder route = new StringBuilder(method).append(" /").append(segments.get(0));
+		if (segments.size() > 1) {
+			route.append("/{id}");
+		}
+		for (String segment : segments.subList(Math.min(2, segments.size()), segments.size())) {
+			route.append('/').append(segment);
+		}
+		RouteStatistics statistics = routeStatistics.get(route.toString());
+		if (statistics == null) {
+			RouteStatistics newStatistics = new RouteStatistics();
+			statistics = routeStatistics.putIfAbsent(route.toString(), newStatistics);
+			if (statistics == null) {
+				statistics = newStatistics;
+			}
+		}
+		return statistics;
+	}
+
+	private Response _route(String method, List<String> segments, Map<String, String> query, byte[] body) throws IOException {
+		String endpoint = segments.get(0);
+		int depth = segments.size();
+		if (!supportsPagination && (query.containsKey("offset") || query.containsKey("limit"))) {
+			return new Response(400, "Unknown parameters offset, limit");
+		}
+		if (REPOSITORY.equals(endpoint)) {
+			if ("GET".equals(method) && depth == 1) {
+				return _listApplications(query);
+			} else if ("POST".equals(method) && depth == 1) {
+				return _upload(body);
+			} else if ("DELETE".equals(method) && depth == 2) {
+				return _deleteVersion(segments.get(1));
+			}
+		} else if (DEPLOYMENTS.equals(endpoint)) {
+			if ("GET".equals(method) && depth == 1) {
+				return _listDeployments(query);
+			} else if ("GET".equals(method) && depth == 2) {
+				return _getDeployment(segments.get(1));
+			} else if ("POST".equals(method) && depth == 1) {
+				return _createDeployment(OBJECT_MAPPER.readTree(body.length == 0 ? "{}".getBytes("UTF-8") : body));
+			} else if ("POST".equals(method) && depth == 3 && "deploy".equals(segments.get(2))) {
+				return _deploy(segments.get(1));
+			} else if ("PUT".equals(method) && depth == 3 && ("add".equals(segments.get(2)) || "remove".equals(segments.get(2)))) {
+				return _updateDeployment(segments.get(1), "add".equals(segments.get(2)), OBJECT_MAPPER.readTree(body));
+			} else if ("DELETE".equals(method) && depth == 2) {
+				return _deleteDeployment(segments.get(1));
+			}
+		} else if ("GET".equals(method) && depth == 1) {
+			if (SERVERS.equals(endpoint)) {
+				return _listResources(servers, query);
+			} else if (SERVER_GROUPS.equals(endpoint)) {
+				return _listResources(serverGroups, query);
+			} else if (CLUSTERS.equals(endpoint)) {
+				return _listResources(clusters, query);
+			}
+		}
+		return new Response(405, method + " not supported on " + segments);
+	}
+
+	private synchronized Response _listApplications(Map<String, String> query) throws IOException {
+		List<JsonNode> elements = new ArrayList<JsonNode>();
+		for (Application application : applications.values()) {
+			ObjectNode applicationNode = OBJECT_MAPPER.createObjectNode();
+			applicationNode.put("id", application.id);
+			applicationNode.put("name", application.name);
+			ArrayNode versionsNode = applicationNode.putArray("versions");
+			for (Map.Entry<String, String> version : application.versionIds.entrySet()) {
+				ObjectNode versionNode = versionsNode.addObject();
+				versionNode.put("name", version.getKey());
+				versionNode.put("id", version.getValue());
+			}
+			elements.add(applicationNode);
+		}
+		return _list(elements, query);
+	}
+
+	private synchronized Response _upload(byte[] body) throws IOException {
+		Map<String, String> fields = new HashMap<String, String>();
+		Matcher matcher = TEXT_PART.matcher(new String(body, "ISO-8859-1"));
+		while (matcher.find()) {
+			fields.put(matcher.group(1), new String(matcher.group(2).getBytes("ISO-8859-1"), "UTF-8"));
+		}
+		String name = fields.get("name");
+		String version = fields.get("version");
+		if (name == null || version == null) {
+			return new Response(400, "Missing name or version");
+		}
+		Application application = applications.get(name);
+		if (application != null && application.versionIds.containsKey(version)) {
+			return new Response(409, "Version " + version + " of " + name + " already exists");
+		}
+		String versionId = addApplicationVersion(name, version);
+		ObjectNode result = OBJECT_MAPPER.createObjectNode();
+		result.put("versionId", versionId);
+		result.put("applicationId", applications.get(name).id);
+		return new Response(200, result);
+	}
+
+	private synchronized Response _deleteVersion(String versionId) {
+		for (Iterator<Application> applicationIterator = applications.values().iterator(); applicationIterator.hasNext();) {
+			Application application = applicationIterator.next();
+			if (application.versionIds.values().remove(versionId)) {
+				if (application.versionIds.isEmpty()) {
+					applicationIterator.remove();
+				}
+				return new Response(200, "");
+			}
+		}
+		return new Response(404, "Unknown version " + versionId);
+	}
+
+	private synchronized Response _listDeployments(Map<String, String> query) throws IOException {
+		String name = query.get("name");
+		String serverId = query.get("serverId");
+		String clusterId = query.get("clusterId");
+		if (!supportsFilters && name != null) {
+			return new Response(400, "Unknown parameter name");
+		}
+		List<JsonNode> elements = new ArrayList<JsonNode>();
+		for (Deployment deployment : deployments.values()) {
+			if ((name == null || name.equals(deployment.name)) && (serverId == null || deployment.serverIds.contains(serverId)) && (clusterId == null || deployment.clusterIds.contains(clusterId))) {
+				elements.add(_toJson(deployment));
+			}
+		}
+		return _list(elements, query);
+	}
+
+	private synchronized Response _getDeployment(String deploymentId) {
+		Deployment deployment = deployments.get(deploymentId);
+		if (deployment == null) {
+			return new Response(404, "Unknown deployment " + deploymentId);
+		}
+		return new Response(200, _toJson(deployment));
+	}
+
+	private synchronized Response _createDeployment(JsonNode request) {
+		String name = request.path("name").getTextValue();
+		if (name == null) {
+			return new Response(400, "Missing name");
+		}
+		for (Deployment deployment : deployments.values()) {
+			if (deployment.name.equals(name)) {
+				return new Response(409, "Deployment " + name + " already exists");
+			}
+		}
+		Deployment deployment = _addDeployment(name, null);
+		for (JsonNode versionId : request.path("applications")) {
+			deployment.versionIds.add(versionId.asText());
+		}
+		for (JsonNode serverId : request.path("servers")) {
+			deployment.serverIds.add(serverId.asText());
+		}
+		for (JsonNode clusterId : request.path("clusters")) {
+			deployment.clusterIds.add(clusterId.asText());
+		}
+		ObjectNode result = OBJECT_MAPPER.createObjectNode();
+		result.put("id", deployment.id);
+		result.put("lastModified", deployment.lastModified);
+		return new Response(201, result);
+	}
+
+	private synchronized Response _updateDeployment(String deploymentId, boolean add, JsonNode request) {
+		Deployment deployment = deployments.get(deploymentId);
+		if (deployment == null) {
+			return new Response(404, "Unknown deployment " + deploymentId);
+		}
+		if (!deployment.lastModified.equals(request.path("lastModified").getTextValue())) {
+			return new Response(409, "Deployment " + deployment.name + " was modified");
+		}
+		for (JsonNode versionId : request.path("applications")) {
+			if (add) {
+				deployment.versionIds.add(versionId.asText());
+			} else {
+				deployment.versionIds.remove(versionId.asText());
+			}
+		}
+		deployment.lastModified = _nextLastModified();
+		return new Response(200, _toJson(deployment));
+	}
+
+	private synchronized Response _deploy(String deploymentId) {
+		Deployment deployment = deployments.get(deploymentId);
+		if (deployment == null) {
+			return new Response(404, "Unknown deployment " + deploymentId);
+		}
+		deployment.status = "IN_PROGRESS";
+		deployment.reconciled = false;
+		synchronized (random) {
+			deployment.readyTime = System.currentTimeMillis() + deploymentDuration.nextDelayMs(random);
+			deployment.failing = random.nextDouble() < deploymentFailureRate;
+		}
+		return new Response(200, "");
+	}
+
+	private synchronized Response _deleteDeployment(String deploymentId) {
+		if (deployments.remove(deploymentId) == null) {
+			return new Response(404, "Unknown deployment " + deploymentId);
+		}
+		return new Response(200, "");
+	}
+
+	private synchronized Response _listResources(Map<String, Resource> resources, Map<String, String> query) throws IOException {
+		List<JsonNode> elements = new ArrayList<JsonNode>();
+		for (Resource resource : resources.values()) {
+			ObjectNode resourceNode = OBJECT_MAPPER.createObjectNode();
+			resourceNode.put("id", resource.id);
+			resourceNode.put("name", resource.name);
+			if (resources == servers) {
+				ArrayNode groupsNode = resourceNode.putArray("groups");
+				for (String groupId : resource.groupIds) {
+					ObjectNode groupNode = groupsNode.addObject();
+					groupNode.put("id", groupId);
+					groupNode.put("name", serverGroups.containsKey(groupId) ? serverGroups.get(groupId).name : null);
+				}
+			}
+			elements.add(resourceNode);
+		}
+		return _list(elements, query);
+	}
+
+	/**
+	 * Returns the page of the list asked for by the offset and limit
+	 * parameters, or the whole list
+	 */
+	private Response _list(List<JsonNode> elements, Map<String, String> query) {
+		int offset = 0;
+		int limit = Integer.MAX_VALUE;
+		try {
+			if (query.containsKey("offset") && !ignoresOffset) {
+				offset = Math.max(0, Integer.parseInt(query.get("offset")));
+			}
+			if (query.containsKey("limit")) {
+				limit = Math.max(0, Integer.parseInt(query.get("limit")));
+			}
+		} catch (NumberFormatException e) {
+			return new Response(400, "Invalid offset or limit");
+		}
+		ObjectNode list = OBJECT_MAPPER.createObjectNode();
+		if (!ignoresOffset) {
+			list.put("total", elements.size());
+		}
+		ArrayNode data = list.putArray("data");
+		for (int i = offset; i < elements.size() && i - offset < limit; i++) {
+			data.add(elements.get(i));
+		}
+		return new Response(200, list);
+	}
+
+	private Deployment _addDeployment(String name, String versionId) {
+		Deployment deployment = new Deployment(_newId(), name);
+		if (versionId != null) {
+			deployment.versionIds.add(versionId);
+		}
+		deployment.lastModified = _nextLastModified();
+		deployments.put(deployment.id, deployment);
+		return deployment;
+	}
+
+	private Resource _addResource(Map<String, Resource> resources, String name) {
+		Resource resource = new Resource(_newId(), name);
+		resources.put(resource.id, resource);
+		return resource;
+	}
+
+	private JsonNode _toJson(Deployment deployment) {
+		_refresh(deployment);
+		ObjectNode deploymentNode = OBJECT_MAPPER.createObjectNode();
+		deploymentNode.put("id", deployment.id);
+		deploymentNode.put("name", deployment.name);
+		deploymentNode.put("href", BASE_PATH + "/" + DEPLOYMENTS + "/" + deployment.id);
+		deploymentNode.put("status", deployment.status);
+		deploymentNode.put("reconciled", deployment.reconciled);
+		deploymentNode.put("lastModified", deployment.lastModified);
+		ArrayNode applicationsNode = deploymentNode.putArray("applications");
+		for (String versionId : deployment.versionIds) {
+			applicationsNode.add(versionId);
+		}
+		ArrayNode serversNode = deploymentNode.putArray("servers");
+		for (String serverId : deployment.serverIds) {
+			serversNode.add(serverId);
+		}
+		ArrayNode clustersNode = deploymentNode.putArray("clusters");
+		for (String clusterId : deployment.clusterIds) {
+			clustersNode.add(clusterId);
+		}
+		return deploymentNode;
+	}
+
+	/**
+	 * Completes the deployment if its deployment duration has elapsed
+	 */
+	private static void _refresh(Deployment deployment) {
+		if ("IN_PROGRESS".equals(deployment.status) && System.currentTimeMillis() >= deployment.readyTime) {
+			deployment.status = deployment.failing ? "FAILED" : "DEPLOYED";
+			deployment.reconciled = true;
+		}
+	}
+
+	private String _newId() {
+		synchronized (random) {
+			return "local$" + new UUID(random.nextLong(), random.nextLong());
+		}
+	}
+
+	private String _nextLastModified() {
+		return "Modification " + (++lastModifiedCounter);
+	}
+
+	private boolean _isAuthorized(HttpExchange exchange) throws IOException {
+		String expected = "Basic " + javax.xml.bind.DatatypeConverter.printBase64Binary((username + ":" + password).getBytes("UTF-8"));
+		return expected.equals(exchange.getRequestHeaders().getFirst("Authorization"));
+	}
+
+	private static Map<String, String> _parseQuery(String rawQuery) throws IOException {
+		if (rawQuery == null || rawQuery.isEmpty()) {
+			return Collections.emptyMap();
+		}
+		Map<String, String> query = new HashMap<String, String>();
+		for (String parameter : rawQuery.split("&")) {
+			int separator = parameter.indexOf('=');
+			if (separator < 0) {
+				query.put(URLDecoder.decode(parameter, "UTF-8"), "");
+			} else {
+				query.put(URLDecoder.decode(parameter.substring(0, separator), "UTF-8"), URLDecoder.decode(parameter.substring(separator + 1), "UTF-8"));
+			}
+		}
+		return query;
+	}
+
+	private static byte[] _readFully(InputStream inputStream) throws IOException {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int read;
+		while ((read = inputStream.read(buffer)) != -1) {
+			outputStream.write(buffer, 0, read);
+		}
+		return outputStream.toByteArray();
+	}
+
+	private static void _send(HttpExchange exchange, Response response) throws IOException {
+		byte[] body = response.body.getBytes("UTF-8");
+		exchange.getResponseHeaders().set("Content-Type", response.body.startsWith("{") ? "application/json" : "text/plain");
+		exchange.sendResponseHeaders(response.status, body.length == 0 ? -1 : body.length);
+		if (body.length > 0) {
+			OutputStream outputStream = exchange.getResponseBody();
+			outputStream.write(body);
+			outputStream.close();
+		}
+	}
+
+	private static class Response {
+		final int status;
+		final String body;
+
+		Response(int status, String body) {
+			this.status = status;
+			this.body = body;
+		}
+
+		Response(int status, JsonNode body) {
+			this(status, body.toString());
+		}
+	}
+
+	private static class Application {
+		final String id;
+		final String name;
+		final Map<String, String> versionIds = new LinkedHashMap<String, String>();
+
+		Application(String id, String name) {
+			this.id = id;
+			this.name = name;
+		}
+	}
+
+	private static class Resource {
+		final String id;
+		final String name;
+		final Set<String> groupIds = new LinkedHashSet<String>();
+
+		Resource(String id, String name) {
+			this.id = id;
+			this.name = name;
+		}
+	}
+
+	private static class Deployment {
+		final String id;
+		final String name;
+		final Set<String> versionIds = new LinkedHashSet<String>();
+		final Set<String> serverIds = new LinkedHashSet<String>();
+		final Set<String> clusterIds = new LinkedHashSet<String>();
+		String status = "UNDEPLOYED";
+		boolean reconciled;
+		String lastModified;
+		long readyTime;
+		boolean failing;
+
+		Deployment(String id, String name) {
+			this.id = id;
+			this.name = name;
+		}
+	}
+}
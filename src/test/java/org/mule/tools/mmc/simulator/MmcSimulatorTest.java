@@ -0,0 +1,185 @@
+package org.mule.tools.mmc.simulator;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.codehaus.jackson.JsonNode;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mule.tools.mmc.rest.CircuitBreaker;
+import org.mule.tools.mmc.rest.DeploymentPlan;
+import org.mule.tools.mmc.rest.DeploymentStatus;
+import org.mule.tools.mmc.rest.MuleRest;
+import org.mule.tools.mmc.rest.PageIterator;
+import org.mule.tools.mmc.rest.RetryPolicy;
+
+public class MmcSimulatorTest {
+
+	private MmcSimulator simulator;
+	private MuleRest muleRest;
+
+	@Before
+	public void setup() throws Exception {
+		simulator = new MmcSimulator(42);
+		simulator.start();
+		muleRest = new MuleRest(simulator.getUrl(), "admin", "admin");
+	}
+
+	@After
+	public void cleanup() {
+		muleRest.close();
+		simulator.close();
+	}
+
+	@Test
+	public void testLookupsInLargeInventory() throws Exception {
+		simulator.populate(200, 3, 20, 5, 10, 1000);
+
+		Assert.assertEquals(600, simulator.getApplicationVersionCount());
+		Assert.assertNotNull(muleRest.restfullyGetApplicationId("app-199", "1.0.2"));
+		Assert.assertNotNull(muleRest.restfullyGetServerId("server-19-4"));
+		Assert.assertEquals(5, muleRest.restfullyGetServerIdsInGroup("group-7").size());
+		String groupId = muleRest.restfullyGetServerGroupId("group-3");
+		Assert.assertNotNull(muleRest.restfullyGetDeploymentIdByName("deployment-23", groupId, null));
+		Assert.assertNull(muleRest.restfullyGetDeploymentIdByName("deployment-24", groupId, null));
+		Assert.assertEquals(2, simulator.endpoint(MmcSimulator.DEPLOYMENTS).getRequests());
+	}
+
+	@Test
+	public void testIterateByPage() throws Exception {
+		simulator.populate(10, 1, 2, 1, 0, 250);
+		muleRest.setPageSize(100);
+
+		PageIterator deployments = muleRest.restfullyIterateDeployments();
+		int count = 0;
+		while (deployments.hasNext()) {
+			Assert.assertEquals("deployment-" + count, deployments.next().path("name").getTextValue());
+			count++;
+		}
+		Assert.assertEquals(250, count);
+		Assert.assertEquals(3, deployments.getPagesRead());
+	}
+
+	@Test
+	public void testFallBackWithOlderMmc() throws Exception {
+		simulator.populate(10, 1, 2, 1, 0, 150);
+		simulator.supportsFilters = false;
+		simulator.supportsPagination = false;
+		muleRest.setPageSize(100);
+
+		String groupId = muleRest.restfullyGetServerGroupId("group-1");
+		Assert.assertNotNull(muleRest.restfullyGetDeploymentIdByName("deployment-101", groupId, null));
+		PageIterator deployments = muleRest.restfullyIterateDeployments();
+		int count = 0;
+		while (deployments.hasNext()) {
+			deployments.next();
+			count++;
+		}
+		Assert.assertEquals(150, count);
+		Assert.assertEquals(1, deployments.getPagesRead());
+	}
+
+	@Test
+	public void testIterationEndsWhenOffsetIsIgnored() throws Exception {
+		simulator.populate(10, 1, 2, 1, 0, 250);
+		simulator.ignoresOffset = true;
+		muleRest.setPageSize(100);
+
+		PageIterator deployments = muleRest.restfullyIterateDeployments();
+		int count = 0;
+		while (deployments.hasNext()) {
+			Assert.assertEquals("deployment-" + count, deployments.next().path("name").getTextValue());
+			count++;
+		}
+		Assert.assertEquals(100, count);
+		Assert.assertEquals(2, deployments.getPagesRead());
+	}
+
+	@Test
+	public void testDeploymentLifecycle() throws Exception {
+		simulator.populate(0, 0, 1, 2, 0, 0);
+		simulator.deploymentDuration = Latency.fixed(200);
+		File packageFile = File.createTempFile("simulated-app", ".zip");
+		try {
+			Files.write(packageFile.toPath(), new byte[1024]);
+			String versionId = muleRest.restfullyUploadRepository("simulated-app", "1.0.0", packageFile);
+			Assert.assertNotNull(versionId);
+			Assert.assertEquals(1, simulator.getApplicationVersionCount());
+
+			String deploymentId = muleRest.restfullyCreateDeployment("group-0", "simulated-deployment", versionId);
+			muleRest.restfullyDeployDeploymentById(deploymentId);
+			Assert.assertEquals(DeploymentStatus.IN_PROGRESS, muleRest.restfullyGetDeploymentState(deploymentId).status);
+			long timeout = System.currentTimeMillis() + 5000;
+			while (muleRest.restfullyGetDeploymentState(deploymentId).status != DeploymentStatus.DEPLOYED && System.currentTimeMillis() < timeout) {
+				Thread.sleep(50);
+			}
+			Assert.assertEquals("DEPLOYED", simulator.getDeploymentStatus("simulated-deployment"));
+			Assert.assertEquals(1, simulator.getRouteStatistics().get("POST /repository").getRequests());
+			Assert.assertEquals(1, simulator.getRouteStatistics().get("POST /deployments/{id}/deploy").getRequests());
+			Assert.assertTrue(simulator.getRouteStatistics().get("GET /deployments/{id}").getRequests() >= 2);
+
+			JsonNode deployment = muleRest.restfullyGetDeploymentByName("simulated-deployment", muleRest.restfullyGetServerGroupId("group-0"), null);
+			Assert.assertEquals(versionId, deployment.path("applications").get(0).getTextValue());
+		} finally {
+			packageFile.delete();
+		}
+	}
+
+	@Test
+	public void testDeploymentOnSeveralTargets() throws Exception {
+		simulator.populate(0, 0, 2, 1, 1, 0);
+		String versionId = simulator.addApplicationVersion("simulated-app", "1.0.0");
+
+		DeploymentPlan deploymentPlan = muleRest.restfullyPrepareDeployment(Arrays.asList("group-0", "group-1", "cluster-0"), "simulated-deployment");
+		Assert.assertNotNull(muleRest.restfullyCreateDeployment(deploymentPlan, versionId));
+		JsonNode deployment = muleRest.restfullyGetDeploymentByName("simulated-deployment", null, null);
+		Assert.assertEquals(2, deployment.path("servers").size());
+		Assert.assertEquals(1, deployment.path("clusters").size());
+		Assert.assertEquals(1, simulator.getDeploymentCount());
+	}
+
+	@Test
+	public void testInjectedFailuresAreRetried() throws Exception {
+		simulator.populate(0, 0, 50, 1, 0, 0);
+		simulator.endpoint(MmcSimulator.SERVER_GROUPS).failureRate = 0.5;
+		RetryPolicy retryPolicy = new RetryPolicy();
+		retryPolicy.maxAttempts = 20;
+		retryPolicy.initialBackoffMs = 1;
+		retryPolicy.maxBackoffMs = 1;
+		muleRest.setRetryPolicy(retryPolicy);
+		muleRest.setCircuitBreaker(new CircuitBreaker("simulator", 0, 0, 0));
+
+		Assert.assertNotNull(muleRest.restfullyGetServerGroupId("group-49"));
+		EndpointSettings serverGroups = simulator.endpoint(MmcSimulator.SERVER_GROUPS);
+		Assert.assertEquals(serverGroups.getRequests() - 1, serverGroups.getInjectedFailures());
+		Assert.assertEquals(serverGroups.getInjectedFailures(), retryPolicy.getMetrics().getRetries());
+	}
+
+	@Test
+	public void testLatency() throws Exception {
+		simulator.populate(0, 0, 1, 1, 0, 0);
+		simulator.endpoint(MmcSimulator.SERVERS).latency = Latency.fixed(100);
+
+		long startTime = System.currentTimeMillis();
+		Assert.assertNotNull(muleRest.restfullyGetServerId("server-0-0"));
+		Assert.assertTrue(System.currentTimeMillis() - startTime >= 100);
+	}
+
+	@Test
+	public void testSameSeedSameIds() throws Exception {
+		MmcSimulator other = new MmcSimulator(42);
+		simulator.populate(1, 1, 1, 1, 1, 1);
+		other.populate(1, 1, 1, 1, 1, 1);
+		other.start();
+		MuleRest otherMuleRest = new MuleRest(other.getUrl(), "admin", "admin");
+		try {
+			Assert.assertEquals(muleRest.restfullyGetServerGroupId("group-0"), otherMuleRest.restfullyGetServerGroupId("group-0"));
+		} finally {
+			otherMuleRest.close();
+			other.close();
+		}
+	}
+}
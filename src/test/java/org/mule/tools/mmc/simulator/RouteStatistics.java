@@ -0,0 +1,27 @@
+package org.mule.tools.mmc.simulator;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * What the simulated MMC has served on a route, such as
+ * <code>GET /deployments/{id}</code>
+ */
+public class RouteStatistics {
+
+	final AtomicLong requests = new AtomicLong();
+	final AtomicLong totalTimeMs = new AtomicLong();
+
+	/**
+	 * Returns the number of requests received, injected failures included
+	 */
+	public long getRequests() {
+		return requests.get();
+	}
+
+	/**
+	 * Returns the time spent serving the requests, latency included
+	 */
+	public long getTotalTimeMs() {
+		return totalTimeMs.get();
+	}
+}